@@ -0,0 +1,30 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 运行基准测试。接受JMH的全部命令行参数，并总是启用GC分析器，
+ * 使每个结果都带有分配速率（gc.alloc.rate.norm）和GC次数，便于发现分配上的退化。
+ */
+public class BenchmarkMain {
+
+    /**
+     * 运行基准测试
+     * @param args  JMH的命令行参数，例如基准测试名的正则表达式、-p参数和-rf json
+     * @throws CommandLineOptionException   如果参数不合法
+     * @throws RunnerException              如果运行失败
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
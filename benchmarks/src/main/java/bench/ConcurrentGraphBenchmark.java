@@ -0,0 +1,87 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.*;
+
+import P1.graph.ConcreteEdgesGraph;
+import P1.graph.Graph;
+
+/**
+ * 比较ConcurrentGraph与用一把锁保护的ConcreteEdgesGraph在多线程竞争下的吞吐量。
+ *
+ * <p>每个线程在自己的一组起点上执行set()，并穿插执行targets()和sources()查询。
+ * 线程数用JMH的-t参数指定，例如
+ * <pre>
+ *     java -jar target/benchmarks.jar ConcurrentGraphBenchmark -t 8
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class ConcurrentGraphBenchmark {
+
+    private static final int VERTICES_PER_THREAD = 32;
+    //线程编号的上界，用于确定终点的取值范围
+    private static final int MAX_THREADS = 256;
+
+    @Param({"synchronized", "concurrent"})
+    public String mode;
+
+    private Graph<Integer> graph;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        switch (mode) {
+            case "synchronized":
+                graph = Graph.synchronizedGraph(new ConcreteEdgesGraph<>());
+                break;
+            case "concurrent":
+                graph = Graph.concurrent();
+                break;
+            default:
+                throw new IllegalArgumentException("unknown mode " + mode);
+        }
+    }
+
+    /**
+     * 每个线程的起点范围和随机数发生器
+     */
+    @State(Scope.Thread)
+    public static class Worker {
+        int base;
+        Random random;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrentGraphBenchmark benchmark) {
+            int index = benchmark.threads.getAndIncrement();
+            base = index * VERTICES_PER_THREAD;
+            random = new Random(index);
+        }
+    }
+
+    /**
+     * 80%为set()，10%为targets()，10%为sources()
+     */
+    @Benchmark
+    public int mixed(Worker worker) {
+        Random random = worker.random;
+        int source = worker.base + random.nextInt(VERTICES_PER_THREAD);
+        int target = random.nextInt(MAX_THREADS * VERTICES_PER_THREAD);
+        int kind = random.nextInt(10);
+        if (kind < 8) {
+            return graph.set(source, target, 1 + random.nextInt(100));
+        } else if (kind < 9) {
+            return graph.targets(source).size();
+        } else {
+            return graph.sources(target).size();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import P2.FriendshipGraph;
+import P2.Person;
+
+/**
+ * FriendshipGraph.getDistance在随机社交网络上的开销，按人数和度分布参数化。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FriendshipBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int persons;
+
+    @Param({"uniform", "powerlaw"})
+    public String distribution;
+
+    private FriendshipGraph graph;
+    private Person[] people;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        graph = new FriendshipGraph();
+        people = new Person[persons];
+        for (int i = 0; i < persons; i++) {
+            people[i] = new Person("p" + i);
+            graph.addVertex(people[i]);
+        }
+        int[][] edges = Workloads.edges(persons * Workloads.AVERAGE_DEGREE, distribution, 42);
+        for (int i = 0; i < edges[0].length; i++) {
+            graph.addEdge(people[edges[0][i]], people[edges[1][i]]);
+        }
+        random = new Random(7);
+    }
+
+    @Benchmark
+    public int getDistance() {
+        return graph.getDistance(people[random.nextInt(persons)], people[random.nextInt(persons)]);
+    }
+}
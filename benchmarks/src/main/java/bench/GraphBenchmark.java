@@ -0,0 +1,160 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import P1.graph.*;
+
+/**
+ * Graph各实现的单项操作的开销，按实现、边数和度分布参数化。
+ *
+ * <p>ConcreteEdgesGraph的set()为O(E)，ConcreteVerticesGraph的set()为O(V)，
+ * 建图的时间分别为O(E^2)和O(EV)：10^5条边时ConcreteEdgesGraph建图约需半分钟，10^6条边以上则无法在合理时间内完成。
+ * 因此默认的边数只到10^5，所有实现都能完成；更大的图只用于其他实现，需要显式指定，例如
+ * <pre>
+ *     java -jar target/benchmarks.jar GraphBenchmark -p implementation=ConcreteAdjacencyGraph,ConcurrentGraph -p edges=1000000,10000000
+ * </pre>
+ *
+ * <p>OffHeapGraph只在offheap profile中编译（JDK 21，启用预览特性），因此不在默认的实现中，
+ * 用"mvn -P offheap package"构建后显式指定：
+ * <pre>
+ *     java --enable-preview -jar target/benchmarks-offheap.jar GraphBenchmark -p implementation=OffHeapGraph,ConcreteAdjacencyGraph
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+
+    @Param({"ConcreteEdgesGraph", "ConcreteVerticesGraph", "ConcreteAdjacencyGraph", "ConcurrentGraph"})
+    public String implementation;
+
+    @Param({"1000", "10000", "100000"})
+    public int edges;
+
+    @Param({"uniform", "powerlaw"})
+    public String distribution;
+
+    private Graph<Integer> graph;
+    private int vertices;
+    private int[] sources;
+    private int[] targets;
+    private Random random;
+    private int nextVertex;
+
+    /**
+     * 按实现的名字创建空图
+     * @param implementation    实现的类名
+     * @return  一个空图
+     */
+    static Graph<Integer> create(String implementation) {
+        switch (implementation) {
+            case "ConcreteEdgesGraph":
+                return new ConcreteEdgesGraph<>();
+            case "ConcreteVerticesGraph":
+                return new ConcreteVerticesGraph<>();
+            case "ConcreteAdjacencyGraph":
+                return new ConcreteAdjacencyGraph<>();
+            case "ConcurrentGraph":
+                return new ConcurrentGraph<>();
+            case "OffHeapGraph":
+                return offHeap();
+            default:
+                throw new IllegalArgumentException("unknown implementation " + implementation);
+        }
+    }
+
+    /**
+     * 创建空的OffHeapGraph。默认构建按Java 17编译，不包含这个类，因此通过反射创建
+     * @return  一个空的OffHeapGraph
+     * @throws IllegalArgumentException 如果benchmark不是用offheap profile构建的
+     */
+    @SuppressWarnings("unchecked")
+    private static Graph<Integer> offHeap() {
+        try {
+            return (Graph<Integer>) Class.forName("P1.graph.OffHeapGraph").getConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("OffHeapGraph is only built by the offheap profile", e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[][] generated = Workloads.edges(edges, distribution, 42);
+        sources = generated[0];
+        targets = generated[1];
+        vertices = Workloads.vertices(edges);
+        graph = create(implementation);
+        for (int v = 0; v < vertices; v++) {
+            graph.add(v);
+        }
+        for (int i = 0; i < edges; i++) {
+            graph.set(sources[i], targets[i], 1);
+        }
+        random = new Random(7);
+        nextVertex = vertices;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        //OffHeapGraph的内存不由GC回收，每次试验结束时释放
+        if (graph instanceof AutoCloseable) {
+            ((AutoCloseable) graph).close();
+        }
+    }
+
+    /**
+     * 修改一条已有边的权值，图的大小保持不变
+     */
+    @Benchmark
+    public int setExisting() {
+        int i = random.nextInt(edges);
+        return graph.set(sources[i], targets[i], 1 + random.nextInt(100));
+    }
+
+    /**
+     * 删除一条已有边再把它加回去
+     */
+    @Benchmark
+    public int setRemoveAndRestore() {
+        int i = random.nextInt(edges);
+        int weight = graph.set(sources[i], targets[i], 0);
+        return graph.set(sources[i], targets[i], weight);
+    }
+
+    /**
+     * 加入一个新顶点，连一条入边和一条出边，再删除它
+     */
+    @Benchmark
+    public boolean addAndRemove() {
+        int vertex = nextVertex++;
+        graph.add(vertex);
+        int neighbour = Workloads.vertex(random, vertices, distribution);
+        graph.set(vertex, neighbour, 1);
+        graph.set(neighbour, vertex, 1);
+        return graph.remove(vertex);
+    }
+
+    @Benchmark
+    public void targets(Blackhole blackhole) {
+        blackhole.consume(graph.targets(Workloads.vertex(random, vertices, distribution)));
+    }
+
+    @Benchmark
+    public void sources(Blackhole blackhole) {
+        blackhole.consume(graph.sources(random.nextInt(vertices)));
+    }
+
+    @Benchmark
+    public void vertices(Blackhole blackhole) {
+        blackhole.consume(graph.vertices());
+    }
+}
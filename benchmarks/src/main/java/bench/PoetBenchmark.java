@@ -0,0 +1,89 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import P1.poet.GraphPoet;
+
+/**
+ * GraphPoet的端到端开销：由语料文件建立单词亲和图，以及用它生成诗。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PoetBenchmark {
+
+    //每首诗输入的单词数
+    private static final int INPUT_WORDS = 1000;
+    //批量生成时的诗的数量
+    private static final int BATCH_SIZE = 256;
+
+    @Param({"10000", "1000000"})
+    public int corpusWords;
+
+    @Param({"5000"})
+    public int vocabulary;
+
+    private File corpus;
+    private GraphPoet poet;
+    private String input;
+    private List<String> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = File.createTempFile("corpus", ".txt");
+        corpus.deleteOnExit();
+        Files.write(corpus.toPath(), Workloads.corpus(corpusWords, vocabulary, 42).getBytes(StandardCharsets.UTF_8));
+        poet = new GraphPoet(corpus);
+        Random random = new Random(7);
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < INPUT_WORDS; i++) {
+            words.append(i == 0 ? "" : " ").append('w').append(random.nextInt(vocabulary));
+        }
+        input = words.toString();
+        batch = Collections.nCopies(BATCH_SIZE, input);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        corpus.delete();
+    }
+
+    @Benchmark
+    public GraphPoet construct() throws IOException {
+        return new GraphPoet(corpus);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String poem() {
+        return poet.poem(input);
+    }
+
+    @Benchmark
+    public List<String> poemsSequential() {
+        List<String> poems = new ArrayList<>(BATCH_SIZE);
+        for (String each: batch) {
+            poems.add(poet.poem(each));
+        }
+        return poems;
+    }
+
+    @Benchmark
+    public List<String> poemsParallel() {
+        return poet.poems(batch, ForkJoinPool.commonPool());
+    }
+}
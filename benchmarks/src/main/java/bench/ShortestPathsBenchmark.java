@@ -0,0 +1,67 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import P1.graph.FrozenGraph;
+import P1.graph.GraphBuilder;
+import P1.graph.ShortestPaths;
+
+/**
+ * ShortestPaths点到点查询的开销，按边数和度分布参数化。目标是10^7条边的图上单次查询在毫秒量级。
+ *
+ * <p>边权在1到100之间均匀分布。随机的顶点对可能不可达，此时查询要遍历起点可达的全部顶点，是最坏情况。
+ * 10^7条边的图建图需要数GB的堆，例如
+ * <pre>
+ *     java -Xmx8g -jar target/benchmarks.jar ShortestPathsBenchmark -p edges=10000000
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShortestPathsBenchmark {
+
+    @Param({"100000", "1000000", "10000000"})
+    public int edges;
+
+    @Param({"uniform", "powerlaw"})
+    public String distribution;
+
+    private ShortestPaths<Integer> paths;
+    private int vertices;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        vertices = Workloads.vertices(edges);
+        int[][] generated = Workloads.edges(edges, distribution, 42);
+        Random weights = new Random(5);
+        GraphBuilder<Integer> builder = new GraphBuilder<>();
+        for (int v = 0; v < vertices; v++) {
+            builder.addVertex(v);
+        }
+        for (int i = 0; i < edges; i++) {
+            builder.addEdge(generated[0][i], generated[1][i], 1 + weights.nextInt(100));
+        }
+        FrozenGraph<Integer> graph = builder.build();
+        paths = new ShortestPaths<>(graph);
+        random = new Random(7);
+    }
+
+    @Benchmark
+    public long dijkstra() {
+        return paths.distance(random.nextInt(vertices), random.nextInt(vertices));
+    }
+
+    @Benchmark
+    public long aStarWithZeroEstimate() {
+        //估价恒为0时A*退化为Dijkstra，差值为调用估价函数的开销
+        return paths.shortestPath(random.nextInt(vertices), random.nextInt(vertices), v -> 0)
+                .map(ShortestPaths.Path::length).orElse(-1L);
+    }
+}
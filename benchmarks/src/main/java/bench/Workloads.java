@@ -0,0 +1,86 @@
+package bench;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 生成基准测试使用的随机图和语料。所有生成都由种子决定，同一组参数每次得到相同的数据。
+ */
+final class Workloads {
+
+    //平均出度
+    static final int AVERAGE_DEGREE = 8;
+
+    private Workloads() {
+    }
+
+    /**
+     * 获得给定边数的图的顶点数
+     * @param edges 边数
+     * @return  顶点数，使平均出度约为AVERAGE_DEGREE
+     */
+    static int vertices(int edges) {
+        return Math.max(16, edges / AVERAGE_DEGREE);
+    }
+
+    /**
+     * 按分布抽取一个顶点
+     * @param random        随机数发生器
+     * @param vertices      顶点数
+     * @param distribution  "uniform"为均匀分布；"powerlaw"为偏斜的幂律分布，编号小的顶点被抽中的概率大得多
+     * @return  顶点编号，0 <= 编号 < vertices
+     */
+    static int vertex(Random random, int vertices, String distribution) {
+        if ("powerlaw".equals(distribution)) {
+            double u = random.nextDouble();
+            return (int) (vertices * u * u * u);
+        }
+        return random.nextInt(vertices);
+    }
+
+    /**
+     * 生成不重复的有向边，不含自环
+     * @param edges         边数
+     * @param distribution  起点和终点的分布，见vertex()
+     * @param seed          随机数种子
+     * @return  {起点数组, 终点数组}
+     */
+    static int[][] edges(int edges, String distribution, long seed) {
+        int vertices = vertices(edges);
+        Random random = new Random(seed);
+        Set<Long> seen = new HashSet<>(edges * 2);
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        int count = 0;
+        while (count < edges) {
+            int source = vertex(random, vertices, distribution);
+            //终点总是均匀分布，否则幂律分布下头部顶点之间的边很快被用完
+            int target = random.nextInt(vertices);
+            if (source != target && seen.add((long) source << 32 | target)) {
+                sources[count] = source;
+                targets[count] = target;
+                count++;
+            }
+        }
+        return new int[][] {sources, targets};
+    }
+
+    /**
+     * 生成随机语料：单词按近似Zipf分布从词表中抽取，每行12个单词
+     * @param words         单词总数
+     * @param vocabulary    词表大小
+     * @param seed          随机数种子
+     * @return  语料文本
+     */
+    static String corpus(int words, int vocabulary, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(words * 7);
+        for (int i = 0; i < words; i++) {
+            double u = random.nextDouble();
+            text.append('w').append((int) (vocabulary * u * u * u));
+            text.append(i % 12 == 11 ? '\n' : ' ');
+        }
+        return text.toString();
+    }
+}
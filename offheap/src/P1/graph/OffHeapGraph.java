@@ -0,0 +1,735 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.*;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * An implementation of Graph whose edges are stored outside the Java heap,
+ * for graphs too large to keep as objects. Memory is released when the graph
+ * is closed, not by the garbage collector.
+ *
+ * <p>只有标签到编号的LabelDictionary在堆上，每个顶点的元数据和所有邻接表都在由Arena分配的MemorySegment中，
+ * 因此加入和修改边不创建任何Java对象，GC的工作量与边数无关。
+ * 出边表每项为(终点, 权值, 此边在终点入边表中的下标)共12字节，入边表每项为(起点, 此边在起点出边表中的下标)共8字节，
+ * 权值只保存在出边表中。两张表互相记录下标，因此删除边时可以用最后一项填补空位，代价为O(1)。
+ * 每个顶点的元数据为32字节：两张表各自的块地址、容量和长度，按每页PAGE_VERTICES个顶点分页分配。
+ *
+ * <p>邻接表的容量为MIN_CAPACITY乘以2的幂，写满时分配容量加倍的新块并复制，旧块按容量放入空闲链表，供之后的表复用。
+ * 块从大块内存（chunk）中顺序切出，chunk的大小从MIN_CHUNK_BYTES倍增到MAX_CHUNK_BYTES，比它大的块单独占一个chunk。
+ * Arena不能单独释放其中的一段内存，因此OffHeapGraph占用的内存只增不减，直到close()一次全部释放。
+ * 块地址的高32位为chunk的下标，低32位为块在chunk中的偏移。
+ *
+ * <p>set()和merge()在起点的出边表中线性查找终点，代价为O(出度)。
+ * 使用java.lang.foreign，需要JDK 22及以上，或JDK 21并启用--enable-preview，
+ * 因此不与src中按Java 17编译的代码放在一起，而是由benchmarks的offheap profile单独编译和测试。
+ * OffHeapGraph为mutable，不是线程安全的，但可以在外部同步下被不同的线程使用；
+ * close()之后，offHeapBytes()返回0，再次调用close()没有效果，其他方法都抛出IllegalStateException
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public final class OffHeapGraph<L> implements IndexedGraph<L>, AutoCloseable {
+
+    //检查RI需要遍历所有边，只在启用断言时进行
+    private static final boolean CHECK_REP = OffHeapGraph.class.desiredAssertionStatus();
+
+    //出边表每项的字节数和字段的偏移
+    private static final int TARGET_BYTES = 12;
+    private static final int WEIGHT_OFFSET = 4;
+    private static final int TARGET_SLOT_OFFSET = 8;
+    //入边表每项的字节数和字段的偏移
+    private static final int SOURCE_BYTES = 8;
+    private static final int SOURCE_SLOT_OFFSET = 4;
+
+    //元数据中出边表和入边表的偏移，以及每张表的地址、容量和长度在其中的偏移
+    private static final int META_BYTES = 32;
+    private static final int TARGETS = 0;
+    private static final int SOURCES = 16;
+    private static final int ADDRESS = 0;
+    private static final int CAPACITY = 8;
+    private static final int SIZE = 12;
+
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_VERTICES = 1 << PAGE_SHIFT;
+    private static final int MIN_CAPACITY = 4;
+    private static final long MIN_CHUNK_BYTES = 64L << 10;
+    private static final long MAX_CHUNK_BYTES = 64L << 20;
+    //空闲链表的结尾
+    private static final long NO_BLOCK = -1;
+
+    private final Arena arena = Arena.ofShared();
+    private final LabelDictionary<L> labels = new LabelDictionary<>();
+    private MemorySegment[] pages = new MemorySegment[0];
+    private MemorySegment[] chunks = new MemorySegment[0];
+    private int chunkCount = 0;
+    //最后一个chunk中已经切出的字节数
+    private long chunkUsed = 0;
+    private long nextChunkBytes = MIN_CHUNK_BYTES;
+    //freeTargets[k]和freeSources[k]为容量为MIN_CAPACITY << k的空闲块链表的头，块的前8字节为下一个空闲块的地址
+    private final long[] freeTargets = new long[Integer.SIZE];
+    private final long[] freeSources = new long[Integer.SIZE];
+    private long reservedBytes = 0;
+    private long edgeCount = 0;
+    private boolean closed = false;
+
+    // Abstraction function:
+    //   AF(labels, pages, chunks) = 一个以labels中的标签为顶点集的带权有向图，
+    //       从编号为s的顶点到编号为t的顶点有权值为w的有向边当且仅当s的出边表中有一项为(t, w, m)
+    // Representation invariant:
+    //   labels.label(v) != null 时pages[v >>> PAGE_SHIFT] != null，v的两张表的长度不超过容量，
+    //       容量为0或MIN_CAPACITY乘以2的幂，容量不为0时地址指向一个属于chunks的块
+    //   空闲编号的元数据全为0
+    //   出边表中的权值都为正整数，终点都是存在的顶点，同一张出边表中没有重复的终点
+    //   s的出边表第k项为(t, w, m) 当且仅当 t的入边表第m项为(s, k)
+    //   edgeCount为所有出边表的长度之和，reservedBytes为pages和chunks的总字节数
+    //   空闲链表中的块不被任何表使用
+    //   closed时arena已经关闭
+    // Safety from rep exposure:
+    //   所有数据都为private，MemorySegment不会被返回
+    //   vertices()、sources()和targets()返回防御性拷贝，基于编号的方法只返回int、新建的数组或不可变的标签
+
+    /**
+     * Create an empty graph. Its memory outside the heap is allocated as
+     * edges are added and released by {@link #close()}.
+     */
+    public OffHeapGraph() {
+        Arrays.fill(freeTargets, NO_BLOCK);
+        Arrays.fill(freeSources, NO_BLOCK);
+    }
+
+    /**
+     * 检测RI是否被保持
+     */
+    private void checkRep() {
+        if (!CHECK_REP) {
+            return;
+        }
+        long edges = 0;
+        for (int v = 0; v < labels.limit(); v++) {
+            if (labels.label(v) == null) {
+                continue;
+            }
+            assert size(v, TARGETS) <= capacity(v, TARGETS) && size(v, SOURCES) <= capacity(v, SOURCES);
+            for (int k = 0; k < size(v, TARGETS); k++) {
+                int t = targetAt(v, k);
+                int m = targetSlotAt(v, k);
+                assert weightAt(v, k) > 0;
+                assert labels.label(t) != null;
+                assert sourceAt(t, m) == v && sourceSlotAt(t, m) == k;
+            }
+            edges += size(v, TARGETS);
+        }
+        assert edges == edgeCount;
+    }
+
+    /**
+     * 检查图是否已经关闭
+     * @throws IllegalStateException    如果图已经关闭
+     */
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("graph is closed");
+        }
+    }
+
+    /**
+     * 检查编号是否对应一个存在的顶点
+     * @param id    编号
+     * @throws IllegalArgumentException 如果编号没有对应的顶点
+     */
+    private void checkId(int id) {
+        if (!present(id)) {
+            throw new IllegalArgumentException("no vertex with id " + id);
+        }
+    }
+
+    private boolean present(int id) {
+        return id >= 0 && id < labels.limit() && labels.label(id) != null;
+    }
+
+    private MemorySegment page(int id) {
+        return pages[id >>> PAGE_SHIFT];
+    }
+
+    private static long meta(int id, int row) {
+        return (long) (id & (PAGE_VERTICES - 1)) * META_BYTES + row;
+    }
+
+    private long address(int id, int row) {
+        return page(id).get(ValueLayout.JAVA_LONG, meta(id, row) + ADDRESS);
+    }
+
+    private int capacity(int id, int row) {
+        return page(id).get(ValueLayout.JAVA_INT, meta(id, row) + CAPACITY);
+    }
+
+    private int size(int id, int row) {
+        return page(id).get(ValueLayout.JAVA_INT, meta(id, row) + SIZE);
+    }
+
+    private void setSize(int id, int row, int size) {
+        page(id).set(ValueLayout.JAVA_INT, meta(id, row) + SIZE, size);
+    }
+
+    private MemorySegment chunk(long address) {
+        return chunks[(int) (address >>> 32)];
+    }
+
+    private static long offset(long address) {
+        return address & 0xFFFFFFFFL;
+    }
+
+    private static int entryBytes(int row) {
+        return row == TARGETS ? TARGET_BYTES : SOURCE_BYTES;
+    }
+
+    /**
+     * 获得出边表中一项的字段
+     * @param id    起点的编号
+     * @param k     出边表的下标
+     * @param field 字段的偏移
+     */
+    private int targetField(int id, int k, int field) {
+        long address = address(id, TARGETS);
+        return chunk(address).get(ValueLayout.JAVA_INT, offset(address) + (long) k * TARGET_BYTES + field);
+    }
+
+    private int targetAt(int id, int k) {
+        return targetField(id, k, 0);
+    }
+
+    private int weightAt(int id, int k) {
+        return targetField(id, k, WEIGHT_OFFSET);
+    }
+
+    private int targetSlotAt(int id, int k) {
+        return targetField(id, k, TARGET_SLOT_OFFSET);
+    }
+
+    /**
+     * 写出边表的一项
+     */
+    private void setTarget(int id, int k, int target, int weight, int slot) {
+        long address = address(id, TARGETS);
+        MemorySegment segment = chunk(address);
+        long entry = offset(address) + (long) k * TARGET_BYTES;
+        segment.set(ValueLayout.JAVA_INT, entry, target);
+        segment.set(ValueLayout.JAVA_INT, entry + WEIGHT_OFFSET, weight);
+        segment.set(ValueLayout.JAVA_INT, entry + TARGET_SLOT_OFFSET, slot);
+    }
+
+    private void setTargetField(int id, int k, int field, int value) {
+        long address = address(id, TARGETS);
+        chunk(address).set(ValueLayout.JAVA_INT, offset(address) + (long) k * TARGET_BYTES + field, value);
+    }
+
+    private int sourceAt(int id, int m) {
+        long address = address(id, SOURCES);
+        return chunk(address).get(ValueLayout.JAVA_INT, offset(address) + (long) m * SOURCE_BYTES);
+    }
+
+    private int sourceSlotAt(int id, int m) {
+        long address = address(id, SOURCES);
+        return chunk(address).get(ValueLayout.JAVA_INT, offset(address) + (long) m * SOURCE_BYTES + SOURCE_SLOT_OFFSET);
+    }
+
+    /**
+     * 写入边表的一项
+     */
+    private void setSource(int id, int m, int source, int slot) {
+        long address = address(id, SOURCES);
+        MemorySegment segment = chunk(address);
+        long entry = offset(address) + (long) m * SOURCE_BYTES;
+        segment.set(ValueLayout.JAVA_INT, entry, source);
+        segment.set(ValueLayout.JAVA_INT, entry + SOURCE_SLOT_OFFSET, slot);
+    }
+
+    /**
+     * 分配一个块，优先复用相同容量的空闲块
+     * @param row       块用于出边表（TARGETS）还是入边表（SOURCES）
+     * @param capacity  块的容量，MIN_CAPACITY乘以2的幂
+     * @return  块的地址
+     */
+    private long allocate(int row, int capacity) {
+        long[] free = row == TARGETS ? freeTargets : freeSources;
+        int sizeClass = Integer.numberOfTrailingZeros(capacity / MIN_CAPACITY);
+        if (free[sizeClass] != NO_BLOCK) {
+            long address = free[sizeClass];
+            free[sizeClass] = chunk(address).get(ValueLayout.JAVA_LONG, offset(address));
+            return address;
+        }
+        long bytes = (long) capacity * entryBytes(row);
+        if (chunkCount == 0 || chunkUsed + bytes > chunks[chunkCount - 1].byteSize()) {
+            long chunkBytes = Math.max(nextChunkBytes, bytes);
+            if (chunkBytes > Integer.MAX_VALUE) {
+                throw new OutOfMemoryError("adjacency list of " + capacity + " edges is too large");
+            }
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(4, chunkCount * 2));
+            }
+            //上一个chunk剩余的空间不再使用
+            chunks[chunkCount++] = arena.allocate(chunkBytes, Long.BYTES);
+            reservedBytes += chunkBytes;
+            chunkUsed = 0;
+            nextChunkBytes = Math.min(nextChunkBytes * 2, MAX_CHUNK_BYTES);
+        }
+        long address = ((long) (chunkCount - 1) << 32) | chunkUsed;
+        chunkUsed += bytes;
+        return address;
+    }
+
+    /**
+     * 把不再使用的块放入空闲链表
+     * @param row       块用于出边表还是入边表
+     * @param address   块的地址
+     * @param capacity  块的容量
+     */
+    private void release(int row, long address, int capacity) {
+        long[] free = row == TARGETS ? freeTargets : freeSources;
+        int sizeClass = Integer.numberOfTrailingZeros(capacity / MIN_CAPACITY);
+        chunk(address).set(ValueLayout.JAVA_LONG, offset(address), free[sizeClass]);
+        free[sizeClass] = address;
+    }
+
+    /**
+     * 保证一张表还能再加入一项，写满时换成容量加倍的块
+     * @param id    顶点的编号
+     * @param row   出边表（TARGETS）或入边表（SOURCES）
+     */
+    private void reserve(int id, int row) {
+        int size = size(id, row);
+        int capacity = capacity(id, row);
+        if (size < capacity) {
+            return;
+        }
+        int grown = capacity == 0 ? MIN_CAPACITY : capacity * 2;
+        long address = allocate(row, grown);
+        if (capacity > 0) {
+            long old = address(id, row);
+            MemorySegment.copy(chunk(old), offset(old), chunk(address), offset(address), (long) size * entryBytes(row));
+            release(row, old, capacity);
+        }
+        MemorySegment page = page(id);
+        page.set(ValueLayout.JAVA_LONG, meta(id, row) + ADDRESS, address);
+        page.set(ValueLayout.JAVA_INT, meta(id, row) + CAPACITY, grown);
+    }
+
+    /**
+     * 在出边表中查找一条边
+     * @param source    起点的编号
+     * @param target    终点的编号
+     * @return  边在出边表中的下标；如果边不存在，返回-1
+     */
+    private int find(int source, int target) {
+        int size = size(source, TARGETS);
+        if (size == 0) {
+            return -1;
+        }
+        long address = address(source, TARGETS);
+        MemorySegment segment = chunk(address);
+        long base = offset(address);
+        for (int k = 0; k < size; k++) {
+            if (segment.get(ValueLayout.JAVA_INT, base + (long) k * TARGET_BYTES) == target) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 加入一条原先不存在的边，两个顶点都必须存在
+     */
+    private void appendEdge(int source, int target, int weight) {
+        reserve(source, TARGETS);
+        reserve(target, SOURCES);
+        int k = size(source, TARGETS);
+        int m = size(target, SOURCES);
+        setTarget(source, k, target, weight, m);
+        setSource(target, m, source, k);
+        setSize(source, TARGETS, k + 1);
+        setSize(target, SOURCES, m + 1);
+        edgeCount++;
+    }
+
+    /**
+     * 删除起点的出边表中的第k条边
+     */
+    private void removeEdgeAt(int source, int k) {
+        //先删除入边表中的项，再删除出边表中的项，使被移动的项的反向下标保持正确
+        removeSourceSlot(targetAt(source, k), targetSlotAt(source, k));
+        removeTargetSlot(source, k);
+        edgeCount--;
+    }
+
+    /**
+     * 从target的入边表中删除第m项，用最后一项填补空位，并更新被移动的边在出边表中的反向下标
+     */
+    private void removeSourceSlot(int target, int m) {
+        int last = size(target, SOURCES) - 1;
+        if (m != last) {
+            int moved = sourceAt(target, last);
+            int k = sourceSlotAt(target, last);
+            setSource(target, m, moved, k);
+            setTargetField(moved, k, TARGET_SLOT_OFFSET, m);
+        }
+        setSize(target, SOURCES, last);
+    }
+
+    /**
+     * 从source的出边表中删除第k项，用最后一项填补空位，并更新被移动的边在入边表中的反向下标
+     */
+    private void removeTargetSlot(int source, int k) {
+        int last = size(source, TARGETS) - 1;
+        if (k != last) {
+            int moved = targetAt(source, last);
+            int weight = weightAt(source, last);
+            int m = targetSlotAt(source, last);
+            setTarget(source, k, moved, weight, m);
+            setSource(moved, m, source, k);
+        }
+        setSize(source, TARGETS, last);
+    }
+
+    /**
+     * 加入或修改一条边，两个顶点都必须存在
+     * @param weight    正的权值
+     * @return  边原来的权值；如果边不存在，返回0
+     */
+    private int putEdge(int source, int target, int weight) {
+        int k = find(source, target);
+        if (k < 0) {
+            appendEdge(source, target, weight);
+            return 0;
+        }
+        int previousWeight = weightAt(source, k);
+        setTargetField(source, k, WEIGHT_OFFSET, weight);
+        return previousWeight;
+    }
+
+    /**
+     * 删除一条边，两个顶点都必须存在
+     * @return  边原来的权值；如果边不存在，返回0
+     */
+    private int removeEdge(int source, int target) {
+        int k = find(source, target);
+        if (k < 0) {
+            return 0;
+        }
+        int previousWeight = weightAt(source, k);
+        removeEdgeAt(source, k);
+        return previousWeight;
+    }
+
+    @Override public int intern(L vertex) {
+        ensureOpen();
+        int id = labels.id(vertex);
+        if (id >= 0) {
+            return id;
+        }
+        id = labels.intern(vertex);
+        int page = id >>> PAGE_SHIFT;
+        if (page >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(page + 1, pages.length * 2));
+        }
+        if (pages[page] == null) {
+            //新分配的内存全为0，即两张表的容量和长度都为0
+            pages[page] = arena.allocate((long) PAGE_VERTICES * META_BYTES, Long.BYTES);
+            reservedBytes += (long) PAGE_VERTICES * META_BYTES;
+        }
+        return id;
+    }
+
+    @Override public int id(L vertex) {
+        ensureOpen();
+        return labels.id(vertex);
+    }
+
+    @Override public L label(int id) {
+        ensureOpen();
+        return labels.label(id);
+    }
+
+    @Override public int idLimit() {
+        ensureOpen();
+        return labels.limit();
+    }
+
+    @Override public boolean add(L vertex) {
+        ensureOpen();
+        if (labels.id(vertex) >= 0) {
+            return false;
+        }
+        intern(vertex);
+        checkRep();
+        return true;
+    }
+
+    @Override public int set(L source, L target, int weight) {
+        ensureOpen();
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight + " for edge " + source + "->" + target);
+        }
+        int previousWeight;
+        if (weight == 0) {
+            int sourceId = labels.id(source);
+            int targetId = labels.id(target);
+            if (sourceId < 0 || targetId < 0) {
+                return 0;
+            }
+            previousWeight = removeEdge(sourceId, targetId);
+        } else {
+            previousWeight = putEdge(intern(source), intern(target), weight);
+        }
+        checkRep();
+        return previousWeight;
+    }
+
+    @Override public int setById(int sourceId, int targetId, int weight) {
+        ensureOpen();
+        checkId(sourceId);
+        checkId(targetId);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight);
+        }
+        int previousWeight = weight == 0 ? removeEdge(sourceId, targetId) : putEdge(sourceId, targetId, weight);
+        checkRep();
+        return previousWeight;
+    }
+
+    @Override public int merge(L source, L target, int delta, IntBinaryOperator function) {
+        ensureOpen();
+        int sourceId = labels.id(source);
+        int targetId = labels.id(target);
+        int k = sourceId >= 0 && targetId >= 0 ? find(sourceId, targetId) : -1;
+        int previousWeight = k >= 0 ? weightAt(sourceId, k) : 0;
+        int weight = function.applyAsInt(previousWeight, delta);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight + " for edge " + source + "->" + target);
+        }
+        if (weight == 0) {
+            if (k >= 0) {
+                removeEdgeAt(sourceId, k);
+            }
+        } else if (k >= 0) {
+            setTargetField(sourceId, k, WEIGHT_OFFSET, weight);
+        } else {
+            appendEdge(intern(source), intern(target), weight);
+        }
+        checkRep();
+        return weight;
+    }
+
+    @Override public boolean remove(L vertex) {
+        ensureOpen();
+        int id = labels.id(vertex);
+        if (id < 0) {
+            return false;
+        }
+        //每次删除最后一项，不需要移动其他项，代价为O(入度 + 出度)
+        for (int k = size(id, TARGETS) - 1; k >= 0; k = size(id, TARGETS) - 1) {
+            removeEdgeAt(id, k);
+        }
+        for (int m = size(id, SOURCES) - 1; m >= 0; m = size(id, SOURCES) - 1) {
+            removeEdgeAt(sourceAt(id, m), sourceSlotAt(id, m));
+        }
+        for (int row : new int[] { TARGETS, SOURCES }) {
+            int capacity = capacity(id, row);
+            if (capacity > 0) {
+                release(row, address(id, row), capacity);
+            }
+        }
+        page(id).asSlice(meta(id, TARGETS), META_BYTES).fill((byte) 0);
+        labels.remove(vertex);
+        checkRep();
+        return true;
+    }
+
+    @Override public Set<L> vertices() {
+        ensureOpen();
+        return new HashSet<>(labels.labels());
+    }
+
+    @Override public Map<L, Integer> sources(L target) {
+        ensureOpen();
+        int id = labels.id(target);
+        Map<L, Integer> copy = new HashMap<>();
+        if (id >= 0) {
+            forEachSourceById(id, (source, weight) -> copy.put(labels.label(source), weight));
+        }
+        return copy;
+    }
+
+    @Override public Map<L, Integer> targets(L source) {
+        ensureOpen();
+        int id = labels.id(source);
+        Map<L, Integer> copy = new HashMap<>();
+        if (id >= 0) {
+            forEachTargetById(id, (target, weight) -> copy.put(labels.label(target), weight));
+        }
+        return copy;
+    }
+
+    @Override public void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+        ensureOpen();
+        int id = labels.id(source);
+        if (id >= 0) {
+            forEachTargetById(id, (target, weight) -> visitor.visit(labels.label(target), weight));
+        }
+    }
+
+    @Override public void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+        ensureOpen();
+        int id = labels.id(target);
+        if (id >= 0) {
+            forEachSourceById(id, (source, weight) -> visitor.visit(labels.label(source), weight));
+        }
+    }
+
+    @Override public int weightById(int sourceId, int targetId) {
+        ensureOpen();
+        if (!present(sourceId)) {
+            return 0;
+        }
+        int k = find(sourceId, targetId);
+        return k < 0 ? 0 : weightAt(sourceId, k);
+    }
+
+    @Override public int[] targetsById(int sourceId) {
+        ensureOpen();
+        if (!present(sourceId)) {
+            return new int[0];
+        }
+        int[] ids = new int[size(sourceId, TARGETS)];
+        for (int k = 0; k < ids.length; k++) {
+            ids[k] = targetAt(sourceId, k);
+        }
+        return ids;
+    }
+
+    @Override public int[] sourcesById(int targetId) {
+        ensureOpen();
+        if (!present(targetId)) {
+            return new int[0];
+        }
+        int[] ids = new int[size(targetId, SOURCES)];
+        for (int m = 0; m < ids.length; m++) {
+            ids[m] = sourceAt(targetId, m);
+        }
+        return ids;
+    }
+
+    @Override public void forEachTargetById(int sourceId, IdEdgeVisitor visitor) {
+        ensureOpen();
+        if (!present(sourceId)) {
+            return;
+        }
+        int size = size(sourceId, TARGETS);
+        if (size == 0) {
+            return;
+        }
+        long address = address(sourceId, TARGETS);
+        MemorySegment segment = chunk(address);
+        long base = offset(address);
+        for (int k = 0; k < size; k++) {
+            long entry = base + (long) k * TARGET_BYTES;
+            visitor.visit(segment.get(ValueLayout.JAVA_INT, entry), segment.get(ValueLayout.JAVA_INT, entry + WEIGHT_OFFSET));
+        }
+    }
+
+    @Override public void forEachSourceById(int targetId, IdEdgeVisitor visitor) {
+        ensureOpen();
+        if (!present(targetId)) {
+            return;
+        }
+        for (int m = 0; m < size(targetId, SOURCES); m++) {
+            int source = sourceAt(targetId, m);
+            visitor.visit(source, weightAt(source, sourceSlotAt(targetId, m)));
+        }
+    }
+
+    /**
+     * Get the amount of memory outside the heap that this graph holds.
+     *
+     * @return the number of bytes allocated for the vertices and edges of
+     *         this graph, including space freed by removals and kept for
+     *         reuse; 0 after the graph is closed
+     */
+    public long offHeapBytes() {
+        return closed ? 0 : reservedBytes;
+    }
+
+    /**
+     * Release the memory outside the heap that holds the vertices and edges
+     * of this graph. Afterwards every method other than close() and
+     * offHeapBytes() throws IllegalStateException. Calling this method more
+     * than once has no effect.
+     */
+    @Override public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pages = new MemorySegment[0];
+        chunks = new MemorySegment[0];
+        arena.close();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>顶点按编号的顺序写出，边按起点的编号、再按加入出边表的顺序写出。
+     */
+    @Override public void writeTo(Appendable out) throws IOException {
+        ensureOpen();
+        out.append("vertices{");
+        boolean first = true;
+        for (int v = 0; v < labels.limit(); v++) {
+            if (labels.label(v) != null) {
+                if (!first) {
+                    out.append(",");
+                }
+                out.append(String.valueOf(labels.label(v)));
+                first = false;
+            }
+        }
+        out.append("};edges{");
+        first = true;
+        for (int s = 0; s < labels.limit(); s++) {
+            if (labels.label(s) == null) {
+                continue;
+            }
+            String source = String.valueOf(labels.label(s));
+            for (int k = 0; k < size(s, TARGETS); k++) {
+                if (!first) {
+                    out.append(",");
+                }
+                out.append(source).append("-").append(String.valueOf(weightAt(s, k)))
+                        .append("->").append(String.valueOf(labels.label(targetAt(s, k))));
+                first = false;
+            }
+        }
+        out.append("}");
+    }
+
+    /**
+     * 返回图的字符串表示
+     * @return 图的字符串表示，与writeTo()写出的内容相同
+     */
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder();
+        try {
+            writeTo(string);
+        } catch (IOException e) {
+            //StringBuilder不会抛出IOException
+            throw new AssertionError(e);
+        }
+        return string.toString();
+    }
+}
@@ -0,0 +1,138 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for OffHeapGraph.
+ *
+ * <p>This class runs the IndexedGraphInstanceTest tests against
+ * OffHeapGraph, as well as tests of its memory outside the heap.
+ */
+public class OffHeapGraphTest extends IndexedGraphInstanceTest {
+
+    // Testing strategy for memory
+    //   offHeapBytes(): 空图、加边后、删除边再加回后不增加、关闭后
+    //   邻接表扩容：一个顶点的出度和入度超过最小容量的多倍
+    //   close(): 重复关闭；关闭后调用offHeapBytes()、其他方法、Graph的默认方法
+
+    private final List<OffHeapGraph<String>> opened = new ArrayList<>();
+
+    @Override public IndexedGraph<String> emptyInstance() {
+        OffHeapGraph<String> graph = new OffHeapGraph<>();
+        opened.add(graph);
+        return graph;
+    }
+
+    @After
+    public void closeGraphs() {
+        for (OffHeapGraph<String> graph : opened) {
+            graph.close();
+        }
+    }
+
+    @Test
+    public void testGrowingAndShrinkingRows() {
+        Graph<String> graph = emptyInstance();
+        for (int i = 0; i < 100; i++) {
+            graph.set("hub", "t" + i, i + 1);
+            graph.set("s" + i, "hub", i + 1);
+        }
+        assertEquals(100, graph.targets("hub").size());
+        assertEquals(100, graph.sources("hub").size());
+        for (int i = 0; i < 100; i += 2) {
+            graph.set("hub", "t" + i, 0);
+            assertTrue(graph.remove("s" + i));
+        }
+        Map<String, Integer> targets = graph.targets("hub");
+        assertEquals(50, targets.size());
+        assertEquals(Integer.valueOf(100), targets.get("t99"));
+        assertEquals(Map.of("hub", 2), graph.targets("s1"));
+        assertEquals(Integer.valueOf(2), graph.sources("hub").get("s1"));
+        assertFalse(graph.vertices().contains("s0"));
+    }
+
+    @Test
+    public void testOffHeapBytesReusedAfterRemoval() {
+        OffHeapGraph<String> graph = new OffHeapGraph<>();
+        opened.add(graph);
+        assertEquals(0, graph.offHeapBytes());
+        for (int i = 0; i < 1000; i++) {
+            graph.set("v" + i, "v" + (i + 1), 1);
+        }
+        long reserved = graph.offHeapBytes();
+        assertTrue(reserved > 0);
+        for (int i = 0; i < 1000; i++) {
+            graph.set("v" + i, "v" + (i + 1), 0);
+        }
+        for (int i = 0; i < 1000; i++) {
+            graph.set("v" + i, "v" + (i + 1), 2);
+        }
+        assertEquals(reserved, graph.offHeapBytes());
+    }
+
+    @Test
+    public void testCloseReleasesMemory() {
+        OffHeapGraph<String> graph = new OffHeapGraph<>();
+        graph.set("a", "b", 1);
+        graph.close();
+        graph.close();
+        assertEquals(0, graph.offHeapBytes());
+        try {
+            graph.vertices();
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            //关闭后不能再访问
+        }
+        try {
+            graph.add("c");
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            //关闭后不能再修改
+        }
+        try {
+            graph.freeze();
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            //Graph的默认方法也通过被关闭的方法访问图
+        }
+    }
+
+    @Test
+    public void testMatchesIndexedGraph() {
+        Graph<String> expected = Graph.indexed();
+        Graph<String> graph = emptyInstance();
+        Random random = new Random(5);
+        for (int i = 0; i < 5000; i++) {
+            String source = "v" + random.nextInt(50);
+            String target = "v" + random.nextInt(50);
+            switch (random.nextInt(4)) {
+                case 0:
+                    assertEquals(expected.set(source, target, 0), graph.set(source, target, 0));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(source), graph.remove(source));
+                    break;
+                default:
+                    int weight = 1 + random.nextInt(9);
+                    assertEquals(expected.increment(source, target, weight), graph.increment(source, target, weight));
+            }
+        }
+        assertEquals(expected.vertices(), graph.vertices());
+        for (String vertex : expected.vertices()) {
+            assertEquals(expected.targets(vertex), graph.targets(vertex));
+            assertEquals(expected.sources(vertex), graph.sources(vertex));
+        }
+        assertEquals(expected.vertices(), graph.freeze().vertices());
+    }
+}
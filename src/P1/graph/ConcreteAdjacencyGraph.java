@@ -0,0 +1,435 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * An implementation of Graph.
+ *
+ * <p>以哈希邻接表表示的带权有向图：同时维护正向（出边）和反向（入边）邻接表，
+ * set()的期望时间为O(1)，sources()和targets()的期望时间为O(度数)。
+ * 顶点标签由LabelDictionary映射为稠密的编号，邻接表是以编号为键、以权值为值的原始类型哈希表，
+ * 因此每次调用只对标签做一次哈希查找，遍历和修改邻接表时不计算标签的哈希值，也不装箱权值。
+ */
+public class ConcreteAdjacencyGraph<L> implements P1.graph.IndexedGraph<L> {
+
+    //检查RI需要遍历所有边，只在启用断言时进行
+    private static final boolean CHECK_REP = ConcreteAdjacencyGraph.class.desiredAssertionStatus();
+
+    private final LabelDictionary<L> labels = new LabelDictionary<>();
+    private IntIntMap[] targets = new IntIntMap[16];
+    private IntIntMap[] sources = new IntIntMap[16];
+    private final boolean views;
+
+    // Abstraction function:
+    //   AF(labels, targets, sources) = 一个以labels中的标签为顶点集的带权有向图，
+    //                          从编号为s的顶点到编号为t的顶点有权值为w的有向边当且仅当targets[s].get(t)==w
+    // Representation invariant:
+    //   targets.length == sources.length >= labels.limit()
+    //   labels.label(v) != null 当且仅当 targets[v] != null 当且仅当 sources[v] != null
+    //   所有权值都为正整数，邻接表中的键都是存在的顶点的编号
+    //   targets[s].get(t)==w 当且仅当 sources[t].get(s)==w
+    // Safety from rep exposure:
+    //   所有数据都为private
+    //   非视图模式下，vertices()方法在返回Set之前使用防御性拷贝，
+    //   sources()方法和targets()方法在返回Map之前使用防御性拷贝
+    //   视图模式下，上述方法返回不可修改的视图，客户端无法通过视图修改rep
+    //   基于编号的方法只返回int、新建的数组或不可变的标签
+
+    public ConcreteAdjacencyGraph() {
+        this(false);
+    }
+
+    /**
+     * 创建一个空图
+     * @param views 为true时使用视图模式：vertices()、sources()和targets()返回反映图的后续修改的
+     *              不可修改视图，而不是防御性拷贝，因此调用时不分配新的集合；
+     *              对图中不存在的顶点，sources()和targets()返回空Map，它不反映之后的修改
+     */
+    public ConcreteAdjacencyGraph(boolean views) {
+        this.views = views;
+    }
+
+    /**
+     * 检测RI是否被保持
+     */
+    private void checkRep() {
+        if (!CHECK_REP) {
+            return;
+        }
+        assert targets.length == sources.length && targets.length >= labels.limit();
+        for (int v = 0; v < labels.limit(); v++) {
+            boolean present = labels.label(v) != null;
+            assert (targets[v] != null) == present && (sources[v] != null) == present;
+            if (present) {
+                int source = v;
+                targets[v].forEach((target, weight) -> {
+                    assert weight > 0;
+                    assert sources[target] != null && sources[target].get(source) == weight;
+                });
+            }
+        }
+    }
+
+    /**
+     * 检查编号是否对应一个存在的顶点
+     * @param id    编号
+     * @throws IllegalArgumentException 如果编号没有对应的顶点
+     */
+    private void checkId(int id) {
+        if (id < 0 || id >= labels.limit() || targets[id] == null) {
+            throw new IllegalArgumentException("no vertex with id " + id);
+        }
+    }
+
+    @Override public int intern(L vertex) {
+        int id = labels.id(vertex);
+        if (id >= 0) {
+            return id;
+        }
+        id = labels.intern(vertex);
+        if (id >= targets.length) {
+            targets = Arrays.copyOf(targets, Math.max(id + 1, targets.length * 2));
+            sources = Arrays.copyOf(sources, targets.length);
+        }
+        targets[id] = new IntIntMap();
+        sources[id] = new IntIntMap();
+        return id;
+    }
+
+    @Override public int id(L vertex) {
+        return labels.id(vertex);
+    }
+
+    @Override public L label(int id) {
+        return labels.label(id);
+    }
+
+    @Override public int idLimit() {
+        return labels.limit();
+    }
+
+    @Override public boolean add(L vertex) {
+        if (labels.id(vertex) >= 0) {
+            return false;
+        }
+        intern(vertex);
+        checkRep();
+        return true;
+    }
+
+    /**
+     * 加入或修改一条边，两个顶点都必须存在
+     * @param source    起点的编号
+     * @param target    终点的编号
+     * @param weight    正的权值
+     * @return  边原来的权值；如果边不存在，返回0
+     */
+    private int putEdge(int source, int target, int weight) {
+        int previousWeight = targets[source].put(target, weight);
+        sources[target].put(source, weight);
+        return previousWeight;
+    }
+
+    /**
+     * 删除一条边，两个顶点都必须存在
+     * @param source    起点的编号
+     * @param target    终点的编号
+     * @return  边原来的权值；如果边不存在，返回0
+     */
+    private int removeEdge(int source, int target) {
+        int previousWeight = targets[source].remove(target);
+        if (previousWeight != 0) {
+            sources[target].remove(source);
+        }
+        return previousWeight;
+    }
+
+    @Override public int set(L source, L target, int weight) {
+        int previousWeight;
+        if (weight == 0) {
+            int sourceId = labels.id(source);
+            int targetId = labels.id(target);
+            if (sourceId < 0 || targetId < 0) {
+                return 0;
+            }
+            previousWeight = removeEdge(sourceId, targetId);
+        } else {
+            previousWeight = putEdge(intern(source), intern(target), weight);
+        }
+        checkRep();
+        return previousWeight;
+    }
+
+    @Override public int setById(int sourceId, int targetId, int weight) {
+        checkId(sourceId);
+        checkId(targetId);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight);
+        }
+        int previousWeight = weight == 0 ? removeEdge(sourceId, targetId) : putEdge(sourceId, targetId, weight);
+        checkRep();
+        return previousWeight;
+    }
+
+    @Override public int merge(L source, L target, int delta, IntBinaryOperator function) {
+        int sourceId = labels.id(source);
+        int targetId = labels.id(target);
+        int previousWeight = sourceId >= 0 && targetId >= 0 ? targets[sourceId].get(targetId) : 0;
+        int weight = function.applyAsInt(previousWeight, delta);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight + " for edge " + source + "->" + target);
+        }
+        if (weight == 0) {
+            if (previousWeight != 0) {
+                removeEdge(sourceId, targetId);
+                checkRep();
+            }
+            return 0;
+        }
+        if (sourceId < 0) {
+            sourceId = intern(source);
+        }
+        if (targetId < 0) {
+            targetId = intern(target);
+        }
+        putEdge(sourceId, targetId, weight);
+        checkRep();
+        return weight;
+    }
+
+    @Override public boolean remove(L vertex) {
+        int id = labels.id(vertex);
+        if (id < 0) {
+            return false;
+        }
+        IntIntMap out = targets[id];
+        IntIntMap in = sources[id];
+        //只访问与该顶点相邻的顶点
+        out.forEach((target, weight) -> {
+            if (target != id) {
+                sources[target].remove(id);
+            }
+        });
+        in.forEach((source, weight) -> {
+            if (source != id) {
+                targets[source].remove(id);
+            }
+        });
+        //清空被删除顶点的邻接表，使该顶点已有的视图反映删除
+        out.clear();
+        in.clear();
+        targets[id] = null;
+        sources[id] = null;
+        labels.remove(vertex);
+        checkRep();
+        return true;
+    }
+
+    @Override public Set<L> vertices() {
+        if (views) {
+            return labels.labels();
+        }
+        return new HashSet<>(labels.labels());
+    }
+
+    @Override public Map<L, Integer> sources(L target) {
+        int id = labels.id(target);
+        return adjacency(id < 0 ? null : sources[id]);
+    }
+
+    @Override public Map<L, Integer> targets(L source) {
+        int id = labels.id(source);
+        return adjacency(id < 0 ? null : targets[id]);
+    }
+
+    /**
+     * 按照当前模式返回一个顶点的邻接表
+     * @param adjacency 顶点的邻接表，顶点不存在时为null
+     * @return  视图模式下为不可修改的视图，否则为防御性拷贝
+     */
+    private Map<L, Integer> adjacency(IntIntMap adjacency) {
+        if (adjacency == null) {
+            return views ? Collections.emptyMap() : new HashMap<>();
+        }
+        if (views) {
+            return new AdjacencyView(adjacency);
+        }
+        Map<L, Integer> copy = new HashMap<>(adjacency.size() * 4 / 3 + 1);
+        adjacency.forEach((vertex, weight) -> copy.put(labels.label(vertex), weight));
+        return copy;
+    }
+
+    @Override public void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+        int id = labels.id(source);
+        if (id >= 0) {
+            targets[id].forEach((target, weight) -> visitor.visit(labels.label(target), weight));
+        }
+    }
+
+    @Override public void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+        int id = labels.id(target);
+        if (id >= 0) {
+            sources[id].forEach((source, weight) -> visitor.visit(labels.label(source), weight));
+        }
+    }
+
+    @Override public int weightById(int sourceId, int targetId) {
+        if (sourceId < 0 || sourceId >= labels.limit() || targets[sourceId] == null) {
+            return 0;
+        }
+        return targets[sourceId].get(targetId);
+    }
+
+    @Override public int[] targetsById(int sourceId) {
+        if (sourceId < 0 || sourceId >= labels.limit() || targets[sourceId] == null) {
+            return new int[0];
+        }
+        return targets[sourceId].keys();
+    }
+
+    @Override public int[] sourcesById(int targetId) {
+        if (targetId < 0 || targetId >= labels.limit() || sources[targetId] == null) {
+            return new int[0];
+        }
+        return sources[targetId].keys();
+    }
+
+    @Override public void forEachTargetById(int sourceId, IdEdgeVisitor visitor) {
+        if (sourceId >= 0 && sourceId < labels.limit() && targets[sourceId] != null) {
+            targets[sourceId].forEach(visitor);
+        }
+    }
+
+    @Override public void forEachSourceById(int targetId, IdEdgeVisitor visitor) {
+        if (targetId >= 0 && targetId < labels.limit() && sources[targetId] != null) {
+            sources[targetId].forEach(visitor);
+        }
+    }
+
+    /**
+     * 一个顶点的邻接表上的不可修改视图，键为另一端顶点的标签，值为边的权值
+     */
+    private final class AdjacencyView extends AbstractMap<L, Integer> {
+
+        private final IntIntMap adjacency;
+
+        AdjacencyView(IntIntMap adjacency) {
+            this.adjacency = adjacency;
+        }
+
+        @Override public int size() {
+            return adjacency.size();
+        }
+
+        @Override public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override public Integer get(Object key) {
+            int id = labels.id(key);
+            if (id < 0) {
+                return null;
+            }
+            int weight = adjacency.get(id);
+            return weight == 0 ? null : weight;
+        }
+
+        @Override public Set<Map.Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override public int size() {
+                    return adjacency.size();
+                }
+
+                @Override public Iterator<Map.Entry<L, Integer>> iterator() {
+                    return new Iterator<Map.Entry<L, Integer>>() {
+                        private int index = advance(0);
+
+                        /**
+                         * 找到从某个位置开始的第一个非空位置
+                         */
+                        private int advance(int from) {
+                            while (from < adjacency.capacity() && adjacency.keyAt(from) < 0) {
+                                from++;
+                            }
+                            return from;
+                        }
+
+                        @Override public boolean hasNext() {
+                            return index < adjacency.capacity();
+                        }
+
+                        @Override public Map.Entry<L, Integer> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<L, Integer> entry = new AbstractMap.SimpleImmutableEntry<>(
+                                    labels.label(adjacency.keyAt(index)), adjacency.valueAt(index));
+                            index = advance(index + 1);
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>顶点和边按编号的顺序写出。
+     */
+    @Override public void writeTo(Appendable out) throws IOException {
+        out.append("vertices{");
+        boolean first = true;
+        for (int v = 0; v < labels.limit(); v++) {
+            if (targets[v] != null) {
+                if (!first) {
+                    out.append(",");
+                }
+                out.append(String.valueOf(labels.label(v)));
+                first = false;
+            }
+        }
+        out.append("};edges{");
+        first = true;
+        for (int s = 0; s < labels.limit(); s++) {
+            IntIntMap row = targets[s];
+            if (row == null) {
+                continue;
+            }
+            String source = String.valueOf(labels.label(s));
+            for (int i = 0; i < row.capacity(); i++) {
+                if (row.keyAt(i) >= 0) {
+                    if (!first) {
+                        out.append(",");
+                    }
+                    out.append(source).append("-").append(String.valueOf(row.valueAt(i)))
+                            .append("->").append(String.valueOf(labels.label(row.keyAt(i))));
+                    first = false;
+                }
+            }
+        }
+        out.append("}");
+    }
+
+    /**
+     * 返回图的字符串表示
+     * @return 图的字符串表示，与writeTo()写出的内容相同
+     */
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder();
+        try {
+            writeTo(string);
+        } catch (IOException e) {
+            //StringBuilder不会抛出IOException
+            throw new AssertionError(e);
+        }
+        return string.toString();
+    }
+}
@@ -3,7 +3,9 @@
  */
 package P1.graph;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.function.IntBinaryOperator;
 
 /**
  * An implementation of Graph.
@@ -14,6 +16,7 @@ public class ConcreteEdgesGraph<L> implements P1.graph.Graph<L> {
     
     private final Set<L> vertices = new HashSet<>();
     private final List<Edge<L>> edges = new ArrayList<>();
+    private final boolean views;
     
     // Abstraction function:
     //  AF(vertices, edges) = 一个由vertices中的所有顶点和edges中的所有加权边构成的带权有向图
@@ -22,12 +25,22 @@ public class ConcreteEdgesGraph<L> implements P1.graph.Graph<L> {
     //  edges中的边都是权值为正数且为int类型的有向边，所有边的顶点都在vertices中
     // Safety from rep exposure:
     //   所有数据都为private
-    //   vertices为可变数据类型，vertices()方法在返回Set之前使用防御性拷贝
-    //   sources()方法和targets()方法在返回Map之前使用防御性拷贝
+    //   vertices为可变数据类型，非视图模式下vertices()方法在返回Set之前使用防御性拷贝
+    //   非视图模式下sources()方法和targets()方法在返回Map之前使用防御性拷贝
+    //   视图模式下上述方法返回不可修改的视图，客户端无法通过视图修改rep
     
     // TODO constructor
     public ConcreteEdgesGraph() {
+        this(false);
+    }
 
+    /**
+     * 创建一个空图
+     * @param views 为true时使用视图模式：vertices()、sources()和targets()返回反映图的后续修改的
+     *              不可修改视图，而不是防御性拷贝，因此调用时不分配新的集合
+     */
+    public ConcreteEdgesGraph(boolean views) {
+        this.views = views;
     }
 
 
@@ -92,17 +105,101 @@ public class ConcreteEdgesGraph<L> implements P1.graph.Graph<L> {
 
     }
     
+    @Override public int merge(L source, L target, int delta, IntBinaryOperator function) {
+        for (int i = 0; i < edges.size(); i++) {
+            Edge<L> edge = edges.get(i);
+            if (edge.getSource().equals(source) && edge.getTarget().equals(target)) {
+                //边存在，原地替换而不是删除后重新追加
+                int weight = function.applyAsInt(edge.getWeight(), delta);
+                if (weight < 0) {
+                    throw new IllegalArgumentException("negative weight " + weight + " for edge " + source + "->" + target);
+                }
+                if (weight == 0) {
+                    edges.remove(i);
+                } else {
+                    edges.set(i, new Edge<L>(source, target, weight));
+                }
+                checkRep();
+                return weight;
+            }
+        }
+        //边不存在
+        int weight = function.applyAsInt(0, delta);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight + " for edge " + source + "->" + target);
+        }
+        if (weight > 0) {
+            vertices.add(source);
+            vertices.add(target);
+            edges.add(new Edge<L>(source, target, weight));
+            checkRep();
+        }
+        return weight;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>先用一次扫描为所有边建立索引，再在索引上累加，最后一次性重建边表，
+     * 因此总代价为O(E + k)，而不是逐个调用increment()的O(E * k)。
+     */
+    @Override public void incrementAll(L[] sources, L[] targets, int[] deltas) {
+        if (sources.length != targets.length || sources.length != deltas.length) {
+            throw new IllegalArgumentException("sources, targets and deltas must have the same length");
+        }
+        Map<L, Map<L, Integer>> weights = new HashMap<>();
+        for (Edge<L> edge: edges) {
+            weights.computeIfAbsent(edge.getSource(), s -> new HashMap<>()).put(edge.getTarget(), edge.getWeight());
+        }
+        List<L> addedSources = new ArrayList<>();
+        List<L> addedTargets = new ArrayList<>();
+        IllegalArgumentException failure = null;
+        for (int i = 0; i < sources.length; i++) {
+            Map<L, Integer> out = weights.computeIfAbsent(sources[i], s -> new HashMap<>());
+            Integer previousWeight = out.get(targets[i]);
+            int weight = (previousWeight == null ? 0 : previousWeight) + deltas[i];
+            if (weight < 0) {
+                failure = new IllegalArgumentException("negative weight " + weight + " for edge " + sources[i] + "->" + targets[i]);
+                break;
+            }
+            if (previousWeight == null) {
+                //记录新边第一次出现的顺序，权值在重建时再读取
+                addedSources.add(sources[i]);
+                addedTargets.add(targets[i]);
+            }
+            out.put(targets[i], weight);
+            if (weight > 0) {
+                vertices.add(sources[i]);
+                vertices.add(targets[i]);
+            }
+        }
+        List<Edge<L>> rebuilt = new ArrayList<>(edges.size() + addedSources.size());
+        for (Edge<L> edge: edges) {
+            int weight = weights.get(edge.getSource()).get(edge.getTarget());
+            if (weight > 0) {
+                rebuilt.add(weight == edge.getWeight() ? edge : new Edge<L>(edge.getSource(), edge.getTarget(), weight));
+            }
+        }
+        for (int i = 0; i < addedSources.size(); i++) {
+            int weight = weights.get(addedSources.get(i)).get(addedTargets.get(i));
+            if (weight > 0) {
+                rebuilt.add(new Edge<L>(addedSources.get(i), addedTargets.get(i), weight));
+            }
+        }
+        edges.clear();
+        edges.addAll(rebuilt);
+        checkRep();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
     @Override public boolean remove(L vertex) {
         if (!vertices.contains(vertex)) {
             return false;
         } else {
-            Iterator<Edge<L>> iterator = edges.iterator();
-            while (iterator.hasNext()) {
-                Edge<L> curEdge = iterator.next();
-                if (curEdge.getSource().equals(vertex) || curEdge.getTarget().equals(vertex)) {
-                    iterator.remove();
-                }
-            }
+            //一次遍历压缩edges，逐条删除时每次都要移动后面的边
+            edges.removeIf(edge -> edge.getSource().equals(vertex) || edge.getTarget().equals(vertex));
             vertices.remove(vertex);
             checkRep();
             return true;
@@ -110,10 +207,16 @@ public class ConcreteEdgesGraph<L> implements P1.graph.Graph<L> {
     }
     
     @Override public Set<L> vertices() {
+        if (views) {
+            return Collections.unmodifiableSet(this.vertices);
+        }
         return new HashSet<>(this.vertices);
     }
     
     @Override public Map<L, Integer> sources(L target) {
+        if (views) {
+            return new EndpointView(target, false);
+        }
         Map<L, Integer> sources = new HashMap<>();
         Iterator<Edge<L>> iterator = edges.iterator();
         while (iterator.hasNext()) {
@@ -126,6 +229,9 @@ public class ConcreteEdgesGraph<L> implements P1.graph.Graph<L> {
     }
     
     @Override public Map<L, Integer> targets(L source) {
+        if (views) {
+            return new EndpointView(source, true);
+        }
         Map<L, Integer> targets = new HashMap<>();
         Iterator<Edge<L>> iterator = edges.iterator();
         while (iterator.hasNext()) {
@@ -136,32 +242,162 @@ public class ConcreteEdgesGraph<L> implements P1.graph.Graph<L> {
         }
         return new HashMap<L, Integer>(targets);
     }
+
+    @Override public void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+        for (int i = 0; i < edges.size(); i++) {
+            Edge<L> edge = edges.get(i);
+            if (edge.getSource().equals(source)) {
+                visitor.visit(edge.getTarget(), edge.getWeight());
+            }
+        }
+    }
+
+    @Override public void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+        for (int i = 0; i < edges.size(); i++) {
+            Edge<L> edge = edges.get(i);
+            if (edge.getTarget().equals(target)) {
+                visitor.visit(edge.getSource(), edge.getWeight());
+            }
+        }
+    }
+
+    /**
+     * 视图模式下sources()和targets()返回的不可修改视图，
+     * 由一个顶点的所有出边（或入边）构成，每次访问时扫描edges，因此反映图的后续修改
+     */
+    private class EndpointView extends AbstractMap<L, Integer> {
+
+        private final L vertex;
+        private final boolean outgoing;
+
+        /**
+         * 创建一个顶点的邻接视图
+         * @param vertex    顶点的标签
+         * @param outgoing  为true时视图由vertex的出边构成，否则由入边构成
+         */
+        EndpointView(L vertex, boolean outgoing) {
+            this.vertex = vertex;
+            this.outgoing = outgoing;
+        }
+
+        /**
+         * 判断一条边是否属于此视图
+         * @param edge  一条边
+         * @return  如果edge是vertex的出边（或入边），返回true
+         */
+        private boolean matches(Edge<L> edge) {
+            return (outgoing ? edge.getSource() : edge.getTarget()).equals(vertex);
+        }
+
+        /**
+         * 获得边在此视图中对应的键
+         * @param edge  属于此视图的一条边
+         * @return  出边的终点或入边的起点
+         */
+        private L endpoint(Edge<L> edge) {
+            return outgoing ? edge.getTarget() : edge.getSource();
+        }
+
+        @Override public Integer get(Object key) {
+            for (int i = 0; i < edges.size(); i++) {
+                Edge<L> edge = edges.get(i);
+                if (matches(edge) && endpoint(edge).equals(key)) {
+                    return edge.getWeight();
+                }
+            }
+            return null;
+        }
+
+        @Override public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override public Set<Map.Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override public int size() {
+                    int size = 0;
+                    for (int i = 0; i < edges.size(); i++) {
+                        if (matches(edges.get(i))) {
+                            size++;
+                        }
+                    }
+                    return size;
+                }
+
+                @Override public Iterator<Map.Entry<L, Integer>> iterator() {
+                    return new Iterator<Map.Entry<L, Integer>>() {
+                        private int index = advance(0);
+
+                        /**
+                         * 找到下一条属于此视图的边
+                         * @param from  开始查找的下标
+                         * @return  下一条属于此视图的边的下标；如果没有，返回edges.size()
+                         */
+                        private int advance(int from) {
+                            while (from < edges.size() && !matches(edges.get(from))) {
+                                from++;
+                            }
+                            return from;
+                        }
+
+                        @Override public boolean hasNext() {
+                            return index < edges.size();
+                        }
+
+                        @Override public Map.Entry<L, Integer> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Edge<L> edge = edges.get(index);
+                            index = advance(index + 1);
+                            return new AbstractMap.SimpleImmutableEntry<>(endpoint(edge), edge.getWeight());
+                        }
+                    };
+                }
+            };
+        }
+    }
     
-    // TODO toString()
     /**
-     * 返回图的字符串表示
-     * @return 图的字符串表示，格式为"vertices{v1,v2,...};edges{source-weight->target,...}"
+     * {@inheritDoc}
+     *
+     * <p>边按加入的顺序从新到旧写出。
      */
-    @Override
-    public String toString() {
-        String string = "vertices{";
+    @Override public void writeTo(Appendable out) throws IOException {
+        out.append("vertices{");
         int index = vertices.size();
         for (L vertice: vertices) {
-            string = string.concat(vertice.toString());
+            out.append(vertice.toString());
             index--;
             if (index > 0) {
-                string = string.concat(",");
+                out.append(",");
             }
         }
-        string = string.concat("};edges{");
+        out.append("};edges{");
         for (index = edges.size() - 1; index >= 0; index--) {
-            string = string.concat(edges.get(index).toString());
+            edges.get(index).writeTo(out);
             if (index > 0) {
-                string = string.concat(",");
+                out.append(",");
             }
         }
-        string = string.concat("}");
-        return string;
+        out.append("}");
+    }
+
+    // TODO toString()
+    /**
+     * 返回图的字符串表示
+     * @return 图的字符串表示，格式为"vertices{v1,v2,...};edges{source-weight->target,...}"
+     */
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder();
+        try {
+            writeTo(string);
+        } catch (IOException e) {
+            //StringBuilder不会抛出IOException
+            throw new AssertionError(e);
+        }
+        return string.toString();
     }
 }
 
@@ -239,6 +475,15 @@ class Edge<L> {
         return this.weight;
     }
 
+    /**
+     * 把边的字符串表示写到输出中
+     * @param out   输出
+     * @throws IOException  如果写入输出失败
+     */
+    public void writeTo(Appendable out) throws IOException {
+        out.append(String.valueOf(source)).append("-").append(String.valueOf(weight)).append("->").append(String.valueOf(target));
+    }
+
     // TODO toString()
     /**
      * 返回边的字符串表示
@@ -3,8 +3,9 @@
  */
 package P1.graph;
 
-import java.time.Period;
+import java.io.IOException;
 import java.util.*;
+import java.util.function.IntBinaryOperator;
 
 /**
  * An implementation of Graph.
@@ -13,22 +14,40 @@ import java.util.*;
  */
 public class ConcreteVerticesGraph<L> implements P1.graph.Graph<L> {
     
+    //检查RI需要遍历所有顶点和边，只在启用断言时进行
+    private static final boolean CHECK_REP = ConcreteVerticesGraph.class.desiredAssertionStatus();
+    
     private final List<Vertex<L>> vertices = new ArrayList<>();
+    private final Map<L, Integer> indexes = new HashMap<>();
+    private final boolean views;
     
     // Abstraction function:
     //   AF(vertices) = 一个由vertices中所有顶点及每个顶点的带权有向出边构成的带权有向图
     // Representation invariant:
     //   vertices是一个没有重复的顶点的顶点集
     //   vertices中每个顶点的出边都是权值为正数且为int类型的有向边，边的终点都在vertices中
+    //   indexes.get(vertices.get(i).getLabel()) == i，且indexes的大小等于vertices的大小
+    //   顶点s有指向t的权值为w的出边 当且仅当 顶点t有来自s的权值为w的入边
     // Safety from rep exposure:
-    //   vertices为private
-    //   vertices()方法在返回Set之前使用防御性拷贝
-    //   sources()方法在返回Map之前使用防御性拷贝
-    //   targets()方法在返回Map之前使用防御性拷贝
+    //   vertices和indexes为private
+    //   非视图模式下vertices()方法在返回Set之前使用防御性拷贝
+    //   非视图模式下sources()方法在返回Map之前使用防御性拷贝
+    //   非视图模式下targets()方法在返回Map之前使用防御性拷贝
+    //   视图模式下上述方法返回不可修改的视图，客户端无法通过视图修改rep
     
     // TODO constructor
     public ConcreteVerticesGraph() {
+        this(false);
+    }
 
+    /**
+     * 创建一个空图
+     * @param views 为true时使用视图模式：vertices()、sources()和targets()返回反映图的后续修改的
+     *              不可修改视图，而不是防御性拷贝，因此调用时不分配新的集合；
+     *              对图中不存在的顶点，targets()返回空Map，它不反映之后的修改
+     */
+    public ConcreteVerticesGraph(boolean views) {
+        this.views = views;
     }
 
     // TODO checkRep
@@ -36,112 +55,257 @@ public class ConcreteVerticesGraph<L> implements P1.graph.Graph<L> {
      * 检测RI是否被保持
      */
     private void checkRep() {
+        if (!CHECK_REP) {
+            return;
+        }
         Set<L> labels = new HashSet<>();
         for (Vertex<L> vertex: vertices) {
             assert !labels.contains(vertex.getLabel());
             labels.add(vertex.getLabel());
         }
-        for (Vertex<L> vertex: vertices) {
+        assert indexes.size() == vertices.size();
+        for (int i = 0; i < vertices.size(); i++) {
+            Vertex<L> vertex = vertices.get(i);
+            assert indexes.get(vertex.getLabel()) == i;
             for (L target: vertex.getTargets().keySet()) {
                 assert vertex.getTargets().get(target) > 0;
                 assert labels.contains(target);
+                assert vertex(target).getSourceWeight(vertex.getLabel()) == vertex.getWeight(target);
             }
         }
     }
 
+    /**
+     * 获得标签对应的顶点
+     * @param label 顶点的标签
+     * @return  标签为label的顶点；如果不存在，返回null
+     */
+    private Vertex<L> vertex(Object label) {
+        Integer index = indexes.get(label);
+        return index == null ? null : vertices.get(index);
+    }
+
+    /**
+     * 获得标签对应的顶点，如果不存在则加入
+     * @param label 顶点的标签
+     * @return  标签为label的顶点
+     */
+    private Vertex<L> ensureVertex(L label) {
+        Vertex<L> vertex = vertex(label);
+        if (vertex == null) {
+            vertex = new Vertex<L>(label);
+            indexes.put(label, vertices.size());
+            vertices.add(vertex);
+        }
+        return vertex;
+    }
+
+    /**
+     * 加入或修改一条边，同时修改起点的出边和终点的入边
+     */
+    private void putEdge(Vertex<L> source, Vertex<L> target, int weight) {
+        source.removeTarget(target.getLabel());
+        source.addTarget(target.getLabel(), weight);
+        target.removeSource(source.getLabel());
+        target.addSource(source.getLabel(), weight);
+    }
+
+    /**
+     * 删除一条边，同时修改起点的出边和终点的入边
+     * @return  被删除的边的权值；如果边不存在，返回0
+     */
+    private int removeEdge(Vertex<L> source, L target) {
+        int previousWeight = source.removeTarget(target);
+        if (previousWeight > 0) {
+            vertex(target).removeSource(source.getLabel());
+        }
+        return previousWeight;
+    }
+
     @Override public boolean add(L vertex) {
-        for (Vertex<L> aVertex: vertices) {
-            if (aVertex.getLabel().equals(vertex)) {
-                return false;
-            }
+        if (indexes.containsKey(vertex)) {
+            return false;
         }
-        vertices.add(new Vertex<L>(vertex));
+        ensureVertex(vertex);
         checkRep();
         return true;
     }
     
     @Override public int set(L source, L target, int weight) {
-        boolean edgeExist = false;
-        Vertex<L> sourceVertex = null;
-        if (weight > 0) {
-            this.add(source);
-            this.add(target);
-        }
-        for (Vertex<L> v: vertices) {
-            if (v.getLabel().equals(source)) {
-                sourceVertex = v;
-                for (L t: v.getTargets().keySet()) {
-                    if (t.equals(target)) {
-                        edgeExist = true;
-                        break;
-                    }
-                }
-                break;
+        if (weight == 0) {
+            Vertex<L> sourceVertex = vertex(source);
+            if (sourceVertex == null) {
+                return 0;
             }
+            int previousWeight = removeEdge(sourceVertex, target);
+            checkRep();
+            return previousWeight;
+        }
+        Vertex<L> sourceVertex = ensureVertex(source);
+        Vertex<L> targetVertex = ensureVertex(target);
+        int previousWeight = sourceVertex.getWeight(target);
+        putEdge(sourceVertex, targetVertex, weight);
+        checkRep();
+        return previousWeight;
+    }
+    
+    @Override public int merge(L source, L target, int delta, IntBinaryOperator function) {
+        Vertex<L> sourceVertex = vertex(source);
+        int previousWeight = sourceVertex == null ? 0 : sourceVertex.getWeight(target);
+        int weight = function.applyAsInt(previousWeight, delta);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight + " for edge " + source + "->" + target);
         }
-
         if (weight == 0) {
-            if (!edgeExist) {
-                return 0;
-            } else {
-                int previousWeight = sourceVertex.getTargets().get(target);
-                sourceVertex.removeTarget(target);
+            if (previousWeight > 0) {
+                removeEdge(sourceVertex, target);
                 checkRep();
-                return previousWeight;
             }
-        } else {
-            int previousWeight = sourceVertex.removeTarget(target);
-            sourceVertex.addTarget(target, weight);
-            checkRep();
-            return  previousWeight;
+            return 0;
         }
+        sourceVertex = ensureVertex(source);
+        putEdge(sourceVertex, ensureVertex(target), weight);
+        checkRep();
+        return weight;
     }
     
+    /**
+     * {@inheritDoc}
+     *
+     * <p>只访问与该顶点相邻的顶点：沿出边删除终点的入边、沿入边删除起点的出边，
+     * 再把vertices中的最后一个顶点移到被删除顶点的位置，因此代价为O(入度 + 出度)。
+     */
     @Override public boolean remove(L vertex) {
-        for (Vertex<L> v: vertices) {
-            v.removeTarget(vertex);
-        }
-        Iterator<Vertex<L>> iterator = vertices.iterator();
-        while (iterator.hasNext()) {
-            Vertex<L> curVertex = iterator.next();
-            if (curVertex.getLabel().equals(vertex)) {
-                iterator.remove();
-                checkRep();
-                return true;
+        Integer index = indexes.remove(vertex);
+        if (index == null) {
+            return false;
+        }
+        Vertex<L> removed = vertices.get(index);
+        for (L target: removed.targetsView().keySet()) {
+            if (!target.equals(vertex)) {
+                vertex(target).removeSource(vertex);
+            }
+        }
+        for (L source: removed.sourcesView().keySet()) {
+            if (!source.equals(vertex)) {
+                vertex(source).removeTarget(vertex);
             }
         }
+        Vertex<L> last = vertices.remove(vertices.size() - 1);
+        if (last != removed) {
+            vertices.set(index, last);
+            indexes.put(last.getLabel(), index);
+        }
+        //清空被删除顶点的边，使该顶点已有的视图反映删除
+        removed.clearTargets();
+        removed.clearSources();
         checkRep();
-        return false;
+        return true;
     }
     
     @Override public Set<L> vertices() {
-        Set<L> verticesSet = new HashSet<>();
-        for (Vertex<L> vertex: vertices) {
-            verticesSet.add(vertex.getLabel());
+        if (views) {
+            return Collections.unmodifiableSet(indexes.keySet());
         }
-        return new HashSet<>(verticesSet);
+        return new HashSet<>(indexes.keySet());
     }
     
     @Override public Map<L, Integer> sources(L target) {
-        Map<L, Integer> sources = new HashMap<>();
-        for (Vertex<L> vertex: vertices) {
-            if (vertex.getTargets().containsKey(target)) {
-                sources.put(vertex.getLabel(), vertex.getTargets().get(target));
-            }
+        if (views) {
+            return new SourcesView(target);
         }
-        return new HashMap<>(sources);
+        Vertex<L> vertex = vertex(target);
+        return vertex == null ? new HashMap<>() : vertex.getSources();
     }
     
     @Override public Map<L, Integer> targets(L source) {
-        Map<L, Integer> targets = new HashMap<>();
+        Vertex<L> vertex = vertex(source);
+        if (views) {
+            return vertex == null ? Collections.emptyMap() : vertex.targetsView();
+        }
+        return vertex == null ? new HashMap<>() : vertex.getTargets();
+    }
+
+    @Override public void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+        Vertex<L> vertex = vertex(source);
+        if (vertex != null) {
+            vertex.forEachTarget(visitor);
+        }
+    }
+
+    @Override public void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+        Vertex<L> vertex = vertex(target);
+        if (vertex != null) {
+            vertex.forEachSource(visitor);
+        }
+    }
+
+    /**
+     * 视图模式下sources()返回的不可修改视图，由指向一个顶点的所有入边构成。
+     * 每次访问时按标签查找顶点，因此在顶点被删除后重新加入时也反映图的后续修改
+     */
+    private class SourcesView extends AbstractMap<L, Integer> {
+
+        private final L target;
+
+        /**
+         * 创建一个顶点的入边视图
+         * @param target    顶点的标签
+         */
+        SourcesView(L target) {
+            this.target = target;
+        }
+
+        /**
+         * 获得当前的入边
+         * @return  target的入边的不可修改视图；顶点不存在时为空Map
+         */
+        private Map<L, Integer> current() {
+            Vertex<L> vertex = vertex(target);
+            return vertex == null ? Collections.emptyMap() : vertex.sourcesView();
+        }
+
+        @Override public int size() {
+            return current().size();
+        }
+
+        @Override public Integer get(Object key) {
+            return current().get(key);
+        }
+
+        @Override public boolean containsKey(Object key) {
+            return current().containsKey(key);
+        }
+
+        @Override public Set<Map.Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override public int size() {
+                    return current().size();
+                }
+
+                @Override public Iterator<Map.Entry<L, Integer>> iterator() {
+                    return current().entrySet().iterator();
+                }
+            };
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     *
+     * <p>写出的格式为“顶点1{(权值,终点);...}|顶点2{(权值,终点);...}|...”，其中(权值,终点)代表顶点的一条出边，不同顶点之间用"|"分隔。
+     */
+    @Override public void writeTo(Appendable out) throws IOException {
+        int index = vertices.size();
         for (Vertex<L> vertex: vertices) {
-            if (vertex.getLabel().equals(source)) {
-                targets = new HashMap<>(vertex.getTargets());
+            vertex.writeTo(out);
+            index--;
+            if (index > 0) {
+                out.append("|");
             }
         }
-        return targets;
     }
-    
+
     // TODO toString()
     /**
      * 返回图的字符串表示
@@ -149,16 +313,14 @@ public class ConcreteVerticesGraph<L> implements P1.graph.Graph<L> {
      */
     @Override
     public String toString() {
-        String string = "";
-        int index = vertices.size();
-        for (Vertex<L> vertex: vertices) {
-            string = string.concat(vertex.toString());
-            index--;
-            if (index > 0) {
-                string = string.concat("|");
-            }
+        StringBuilder string = new StringBuilder();
+        try {
+            writeTo(string);
+        } catch (IOException e) {
+            //StringBuilder不会抛出IOException
+            throw new AssertionError(e);
         }
-        return string;
+        return string.toString();
     }
 }
 
@@ -180,10 +342,12 @@ class Vertex<L> {
     // TODO fields
     private final L label;
     private final Map<L, Integer> targets = new HashMap<>();
+    private final Map<L, Integer> sources = new HashMap<>();
     // Abstraction function:
     //   AF(label, targets) = 一个标识为label的顶点，该顶点到任意标识为target的顶点有权值为weight的有向边当且仅当targets.get(target)==weight
+    //   sources为指向该顶点的入边：从source有权值为weight的入边当且仅当sources.get(source)==weight
     // Representation invariant:
-    //   targets中的所有Integer都是值为正整数的权值weight
+    //   targets和sources中的所有Integer都是值为正整数的权值weight
     // Safety from rep exposure:
     //   所有数据都为private
     //   label为不可变数据类型
@@ -203,9 +367,8 @@ class Vertex<L> {
      * 检测RI是否被保持
      */
     private void checkRep() {
-        for (L target: targets.keySet()) {
-            assert targets.get(target) > 0;
-        }
+        assert targets.values().stream().allMatch(weight -> weight > 0);
+        assert sources.values().stream().allMatch(weight -> weight > 0);
     }
     
     // TODO methods
@@ -225,6 +388,104 @@ class Vertex<L> {
         return new HashMap<L, Integer>(targets);
     }
 
+    /**
+     * 获得此顶点的出边的不可修改视图
+     * @return  一个不可修改的map，内容与getTargets()相同，但反映此顶点的后续修改
+     */
+    public Map<L, Integer> targetsView() {
+        return Collections.unmodifiableMap(targets);
+    }
+
+    /**
+     * 获得从此顶点指向某个顶点的出边的权值
+     * @param target    出边指向的顶点的标签
+     * @return  如果边存在，返回此边的权重；否则返回0
+     */
+    public int getWeight(L target) {
+        Integer weight = targets.get(target);
+        return weight == null ? 0 : weight;
+    }
+
+    /**
+     * 访问此顶点的所有出边，不进行拷贝
+     * @param visitor   对每条出边调用一次
+     */
+    public void forEachTarget(EdgeVisitor<? super L> visitor) {
+        for (Map.Entry<L, Integer> edge: targets.entrySet()) {
+            visitor.visit(edge.getKey(), edge.getValue());
+        }
+    }
+
+    /**
+     * 删除此顶点的所有出边
+     */
+    public void clearTargets() {
+        targets.clear();
+    }
+
+    /**
+     * 获得指向此顶点的入边的起点以及这些边的权值
+     * @return  一个map，键为入边的起点，值为入边的权值
+     */
+    public Map<L, Integer> getSources() {
+        return new HashMap<L, Integer>(sources);
+    }
+
+    /**
+     * 获得此顶点的入边的不可修改视图
+     * @return  一个不可修改的map，内容与getSources()相同，但反映此顶点的后续修改
+     */
+    public Map<L, Integer> sourcesView() {
+        return Collections.unmodifiableMap(sources);
+    }
+
+    /**
+     * 获得从某个顶点指向此顶点的入边的权值
+     * @param source    入边的起点的标签
+     * @return  如果边存在，返回此边的权重；否则返回0
+     */
+    public int getSourceWeight(L source) {
+        Integer weight = sources.get(source);
+        return weight == null ? 0 : weight;
+    }
+
+    /**
+     * 访问此顶点的所有入边，不进行拷贝
+     * @param visitor   对每条入边调用一次
+     */
+    public void forEachSource(EdgeVisitor<? super L> visitor) {
+        for (Map.Entry<L, Integer> edge: sources.entrySet()) {
+            visitor.visit(edge.getKey(), edge.getValue());
+        }
+    }
+
+    /**
+     * 记录一条指向此顶点的入边
+     * @param source    入边的起点的标签
+     * @param weight    入边的权重，必须为正数
+     */
+    public void addSource(L source, int weight) {
+        sources.put(source, weight);
+        checkRep();
+    }
+
+    /**
+     * 删除一条指向此顶点的入边
+     * @param source    入边的起点的标签
+     * @return  如果边存在，返回此边的权重；否则返回0
+     */
+    public int removeSource(L source) {
+        Integer previousWeight = sources.remove(source);
+        return previousWeight == null ? 0 : previousWeight;
+    }
+
+    /**
+     * 删除此顶点的所有入边
+     */
+    public void clearSources() {
+        sources.clear();
+    }
+
     /**
      * 为此顶点添加一条带权有向出边
      * @param target    出边指向的顶点的标签
@@ -257,6 +518,24 @@ class Vertex<L> {
         }
     }
 
+    /**
+     * 把顶点的字符串表示写到输出中，格式与toString()相同
+     * @param out   输出
+     * @throws IOException  如果写入输出失败
+     */
+    public void writeTo(Appendable out) throws IOException {
+        out.append(String.valueOf(label)).append("{");
+        int index = targets.size();
+        for (Map.Entry<L, Integer> target: targets.entrySet()) {
+            out.append("(").append(String.valueOf(target.getValue())).append(",").append(target.getKey().toString()).append(")");
+            index--;
+            if (index > 0) {
+                out.append(";");
+            }
+        }
+        out.append("}");
+    }
+
     // TODO toString()
     /**
      * 返回顶点的字符串表示
@@ -264,16 +543,13 @@ class Vertex<L> {
      */
     @Override
     public String toString() {
-        String string = label + "{";
-        int index = targets.size();
-        for (L target: targets.keySet()) {
-            string = string .concat("(" + targets.get(target) + "," + target.toString() + ")");
-            index--;
-            if (index > 0) {
-                string = string.concat(";");
-            }
+        StringBuilder string = new StringBuilder();
+        try {
+            writeTo(string);
+        } catch (IOException e) {
+            //StringBuilder不会抛出IOException
+            throw new AssertionError(e);
         }
-        string = string.concat("}");
-        return string;
+        return string.toString();
     }
 }
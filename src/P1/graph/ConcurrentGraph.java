@@ -0,0 +1,327 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * A thread-safe implementation of Graph.
+ *
+ * <p>正向和反向邻接表都由ConcurrentHashMap实现。修改以起点为单位加锁：
+ * set(source, ...)和add(source)只持有source所在分段的锁，因此对不同起点的并发修改一般不会相互竞争；
+ * remove()需要修改所有指向被删除顶点的边，因此按固定顺序持有全部分段的锁。
+ * 查询不加锁：vertices()、sources()和targets()返回弱一致的快照，
+ * 反映调用开始之后某一时刻的状态，但不保证反映调用期间的并发修改。
+ * freeze()和writeTo()需要整个图的一致状态，因此与remove()一样持有全部分段的锁，期间其他修改被阻塞。
+ */
+public class ConcurrentGraph<L> implements P1.graph.Graph<L> {
+
+    //检查RI需要遍历所有边，只在启用断言时进行
+    private static final boolean CHECK_REP = ConcurrentGraph.class.desiredAssertionStatus();
+    private static final int STRIPES = 64;
+
+    private final ConcurrentMap<L, ConcurrentMap<L, Integer>> targets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<L, ConcurrentMap<L, Integer>> sources = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    // Abstraction function:
+    //   AF(targets, sources) = 一个以targets的键集为顶点集的带权有向图，
+    //                          从s到t有权值为w的有向边当且仅当targets.get(s).get(t)==w
+    // Representation invariant:
+    //   在持有全部分段锁时：
+    //     targets和sources的键集相同
+    //     所有权值都为正整数
+    //     targets.get(s).get(t)==w 当且仅当 sources.get(t).get(s)==w
+    //   顶点总是先加入sources再加入targets
+    // Safety from rep exposure:
+    //   所有数据都为private final
+    //   vertices()、sources()和targets()返回新建的快照
+    // Thread safety argument:
+    //   targets、sources及其中的Map都是线程安全的ConcurrentHashMap
+    //   对起点s的出边和对顶点s本身的修改都在持有lock(s)时进行，因此同一起点上的修改互斥，
+    //     targets.get(s)与相应的sources中的条目总是一起修改
+    //   remove()、freeze()和writeTo()持有全部分段锁，因此与所有其他修改互斥，不会看到修改到一半的状态
+    //   查询只读取ConcurrentHashMap，返回弱一致的快照
+
+    public ConcurrentGraph() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * 检测RI是否被保持，调用时必须持有全部分段锁
+     */
+    private void checkRep() {
+        if (!CHECK_REP) {
+            return;
+        }
+        assert targets.keySet().equals(sources.keySet());
+        for (Map.Entry<L, ConcurrentMap<L, Integer>> entry: targets.entrySet()) {
+            for (Map.Entry<L, Integer> edge: entry.getValue().entrySet()) {
+                assert edge.getValue() > 0;
+                assert edge.getValue().equals(sources.get(edge.getKey()).get(entry.getKey()));
+            }
+        }
+    }
+
+    /**
+     * 获得一个顶点所在分段的锁
+     * @param vertex    顶点的标签
+     * @return  保护该顶点的出边的锁
+     */
+    private ReentrantLock lock(L vertex) {
+        int hash = vertex.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * 按固定顺序获得全部分段的锁
+     */
+    private void lockAll() {
+        for (ReentrantLock lock: locks) {
+            lock.lock();
+        }
+    }
+
+    /**
+     * 按相反的顺序释放全部分段的锁
+     */
+    private void unlockAll() {
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    /**
+     * 如果顶点不存在则加入顶点，调用时必须持有该顶点或某条指向它的边的起点所在分段的锁
+     * @param vertex    顶点的标签
+     * @return  顶点的出边表
+     */
+    private ConcurrentMap<L, Integer> ensureVertex(L vertex) {
+        sources.computeIfAbsent(vertex, v -> new ConcurrentHashMap<>());
+        return targets.computeIfAbsent(vertex, v -> new ConcurrentHashMap<>());
+    }
+
+    @Override public boolean add(L vertex) {
+        ReentrantLock lock = lock(vertex);
+        lock.lock();
+        try {
+            if (targets.containsKey(vertex)) {
+                return false;
+            }
+            ensureVertex(vertex);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override public int set(L source, L target, int weight) {
+        ReentrantLock lock = lock(source);
+        lock.lock();
+        try {
+            ConcurrentMap<L, Integer> out = targets.get(source);
+            if (weight == 0) {
+                if (out == null) {
+                    return 0;
+                }
+                Integer previousWeight = out.remove(target);
+                if (previousWeight == null) {
+                    return 0;
+                }
+                sources.get(target).remove(source);
+                return previousWeight;
+            }
+            if (out == null) {
+                out = ensureVertex(source);
+            }
+            ConcurrentMap<L, Integer> in = sources.get(target);
+            if (in == null) {
+                ensureVertex(target);
+                in = sources.get(target);
+            }
+            Integer previousWeight = out.put(target, weight);
+            in.put(source, weight);
+            return previousWeight == null ? 0 : previousWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>读取原权值和写入新权值在持有source所在分段的锁时完成，因此并发的merge()和increment()不会丢失更新。
+     */
+    @Override public int merge(L source, L target, int delta, IntBinaryOperator function) {
+        ReentrantLock lock = lock(source);
+        lock.lock();
+        try {
+            ConcurrentMap<L, Integer> out = targets.get(source);
+            Integer previousWeight = out == null ? null : out.get(target);
+            int weight = function.applyAsInt(previousWeight == null ? 0 : previousWeight, delta);
+            if (weight < 0) {
+                throw new IllegalArgumentException("negative weight " + weight + " for edge " + source + "->" + target);
+            }
+            if (weight == 0) {
+                if (previousWeight != null) {
+                    out.remove(target);
+                    sources.get(target).remove(source);
+                }
+                return 0;
+            }
+            if (out == null) {
+                out = ensureVertex(source);
+            }
+            ConcurrentMap<L, Integer> in = sources.get(target);
+            if (in == null) {
+                ensureVertex(target);
+                in = sources.get(target);
+            }
+            out.put(target, weight);
+            in.put(source, weight);
+            return weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override public boolean remove(L vertex) {
+        lockAll();
+        try {
+            ConcurrentMap<L, Integer> out = targets.remove(vertex);
+            if (out == null) {
+                return false;
+            }
+            ConcurrentMap<L, Integer> in = sources.remove(vertex);
+            for (L target: out.keySet()) {
+                if (!target.equals(vertex)) {
+                    sources.get(target).remove(vertex);
+                }
+            }
+            for (L source: in.keySet()) {
+                if (!source.equals(vertex)) {
+                    targets.get(source).remove(vertex);
+                }
+            }
+            checkRep();
+            return true;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override public Set<L> vertices() {
+        return new HashSet<>(targets.keySet());
+    }
+
+    @Override public Map<L, Integer> sources(L target) {
+        Map<L, Integer> in = sources.get(target);
+        return in == null ? new HashMap<>() : new HashMap<>(in);
+    }
+
+    @Override public Map<L, Integer> targets(L source) {
+        Map<L, Integer> out = targets.get(source);
+        return out == null ? new HashMap<>() : new HashMap<>(out);
+    }
+
+    @Override public void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+        Map<L, Integer> out = targets.get(source);
+        if (out != null) {
+            for (Map.Entry<L, Integer> edge: out.entrySet()) {
+                visitor.visit(edge.getKey(), edge.getValue());
+            }
+        }
+    }
+
+    @Override public void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+        Map<L, Integer> in = sources.get(target);
+        if (in != null) {
+            for (Map.Entry<L, Integer> edge: in.entrySet()) {
+                visitor.visit(edge.getKey(), edge.getValue());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>复制时持有全部分段锁，因此快照是图在某一时刻的完整状态，不会包含指向快照中不存在的顶点的边。
+     */
+    @Override public FrozenGraph<L> freeze() {
+        lockAll();
+        try {
+            return FrozenGraph.copyOf(this);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>写出时持有全部分段锁，因此写出的是图在某一时刻的完整状态；写出期间其他修改被阻塞。
+     */
+    @Override public void writeTo(Appendable out) throws IOException {
+        lockAll();
+        try {
+            write(out);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * 写出图的字符串表示，调用时必须持有全部分段锁
+     * @param out   输出
+     * @throws IOException  如果写入out失败
+     */
+    private void write(Appendable out) throws IOException {
+        out.append("vertices{");
+        boolean first = true;
+        for (L vertex: targets.keySet()) {
+            if (!first) {
+                out.append(",");
+            }
+            out.append(String.valueOf(vertex));
+            first = false;
+        }
+        out.append("};edges{");
+        first = true;
+        for (Map.Entry<L, ConcurrentMap<L, Integer>> entry: targets.entrySet()) {
+            String source = String.valueOf(entry.getKey());
+            for (Map.Entry<L, Integer> edge: entry.getValue().entrySet()) {
+                if (!first) {
+                    out.append(",");
+                }
+                out.append(source).append("-").append(String.valueOf(edge.getValue()))
+                        .append("->").append(String.valueOf(edge.getKey()));
+                first = false;
+            }
+        }
+        out.append("}");
+    }
+
+    /**
+     * 返回图的字符串表示
+     * @return 图的字符串表示，与writeTo()写出的内容相同
+     */
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder();
+        try {
+            writeTo(string);
+        } catch (IOException e) {
+            //StringBuilder不会抛出IOException
+            throw new AssertionError(e);
+        }
+        return string.toString();
+    }
+}
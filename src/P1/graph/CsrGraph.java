@@ -0,0 +1,152 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.io.IOException;
+
+/**
+ * An immutable weighted directed graph stored in compressed sparse row form,
+ * with vertices numbered by dense int ids.
+ *
+ * <p>顶点编号为0到vertexCount()-1。每个顶点的出边在CSR数组的[targetsStart(id), targetsEnd(id))中，
+ * 入边在反向CSR数组的[sourcesStart(id), sourcesEnd(id))中，每行中的边按另一端顶点的编号升序排列。
+ * 通过这些方法遍历邻居时无需装箱，也不分配对象。
+ * 修改图的方法add()、set()、remove()都会抛出UnsupportedOperationException。
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public interface CsrGraph<L> extends Graph<L> {
+
+    /**
+     * 获得图中顶点的个数
+     * @return  顶点个数，顶点编号为0到vertexCount()-1
+     */
+    public int vertexCount();
+
+    /**
+     * 获得图中边的条数
+     * @return  边的条数
+     */
+    public int edgeCount();
+
+    /**
+     * 获得顶点的编号
+     * @param label 顶点的标签
+     * @return  顶点的编号；如果图中没有该顶点，返回-1
+     */
+    public int id(L label);
+
+    /**
+     * 获得编号对应的顶点标签
+     * @param id    顶点编号，0 <= id < vertexCount()
+     * @return  顶点的标签
+     */
+    public L label(int id);
+
+    /**
+     * 获得顶点出边在CSR数组中的起始下标
+     * @param id    顶点编号
+     * @return  出边的起始下标（包含）
+     */
+    public int targetsStart(int id);
+
+    /**
+     * 获得顶点出边在CSR数组中的结束下标
+     * @param id    顶点编号
+     * @return  出边的结束下标（不包含）
+     */
+    public int targetsEnd(int id);
+
+    /**
+     * 获得一条出边的终点编号
+     * @param index 出边下标，位于某个顶点的targetsStart()和targetsEnd()之间
+     * @return  出边的终点编号
+     */
+    public int targetAt(int index);
+
+    /**
+     * 获得一条出边的权值
+     * @param index 出边下标，位于某个顶点的targetsStart()和targetsEnd()之间
+     * @return  出边的权值
+     */
+    public int targetWeightAt(int index);
+
+    /**
+     * 获得顶点入边在反向CSR数组中的起始下标
+     * @param id    顶点编号
+     * @return  入边的起始下标（包含）
+     */
+    public int sourcesStart(int id);
+
+    /**
+     * 获得顶点入边在反向CSR数组中的结束下标
+     * @param id    顶点编号
+     * @return  入边的结束下标（不包含）
+     */
+    public int sourcesEnd(int id);
+
+    /**
+     * 获得一条入边的起点编号
+     * @param index 入边下标，位于某个顶点的sourcesStart()和sourcesEnd()之间
+     * @return  入边的起点编号
+     */
+    public int sourceAt(int index);
+
+    /**
+     * 获得一条入边的权值
+     * @param index 入边下标，位于某个顶点的sourcesStart()和sourcesEnd()之间
+     * @return  入边的权值
+     */
+    public int sourceWeightAt(int index);
+
+    /**
+     * 获得两个顶点之间的边的权值，在出边行中二分查找
+     * @param sourceId  起点编号
+     * @param targetId  终点编号
+     * @return  边的权值；如果边不存在，返回0
+     */
+    public default int weight(int sourceId, int targetId) {
+        int low = targetsStart(sourceId);
+        int high = targetsEnd(sourceId) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int target = targetAt(middle);
+            if (target < targetId) {
+                low = middle + 1;
+            } else if (target > targetId) {
+                high = middle - 1;
+            } else {
+                return targetWeightAt(middle);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>顶点和边按编号的顺序写出。
+     */
+    @Override public default void writeTo(Appendable out) throws IOException {
+        out.append("vertices{");
+        for (int v = 0; v < vertexCount(); v++) {
+            if (v > 0) {
+                out.append(",");
+            }
+            out.append(String.valueOf(label(v)));
+        }
+        out.append("};edges{");
+        for (int s = 0; s < vertexCount(); s++) {
+            String source = String.valueOf(label(s));
+            for (int i = targetsStart(s); i < targetsEnd(s); i++) {
+                if (i > 0) {
+                    out.append(",");
+                }
+                out.append(source).append("-").append(String.valueOf(targetWeightAt(i)))
+                        .append("->").append(String.valueOf(label(targetAt(i))));
+            }
+        }
+        out.append("}");
+    }
+}
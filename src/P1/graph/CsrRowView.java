@@ -0,0 +1,116 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.util.*;
+
+/**
+ * CsrGraph中一行（一个顶点的所有出边或入边）的不可修改Map视图，
+ * 行中的顶点编号有序，因此get()使用二分查找
+ */
+class CsrRowView<L> extends AbstractMap<L, Integer> {
+
+    private final CsrGraph<L> graph;
+    private final boolean outgoing;
+    private final int start;
+    private final int end;
+    // Abstraction function:
+    //   AF(graph, outgoing, start, end) = 从graph的出边（outgoing为true）或入边CSR数组的[start, end)中的边
+    //       得到的Map，键为边另一端的顶点，值为边的权值
+    // Representation invariant:
+    //   start <= end，且[start, end)是graph中某个顶点的一整行
+    // Safety from rep exposure:
+    //   所有数据都为private final，graph不可变，视图不可修改
+
+    /**
+     * 创建CSR行的视图
+     * @param graph     CSR图
+     * @param outgoing  为true时为出边行，否则为入边行
+     * @param start     行的起始下标（包含）
+     * @param end       行的结束下标（不包含）
+     */
+    CsrRowView(CsrGraph<L> graph, boolean outgoing, int start, int end) {
+        this.graph = graph;
+        this.outgoing = outgoing;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * 获得行中一条边的另一端顶点的编号
+     */
+    private int vertexAt(int index) {
+        return outgoing ? graph.targetAt(index) : graph.sourceAt(index);
+    }
+
+    /**
+     * 获得行中一条边的权值
+     */
+    private int weightAt(int index) {
+        return outgoing ? graph.targetWeightAt(index) : graph.sourceWeightAt(index);
+    }
+
+    @Override public int size() {
+        return end - start;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override public Integer get(Object key) {
+        int id;
+        try {
+            id = graph.id((L) key);
+        } catch (ClassCastException e) {
+            return null;
+        }
+        if (id < 0) {
+            return null;
+        }
+        int low = start;
+        int high = end - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int vertex = vertexAt(middle);
+            if (vertex < id) {
+                low = middle + 1;
+            } else if (vertex > id) {
+                high = middle - 1;
+            } else {
+                return weightAt(middle);
+            }
+        }
+        return null;
+    }
+
+    @Override public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override public Set<Map.Entry<L, Integer>> entrySet() {
+        return new AbstractSet<Map.Entry<L, Integer>>() {
+            @Override public int size() {
+                return end - start;
+            }
+
+            @Override public Iterator<Map.Entry<L, Integer>> iterator() {
+                return new Iterator<Map.Entry<L, Integer>>() {
+                    private int index = start;
+
+                    @Override public boolean hasNext() {
+                        return index < end;
+                    }
+
+                    @Override public Map.Entry<L, Integer> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Map.Entry<L, Integer> entry =
+                                new AbstractMap.SimpleImmutableEntry<>(graph.label(vertexAt(index)), weightAt(index));
+                        index++;
+                        return entry;
+                    }
+                };
+            }
+        };
+    }
+}
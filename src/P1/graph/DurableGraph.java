@@ -0,0 +1,638 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntBinaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * A graph whose mutations are persisted to a write-ahead log.
+ *
+ * <p>持久图包装另一个图，每次改变了图的add()、set()、merge()和remove()都在修改被包装的图之后，
+ * 把一条紧凑的二进制记录追加到目录中的日志，因此持久化的代价与修改的数量成正比，而不是与图的大小成正比。
+ * 记录先写入内存缓冲区，缓冲区的空间在修改图之前预留，因此写入日志失败时图不会被修改。
+ * 缓冲区由sync()写入日志文件并调用一次fsync，
+ * 两次sync()之间的所有修改共享一次fsync（组提交）。
+ * 创建时可以指定同步间隔，此时由一个后台线程定期调用sync()，崩溃时最多丢失最近一个间隔内的修改。
+ *
+ * <p>日志增长到超过快照的大小后，sync()把整个图写成新的快照（MappedGraph格式）并开始新的日志，
+ * 再删除旧的快照和日志。open()载入最新的快照并重放其后的日志；
+ * 日志末尾不完整或校验和不符的记录（崩溃时正在写入的记录）被丢弃。
+ *
+ * <p>持久图是线程安全的，所有操作都在同一个对象上同步。创建之后被包装的图只能通过持久图访问。
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class DurableGraph<L> implements P1.graph.Graph<L>, Closeable {
+
+    private static final byte ADD = 1;
+    private static final byte SET = 2;
+    private static final byte REMOVE = 3;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int FRAME_SIZE = 8;
+    //日志不超过这个大小时不压缩
+    private static final long MIN_COMPACTION_BYTES = 16 << 20;
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d+)\\.graph");
+    private static final Pattern LOG = Pattern.compile("log-(\\d+)\\.wal");
+
+    private final Graph<L> graph;
+    private final LabelCodec<L> codec;
+    private final Path directory;
+    private final Object mutex = new Object();
+    private final Object syncLock = new Object();
+    //后台线程在两次sync()之间等待在wakeup上，close()通过它通知后台线程退出
+    private final Object wakeup = new Object();
+    private final CRC32C crc = new CRC32C();
+    private final Thread syncer;
+    private ByteBuffer pending = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private FileChannel log;
+    private long generation;
+    private long logBytes;
+    private long snapshotBytes;
+    private IOException failure;
+    private boolean closed;
+    private boolean stopping;
+
+    // Abstraction function:
+    //   AF(graph) = graph所表示的带权有向图，
+    //     它等于directory中第generation代快照所表示的图依次应用log中的记录和pending中的记录的结果
+    // Representation invariant:
+    //   graph、codec、directory、log != null
+    //   log的位置在文件末尾，logBytes为log已写入的字节数加pending中的字节数
+    //   directory中没有比generation更新的快照或日志
+    //   failure != null时不再接受修改
+    // Safety from rep exposure:
+    //   所有数据都为private，graph、log和pending不会被返回；
+    //   vertices()、sources()和targets()返回graph的结果，调用者应只使用防御性拷贝的实现
+    // Thread safety argument:
+    //   对graph、pending和log的访问都在持有mutex时进行
+    //   sync()和checkpoint()先持有syncLock再持有mutex，修改只持有mutex，因此锁的顺序一致；
+    //   sync()在释放mutex之后才调用fsync，fsync期间其他线程可以继续修改
+    //   切换日志（checkpoint()）同时持有syncLock，因此fsync的日志不会在fsync期间被关闭
+    //   stopping只在持有wakeup时访问；close()不中断后台线程，而是设置stopping并等待它结束，
+    //     因为中断正在读写FileChannel的线程会关闭日志文件
+
+    private DurableGraph(Graph<L> graph, LabelCodec<L> codec, Path directory, long syncIntervalMillis) {
+        this.graph = graph;
+        this.codec = codec;
+        this.directory = directory;
+        if (syncIntervalMillis > 0) {
+            syncer = new Thread(() -> syncPeriodically(syncIntervalMillis), "DurableGraph-sync");
+            syncer.setDaemon(true);
+        } else {
+            syncer = null;
+        }
+    }
+
+    /**
+     * 打开目录中保存的持久图，目录不存在时创建目录和一个空的图
+     * @param directory  保存快照和日志的目录，同一时刻只能被一个持久图使用
+     * @param codec  顶点标签的编码
+     * @param graph  一个空的图，用来载入保存的图，之后只能通过返回的持久图访问
+     * @param syncIntervalMillis  后台线程调用sync()的间隔，为0时只在调用者调用sync()时写入磁盘
+     * @return  与目录中最后一次写入磁盘时相同的持久图
+     * @throws IOException  如果读取或创建文件失败，或者快照已损坏
+     * @throws IllegalArgumentException  如果graph不是空的，或者syncIntervalMillis为负数
+     */
+    public static <L> DurableGraph<L> open(Path directory, LabelCodec<L> codec, Graph<L> graph, long syncIntervalMillis) throws IOException {
+        if (!graph.vertices().isEmpty()) {
+            throw new IllegalArgumentException("graph to recover into must be empty");
+        }
+        if (syncIntervalMillis < 0) {
+            throw new IllegalArgumentException("negative sync interval " + syncIntervalMillis);
+        }
+        Files.createDirectories(directory);
+        DurableGraph<L> durable = new DurableGraph<>(graph, codec, directory, syncIntervalMillis);
+        durable.recover();
+        if (durable.syncer != null) {
+            durable.syncer.start();
+        }
+        return durable;
+    }
+
+    /**
+     * 检测RI是否被保持，调用时必须持有mutex
+     */
+    private void checkRep() {
+        assert log != null;
+        assert pending.position() <= logBytes;
+    }
+
+    /**
+     * 载入最新的快照，重放其后的日志，删除更旧的文件，再打开日志用于追加
+     * @throws IOException  如果读写文件失败
+     */
+    private void recover() throws IOException {
+        long latest = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file: files) {
+                Matcher matcher = SNAPSHOT.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    latest = Math.max(latest, Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        generation = Math.max(latest, 0);
+        if (latest >= 0) {
+            MappedGraph<L> snapshot = MappedGraph.open(snapshot(generation), codec);
+            if (!snapshot.verify()) {
+                throw new IOException(snapshot(generation) + ": checksum mismatch");
+            }
+            for (int v = 0; v < snapshot.vertexCount(); v++) {
+                graph.add(snapshot.label(v));
+            }
+            for (int v = 0; v < snapshot.vertexCount(); v++) {
+                L source = snapshot.label(v);
+                for (int i = snapshot.targetsStart(v); i < snapshot.targetsEnd(v); i++) {
+                    graph.set(source, snapshot.label(snapshot.targetAt(i)), snapshot.targetWeightAt(i));
+                }
+            }
+            snapshotBytes = Files.size(snapshot(generation));
+        }
+        Path logFile = log(generation);
+        long valid = Files.exists(logFile) ? replay(logFile) : 0;
+        log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        //截掉崩溃时没有写完的记录
+        log.truncate(valid);
+        log.position(valid);
+        log.force(true);
+        logBytes = valid;
+        deleteOlderThan(generation);
+        syncDirectory();
+        checkRep();
+    }
+
+    /**
+     * 把日志中的记录依次应用到图上，遇到不完整或校验和不符的记录时停止
+     * @param file  日志文件
+     * @return  最后一条完整记录结束的位置
+     * @throws IOException  如果读取文件失败
+     */
+    private long replay(Path file) throws IOException {
+        long valid = 0;
+        long size = Files.size(file);
+        CRC32C checksum = new CRC32C();
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE))) {
+            while (true) {
+                int length;
+                int expected;
+                byte[] record;
+                try {
+                    length = in.readInt();
+                    expected = in.readInt();
+                    if (length <= 0 || length > size - valid - FRAME_SIZE) {
+                        return valid;
+                    }
+                    record = new byte[length];
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    return valid;
+                }
+                checksum.reset();
+                checksum.update(record);
+                if ((int) checksum.getValue() != expected) {
+                    return valid;
+                }
+                apply(ByteBuffer.wrap(record));
+                valid += FRAME_SIZE + length;
+            }
+        }
+    }
+
+    /**
+     * 把一条记录应用到图上
+     * @param record  一条记录，不含长度和校验和
+     */
+    private void apply(ByteBuffer record) {
+        byte op = record.get();
+        L vertex = readLabel(record);
+        switch (op) {
+            case ADD:
+                graph.add(vertex);
+                break;
+            case SET:
+                L target = readLabel(record);
+                graph.set(vertex, target, record.getInt());
+                break;
+            case REMOVE:
+                graph.remove(vertex);
+                break;
+            default:
+                throw new IllegalStateException("unknown log record type " + op);
+        }
+    }
+
+    private L readLabel(ByteBuffer record) {
+        byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        return codec.decode(bytes);
+    }
+
+    /**
+     * 在缓冲区中为一条记录预留空间，空间不足时先把缓冲区写入日志文件。
+     * 修改图之前调用，因此写入失败时图还没有被修改，调用时必须持有mutex
+     * @param first  第一个顶点的编码
+     * @param second  SET记录的终点的编码，其他记录为null
+     * @return  记录的长度，不含长度和校验和
+     * @throws UncheckedIOException  如果写入日志失败，此后所有修改都抛出UncheckedIOException
+     */
+    private int reserve(byte[] first, byte[] second) {
+        int length = 1 + 4 + first.length + (second == null ? 0 : 4 + second.length + 4);
+        try {
+            if (pending.remaining() < FRAME_SIZE + length) {
+                drain();
+                if (pending.capacity() < FRAME_SIZE + length) {
+                    pending = ByteBuffer.allocateDirect(FRAME_SIZE + length);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw new UncheckedIOException(e);
+        }
+        return length;
+    }
+
+    /**
+     * 把一条记录追加到缓冲区，空间已由reserve()预留，调用时必须持有mutex
+     * @param op  记录的类型
+     * @param first  第一个顶点的编码
+     * @param second  SET记录的终点的编码，其他记录为null
+     * @param weight  SET记录的权值
+     * @param length  reserve()返回的记录长度
+     */
+    private void append(byte op, byte[] first, byte[] second, int weight, int length) {
+        int start = pending.position();
+        pending.position(start + FRAME_SIZE);
+        pending.put(op).putInt(first.length).put(first);
+        if (second != null) {
+            pending.putInt(second.length).put(second).putInt(weight);
+        }
+        ByteBuffer record = pending.duplicate();
+        record.position(start + FRAME_SIZE).limit(pending.position());
+        crc.reset();
+        crc.update(record);
+        pending.putInt(start, length).putInt(start + 4, (int) crc.getValue());
+        logBytes += FRAME_SIZE + length;
+    }
+
+    /**
+     * 把缓冲区中的记录写入日志文件，但不调用fsync，调用时必须持有mutex
+     * @throws IOException  如果写入失败
+     */
+    private void drain() throws IOException {
+        pending.flip();
+        while (pending.hasRemaining()) {
+            log.write(pending);
+        }
+        pending.clear();
+    }
+
+    /**
+     * 如果之前的写入失败或者图已关闭，抛出异常，调用时必须持有mutex
+     */
+    private void ensureWritable() {
+        if (closed) {
+            throw new IllegalStateException("durable graph is closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("earlier write to the log failed", failure);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException  如果之前写入日志失败，或者为这次修改腾出缓冲区时写入日志失败，此时图没有被修改
+     * @throws IllegalStateException  如果图已关闭
+     */
+    @Override public boolean add(L vertex) {
+        synchronized (mutex) {
+            ensureWritable();
+            byte[] label = codec.encode(vertex);
+            int length = reserve(label, null);
+            boolean added = graph.add(vertex);
+            if (added) {
+                append(ADD, label, null, 0, length);
+            }
+            return added;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException  如果之前写入日志失败，或者为这次修改腾出缓冲区时写入日志失败，此时图没有被修改
+     * @throws IllegalStateException  如果图已关闭
+     */
+    @Override public int set(L source, L target, int weight) {
+        synchronized (mutex) {
+            ensureWritable();
+            byte[] first = codec.encode(source);
+            byte[] second = codec.encode(target);
+            int length = reserve(first, second);
+            int previousWeight = graph.set(source, target, weight);
+            if (previousWeight != weight) {
+                append(SET, first, second, weight, length);
+            }
+            return previousWeight;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>日志中记录的是合并后的权值，因此重放与合并函数无关。
+     *
+     * @throws UncheckedIOException  如果之前写入日志失败，或者为这次修改腾出缓冲区时写入日志失败，此时图没有被修改
+     * @throws IllegalStateException  如果图已关闭
+     */
+    @Override public int merge(L source, L target, int delta, IntBinaryOperator function) {
+        synchronized (mutex) {
+            ensureWritable();
+            byte[] first = codec.encode(source);
+            byte[] second = codec.encode(target);
+            int length = reserve(first, second);
+            int weight = graph.merge(source, target, delta, function);
+            append(SET, first, second, weight, length);
+            return weight;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException  如果之前写入日志失败，或者为这次修改腾出缓冲区时写入日志失败，此时图没有被修改
+     * @throws IllegalStateException  如果图已关闭
+     */
+    @Override public boolean remove(L vertex) {
+        synchronized (mutex) {
+            ensureWritable();
+            byte[] label = codec.encode(vertex);
+            int length = reserve(label, null);
+            boolean removed = graph.remove(vertex);
+            if (removed) {
+                append(REMOVE, label, null, 0, length);
+            }
+            return removed;
+        }
+    }
+
+    @Override public Set<L> vertices() {
+        synchronized (mutex) {
+            return graph.vertices();
+        }
+    }
+
+    @Override public Map<L, Integer> sources(L target) {
+        synchronized (mutex) {
+            return graph.sources(target);
+        }
+    }
+
+    @Override public Map<L, Integer> targets(L source) {
+        synchronized (mutex) {
+            return graph.targets(source);
+        }
+    }
+
+    @Override public void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+        synchronized (mutex) {
+            graph.forEachTarget(source, visitor);
+        }
+    }
+
+    @Override public void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+        synchronized (mutex) {
+            graph.forEachSource(target, visitor);
+        }
+    }
+
+    @Override public FrozenGraph<L> freeze() {
+        synchronized (mutex) {
+            return graph.freeze();
+        }
+    }
+
+    /**
+     * 把此前返回的所有修改写入磁盘。写入期间其他线程可以继续修改，
+     * 它们的修改由下一次sync()写入磁盘。日志超过快照的大小时还会调用checkpoint()压缩日志
+     * @throws IOException  如果写入失败，此后所有修改都抛出UncheckedIOException
+     * @throws IllegalStateException  如果图已关闭
+     */
+    public void sync() throws IOException {
+        synchronized (syncLock) {
+            FileChannel channel;
+            boolean compact;
+            synchronized (mutex) {
+                ensureWritable();
+                try {
+                    drain();
+                } catch (IOException e) {
+                    failure = e;
+                    throw e;
+                }
+                channel = log;
+                compact = logBytes > MIN_COMPACTION_BYTES && logBytes > snapshotBytes;
+            }
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (mutex) {
+                    failure = e;
+                }
+                throw e;
+            }
+            if (compact) {
+                checkpoint();
+            }
+        }
+    }
+
+    /**
+     * 把整个图写成新的快照并开始新的日志，再删除旧的快照和日志。
+     * 写快照的时间与图的大小成正比，期间其他线程的修改会等待
+     * @throws IOException  如果写入失败，此时旧的快照和日志仍然有效
+     * @throws IllegalStateException  如果图已关闭
+     */
+    public void checkpoint() throws IOException {
+        synchronized (syncLock) {
+            synchronized (mutex) {
+                ensureWritable();
+                long next = generation + 1;
+                FileChannel nextLog;
+                try {
+                    MappedGraph.write(graph, codec, snapshot(next));
+                    nextLog = FileChannel.open(log(next),
+                            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                } catch (IOException e) {
+                    //新的快照会在恢复时遮住旧的日志，因此不能留下
+                    Files.deleteIfExists(snapshot(next));
+                    throw e;
+                }
+                syncDirectory();
+                //缓冲区中的修改已经包含在新的快照中
+                pending.clear();
+                log.close();
+                log = nextLog;
+                generation = next;
+                logBytes = 0;
+                snapshotBytes = Files.size(snapshot(next));
+                deleteOlderThan(next);
+                checkRep();
+            }
+        }
+    }
+
+    /**
+     * 等待后台线程正在进行的sync()结束，再把所有修改写入磁盘并关闭日志，之后不能再修改图。重复调用没有效果
+     * @throws IOException  如果写入失败，或者之前的写入已经失败，此时失败之后的修改没有写入磁盘
+     */
+    @Override public void close() throws IOException {
+        if (syncer != null) {
+            stopSyncer();
+        }
+        synchronized (syncLock) {
+            synchronized (mutex) {
+                if (closed) {
+                    return;
+                }
+                try {
+                    if (failure != null) {
+                        throw new IOException("earlier write to the log failed", failure);
+                    }
+                    drain();
+                    log.force(false);
+                } finally {
+                    closed = true;
+                    log.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * 通知后台线程退出并等待它结束。调用者被中断时仍然等待，返回前恢复中断状态
+     */
+    private void stopSyncer() {
+        synchronized (wakeup) {
+            stopping = true;
+            wakeup.notifyAll();
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                syncer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 后台线程的主循环，每隔一段时间调用sync()，直到close()通知退出或写入失败
+     * @param intervalMillis  两次调用之间的间隔
+     */
+    private void syncPeriodically(long intervalMillis) {
+        while (true) {
+            synchronized (wakeup) {
+                long deadline = System.nanoTime() + intervalMillis * 1_000_000;
+                for (long remaining = intervalMillis; !stopping && remaining > 0;
+                        remaining = (deadline - System.nanoTime()) / 1_000_000) {
+                    try {
+                        wakeup.wait(remaining);
+                    } catch (InterruptedException e) {
+                        //只有close()能结束后台线程
+                    }
+                }
+                if (stopping) {
+                    return;
+                }
+            }
+            try {
+                sync();
+            } catch (IOException | IllegalStateException | UncheckedIOException e) {
+                //写入失败已经被记录，之后的修改和close()会抛出异常
+                return;
+            }
+        }
+    }
+
+    private Path snapshot(long generation) {
+        return directory.resolve("snapshot-" + generation + ".graph");
+    }
+
+    private Path log(long generation) {
+        return directory.resolve("log-" + generation + ".wal");
+    }
+
+    /**
+     * 删除比某一代更旧的快照和日志
+     * @param generation  要保留的最旧的一代
+     * @throws IOException  如果删除失败
+     */
+    private void deleteOlderThan(long generation) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file: files) {
+                String name = file.getFileName().toString();
+                Matcher snapshot = SNAPSHOT.matcher(name);
+                Matcher log = LOG.matcher(name);
+                if (snapshot.matches() && Long.parseLong(snapshot.group(1)) < generation
+                        || log.matches() && Long.parseLong(log.group(1)) < generation) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * 把目录项的修改写入磁盘，使新建和改名的文件在崩溃后仍然存在。
+     * 有的平台不能打开目录，此时只能依赖文件系统自身的顺序
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            //不能对目录调用fsync的平台
+        }
+    }
+
+    @Override public void writeTo(Appendable out) throws IOException {
+        synchronized (mutex) {
+            graph.writeTo(out);
+        }
+    }
+
+    /**
+     * 返回图的字符串表示
+     * @return 被包装的图的字符串表示
+     */
+    @Override
+    public String toString() {
+        synchronized (mutex) {
+            return graph.toString();
+        }
+    }
+}
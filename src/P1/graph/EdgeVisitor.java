@@ -0,0 +1,20 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+/**
+ * 访问图中一个顶点的某条带权有向边的回调，权值以int传递，因此访问时无需装箱。
+ *
+ * @param <L> type of vertex labels in the graph
+ */
+@FunctionalInterface
+public interface EdgeVisitor<L> {
+
+    /**
+     * 访问一条边
+     * @param vertex    边另一端的顶点的标签（对出边为终点，对入边为起点）
+     * @param weight    边的权值，为正整数
+     */
+    void visit(L vertex, int weight);
+}
@@ -0,0 +1,375 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * An immutable implementation of Graph.
+ *
+ * <p>FrozenGraph是某个图在某一时刻的只读快照：顶点标签被映射为稠密的int编号，
+ * 边以压缩稀疏行（CSR）格式存放在int数组中，并额外保存一份反向CSR以支持sources()。
+ * 每行中的边按另一端顶点的编号升序排列。
+ * 修改图的方法add()、set()、remove()都会抛出UnsupportedOperationException。
+ *
+ * <p>FrozenGraph实现了CsrGraph接口，提供基于顶点编号的访问方法，使得遍历邻居时无需装箱：
+ * <pre>
+ *     int s = frozen.id(source);
+ *     for (int i = frozen.targetsStart(s); i &lt; frozen.targetsEnd(s); i++) {
+ *         int t = frozen.targetAt(i);
+ *         int w = frozen.targetWeightAt(i);
+ *     }
+ * </pre>
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class FrozenGraph<L> implements CsrGraph<L> {
+
+    //检查RI需要遍历所有边，只在启用断言时进行
+    private static final boolean CHECK_REP = FrozenGraph.class.desiredAssertionStatus();
+
+    private final Object[] labels;
+    private final Map<L, Integer> ids;
+    private final int[] targetOffsets;
+    private final int[] targets;
+    private final int[] targetWeights;
+    private final int[] sourceOffsets;
+    private final int[] sources;
+    private final int[] sourceWeights;
+
+    // Abstraction function:
+    //   AF(labels, targetOffsets, targets, targetWeights) = 一个以labels中的标签为顶点的带权有向图，
+    //       对于targetOffsets[s] <= i < targetOffsets[s+1]，
+    //       从labels[s]到labels[targets[i]]有一条权值为targetWeights[i]的有向边
+    //   sourceOffsets、sources、sourceWeights以同样方式按终点组织同一组边
+    // Representation invariant:
+    //   ids.get(labels[i]) == i，且ids的大小等于labels的长度
+    //   targetOffsets和sourceOffsets的长度都为labels.length + 1，首元素为0，单调不减，
+    //       末元素等于边数
+    //   所有权值都为正整数
+    //   每一行中的顶点编号严格递增（因此没有重复边）
+    //   反向CSR与正向CSR表示同一组边
+    // Safety from rep exposure:
+    //   所有数据都为private final，且创建后不再修改
+    //   vertices()返回不可修改的Set，sources()和targets()返回CSR行上的不可修改视图
+    //   基于编号的访问方法只返回int或不可变的标签
+
+    /**
+     * 由已经排好序的CSR数组创建快照，调用者需保证这些数组满足RI且之后不再修改
+     */
+    FrozenGraph(Object[] labels, Map<L, Integer> ids,
+                        int[] targetOffsets, int[] targets, int[] targetWeights) {
+        this.labels = labels;
+        this.ids = ids;
+        this.targetOffsets = targetOffsets;
+        this.targets = targets;
+        this.targetWeights = targetWeights;
+        int n = labels.length;
+        int m = targets.length;
+        //以计数排序由正向CSR生成反向CSR，按源点编号顺序填充，因此每行自然有序
+        this.sourceOffsets = new int[n + 1];
+        for (int i = 0; i < m; i++) {
+            sourceOffsets[targets[i] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            sourceOffsets[v + 1] += sourceOffsets[v];
+        }
+        this.sources = new int[m];
+        this.sourceWeights = new int[m];
+        int[] next = Arrays.copyOf(sourceOffsets, n);
+        for (int s = 0; s < n; s++) {
+            for (int i = targetOffsets[s]; i < targetOffsets[s + 1]; i++) {
+                int slot = next[targets[i]]++;
+                sources[slot] = s;
+                sourceWeights[slot] = targetWeights[i];
+            }
+        }
+        checkRep();
+    }
+
+    /**
+     * 创建一个图的只读快照
+     * @param graph 任意图，创建快照之后对它的修改不会影响快照
+     * @param <L>   顶点标签的类型，必须为不可变类型
+     * @return  与graph具有相同顶点和边的只读图；如果graph本身就是FrozenGraph，直接返回它
+     */
+    public static <L> FrozenGraph<L> copyOf(Graph<L> graph) {
+        if (graph instanceof FrozenGraph) {
+            return (FrozenGraph<L>) graph;
+        }
+        if (graph instanceof IndexedGraph) {
+            return copyOfIndexed((IndexedGraph<L>) graph);
+        }
+        Set<L> vertices = graph.vertices();
+        int n = vertices.size();
+        Object[] labels = new Object[n];
+        Map<L, Integer> ids = new HashMap<>(n * 4 / 3 + 1);
+        for (L vertex: vertices) {
+            labels[ids.size()] = vertex;
+            ids.put(vertex, ids.size());
+        }
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[Math.max(16, n)];
+        int[] weights = new int[targets.length];
+        long[] row = new long[16];
+        int m = 0;
+        for (int s = 0; s < n; s++) {
+            @SuppressWarnings("unchecked")
+            L source = (L) labels[s];
+            Map<L, Integer> out = graph.targets(source);
+            int degree = out.size();
+            if (row.length < degree) {
+                row = new long[Math.max(degree, row.length * 2)];
+            }
+            int k = 0;
+            for (Map.Entry<L, Integer> edge: out.entrySet()) {
+                //高32位为终点编号，低32位为正的权值，排序后即按终点编号升序
+                row[k++] = ((long) ids.get(edge.getKey()) << 32) | edge.getValue();
+            }
+            Arrays.sort(row, 0, degree);
+            if (targets.length < m + degree) {
+                int capacity = Math.max(m + degree, targets.length * 2);
+                targets = Arrays.copyOf(targets, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            for (k = 0; k < degree; k++) {
+                targets[m] = (int) (row[k] >>> 32);
+                weights[m] = (int) row[k];
+                m++;
+            }
+            offsets[s + 1] = m;
+        }
+        return new FrozenGraph<>(labels, ids, offsets, Arrays.copyOf(targets, m), Arrays.copyOf(weights, m));
+    }
+
+    /**
+     * 由编号图创建只读快照：按编号遍历邻接表，只在建立标签到新编号的映射时对每个标签哈希一次
+     * @param graph 编号图
+     * @param <L>   顶点标签的类型，必须为不可变类型
+     * @return  与graph具有相同顶点和边的只读图
+     */
+    private static <L> FrozenGraph<L> copyOfIndexed(IndexedGraph<L> graph) {
+        int limit = graph.idLimit();
+        //dense[v]为编号v在快照中的编号，编号空闲时为-1
+        int[] dense = new int[limit];
+        int n = 0;
+        for (int v = 0; v < limit; v++) {
+            dense[v] = graph.label(v) == null ? -1 : n++;
+        }
+        Object[] labels = new Object[n];
+        Map<L, Integer> ids = new HashMap<>(n * 4 / 3 + 1);
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[Math.max(16, n)];
+        int[] weights = new int[targets.length];
+        RowBuffer row = new RowBuffer(dense);
+        int m = 0;
+        for (int v = 0; v < limit; v++) {
+            int s = dense[v];
+            if (s < 0) {
+                continue;
+            }
+            L label = graph.label(v);
+            labels[s] = label;
+            ids.put(label, s);
+            row.size = 0;
+            graph.forEachTargetById(v, row);
+            Arrays.sort(row.edges, 0, row.size);
+            if (targets.length < m + row.size) {
+                int capacity = Math.max(m + row.size, targets.length * 2);
+                targets = Arrays.copyOf(targets, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            for (int k = 0; k < row.size; k++) {
+                targets[m] = (int) (row.edges[k] >>> 32);
+                weights[m] = (int) row.edges[k];
+                m++;
+            }
+            offsets[s + 1] = m;
+        }
+        return new FrozenGraph<>(labels, ids, offsets, Arrays.copyOf(targets, m), Arrays.copyOf(weights, m));
+    }
+
+    /**
+     * 收集一个顶点的出边的缓冲区，每条边打包为一个long：高32位为快照中的终点编号，低32位为正的权值
+     */
+    private static final class RowBuffer implements IdEdgeVisitor {
+
+        private final int[] dense;
+        private long[] edges = new long[16];
+        private int size = 0;
+
+        RowBuffer(int[] dense) {
+            this.dense = dense;
+        }
+
+        @Override public void visit(int vertexId, int weight) {
+            if (size == edges.length) {
+                edges = Arrays.copyOf(edges, size * 2);
+            }
+            edges[size++] = ((long) dense[vertexId] << 32) | weight;
+        }
+    }
+
+    /**
+     * 检测RI是否被保持
+     */
+    private void checkRep() {
+        if (!CHECK_REP) {
+            return;
+        }
+        int n = labels.length;
+        assert ids.size() == n;
+        assert targetOffsets.length == n + 1 && sourceOffsets.length == n + 1;
+        assert targetOffsets[0] == 0 && targetOffsets[n] == targets.length;
+        assert sourceOffsets[0] == 0 && sourceOffsets[n] == sources.length;
+        for (int v = 0; v < n; v++) {
+            assert ids.get(labels[v]) == v;
+            for (int i = targetOffsets[v]; i < targetOffsets[v + 1]; i++) {
+                assert targetWeights[i] > 0;
+                assert i == targetOffsets[v] || targets[i - 1] < targets[i];
+            }
+            for (int i = sourceOffsets[v]; i < sourceOffsets[v + 1]; i++) {
+                assert i == sourceOffsets[v] || sources[i - 1] < sources[i];
+            }
+        }
+    }
+
+    @Override public boolean add(L vertex) {
+        throw new UnsupportedOperationException("FrozenGraph is immutable");
+    }
+
+    @Override public int set(L source, L target, int weight) {
+        throw new UnsupportedOperationException("FrozenGraph is immutable");
+    }
+
+    @Override public boolean remove(L vertex) {
+        throw new UnsupportedOperationException("FrozenGraph is immutable");
+    }
+
+    @Override public Set<L> vertices() {
+        return Collections.unmodifiableSet(ids.keySet());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>由于图不可变，返回的是CSR行上的不可修改视图，不进行拷贝。
+     */
+    @Override public Map<L, Integer> sources(L target) {
+        int t = id(target);
+        if (t < 0) {
+            return Collections.emptyMap();
+        }
+        return new CsrRowView<>(this, false, sourceOffsets[t], sourceOffsets[t + 1]);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>由于图不可变，返回的是CSR行上的不可修改视图，不进行拷贝。
+     */
+    @Override public Map<L, Integer> targets(L source) {
+        int s = id(source);
+        if (s < 0) {
+            return Collections.emptyMap();
+        }
+        return new CsrRowView<>(this, true, targetOffsets[s], targetOffsets[s + 1]);
+    }
+
+    @Override public void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+        int s = id(source);
+        if (s < 0) {
+            return;
+        }
+        for (int i = targetOffsets[s]; i < targetOffsets[s + 1]; i++) {
+            visitor.visit(label(targets[i]), targetWeights[i]);
+        }
+    }
+
+    @Override public void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+        int t = id(target);
+        if (t < 0) {
+            return;
+        }
+        for (int i = sourceOffsets[t]; i < sourceOffsets[t + 1]; i++) {
+            visitor.visit(label(sources[i]), sourceWeights[i]);
+        }
+    }
+
+    @Override public FrozenGraph<L> freeze() {
+        return this;
+    }
+
+    @Override public int vertexCount() {
+        return labels.length;
+    }
+
+    @Override public int edgeCount() {
+        return targets.length;
+    }
+
+    @Override public int id(L label) {
+        Integer id = ids.get(label);
+        return id == null ? -1 : id;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override public L label(int id) {
+        return (L) labels[id];
+    }
+
+    @Override public int targetsStart(int id) {
+        return targetOffsets[id];
+    }
+
+    @Override public int targetsEnd(int id) {
+        return targetOffsets[id + 1];
+    }
+
+    @Override public int targetAt(int index) {
+        return targets[index];
+    }
+
+    @Override public int targetWeightAt(int index) {
+        return targetWeights[index];
+    }
+
+    @Override public int sourcesStart(int id) {
+        return sourceOffsets[id];
+    }
+
+    @Override public int sourcesEnd(int id) {
+        return sourceOffsets[id + 1];
+    }
+
+    @Override public int sourceAt(int index) {
+        return sources[index];
+    }
+
+    @Override public int sourceWeightAt(int index) {
+        return sourceWeights[index];
+    }
+
+    @Override public int weight(int sourceId, int targetId) {
+        int index = Arrays.binarySearch(targets, targetOffsets[sourceId], targetOffsets[sourceId + 1], targetId);
+        return index < 0 ? 0 : targetWeights[index];
+    }
+
+    /**
+     * 返回图的字符串表示
+     * @return 图的字符串表示，与writeTo()写出的内容相同
+     */
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder();
+        try {
+            writeTo(string);
+        } catch (IOException e) {
+            //StringBuilder不会抛出IOException
+            throw new AssertionError(e);
+        }
+        return string.toString();
+    }
+}
@@ -5,8 +5,10 @@ package P1.graph;
 
 import P1.graph.ConcreteEdgesGraph;
 
+import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.IntBinaryOperator;
 
 /**
  * A mutable weighted directed graph with labeled vertices.
@@ -31,6 +33,60 @@ public interface Graph<L> {
         return new ConcreteEdgesGraph<>();
     }
     
+    /**
+     * Create an empty graph indexed by hash-based forward and reverse
+     * adjacency maps, suitable for large graphs: set() takes expected O(1)
+     * time, sources() and targets() take expected time linear in the degree
+     * of the vertex. Vertices also have dense int ids, and edges can be read
+     * and modified by id without hashing labels.
+     * 
+     * @param <L> type of vertex labels in the graph, must be immutable
+     * @return a new empty weighted directed graph
+     */
+    public static <L> IndexedGraph<L> indexed() {
+        return new ConcreteAdjacencyGraph<>();
+    }
+    
+    /**
+     * Create an empty graph that may be shared safely across threads.
+     * Modifications of edges from different source vertices usually proceed
+     * without contention, and vertices(), sources() and targets() return
+     * weakly consistent snapshots.
+     * 
+     * @param <L> type of vertex labels in the graph, must be immutable
+     * @return a new empty thread-safe weighted directed graph
+     */
+    public static <L> Graph<L> concurrent() {
+        return new ConcurrentGraph<>();
+    }
+    
+    /**
+     * Wrap a graph so that it may be shared across threads by guarding every
+     * operation with a single lock. After this call the graph must only be
+     * accessed through the returned wrapper.
+     * 
+     * @param <L> type of vertex labels in the graph, must be immutable
+     * @param graph graph to wrap
+     * @return a thread-safe graph backed by graph
+     */
+    public static <L> Graph<L> synchronizedGraph(Graph<L> graph) {
+        return new SynchronizedGraph<>(graph);
+    }
+    
+    /**
+     * Wrap a graph so that the counts, latencies and result sizes of its
+     * operations are recorded, and slow operations are reported to the JDK
+     * Flight Recorder. After this call the graph should only be accessed
+     * through the returned wrapper.
+     * 
+     * @param <L> type of vertex labels in the graph, must be immutable
+     * @param graph graph to wrap
+     * @return a graph backed by graph, whose metrics() describe the operations on it
+     */
+    public static <L> InstrumentedGraph<L> instrumented(Graph<L> graph) {
+        return new InstrumentedGraph<>(graph);
+    }
+    
     /**
      * Add a vertex to this graph.
      * 
@@ -97,4 +153,147 @@ public interface Graph<L> {
      */
     public Map<L, Integer> targets(L source);
     
+    /**
+     * Combine the weight of a directed edge with a value in one step.
+     * The new weight is {@code function.applyAsInt(previous, delta)}, where
+     * previous is the current weight of the edge, or zero if there is no such
+     * edge. As with {@link #set(Object, Object, int) set}, a nonzero new weight
+     * adds or updates the edge (adding the vertices if they do not already
+     * exist), and a zero new weight removes the edge if it exists.
+     * 
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param delta value to combine with the current weight
+     * @param function combines the current weight and delta into the new weight
+     * @return the new weight of the edge, or zero if there is no such edge
+     * @throws IllegalArgumentException if the new weight would be negative (the
+     *         graph is not modified)
+     */
+    public default int merge(L source, L target, int delta, IntBinaryOperator function) {
+        Integer previous = targets(source).get(target);
+        int weight = function.applyAsInt(previous == null ? 0 : previous, delta);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight + " for edge " + source + "->" + target);
+        }
+        set(source, target, weight);
+        return weight;
+    }
+    
+    /**
+     * Add a value to the weight of a directed edge in one step; equivalent to
+     * {@code merge(source, target, delta, Integer::sum)}.
+     * 
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param delta value to add to the current weight, or to zero if there is
+     *        no such edge
+     * @return the new weight of the edge, or zero if there is no such edge
+     * @throws IllegalArgumentException if the new weight would be negative (the
+     *         graph is not modified)
+     */
+    public default int increment(L source, L target, int delta) {
+        return merge(source, target, delta, Integer::sum);
+    }
+    
+    /**
+     * Add values to the weights of many directed edges; equivalent to calling
+     * {@code increment(sources[i], targets[i], deltas[i])} for each i in order.
+     * 
+     * @param sources labels of the source vertices
+     * @param targets labels of the target vertices, same length as sources
+     * @param deltas values to add, same length as sources
+     * @throws IllegalArgumentException if the arrays differ in length, or if a
+     *         new weight would be negative (increments before it have been
+     *         applied, increments after it have not)
+     */
+    public default void incrementAll(L[] sources, L[] targets, int[] deltas) {
+        if (sources.length != targets.length || sources.length != deltas.length) {
+            throw new IllegalArgumentException("sources, targets and deltas must have the same length");
+        }
+        for (int i = 0; i < sources.length; i++) {
+            increment(sources[i], targets[i], deltas[i]);
+        }
+    }
+    
+    /**
+     * Visit the target vertices with directed edges from a source vertex and
+     * the weights of those edges. Unlike the map-returning methods, the
+     * implementations in this package neither allocate a map nor box the
+     * weights. The graph must not be modified during the visit.
+     * 
+     * @param source a label
+     * @param visitor called once for each edge from source, with the label of
+     *        the target and the (nonzero) weight of the edge
+     */
+    public default void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+        for (Map.Entry<L, Integer> edge : targets(source).entrySet()) {
+            visitor.visit(edge.getKey(), edge.getValue());
+        }
+    }
+    
+    /**
+     * Visit the source vertices with directed edges to a target vertex and
+     * the weights of those edges. Unlike the map-returning methods, the
+     * implementations in this package neither allocate a map nor box the
+     * weights. The graph must not be modified during the visit.
+     * 
+     * @param target a label
+     * @param visitor called once for each edge to target, with the label of
+     *        the source and the (nonzero) weight of the edge
+     */
+    public default void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+        for (Map.Entry<L, Integer> edge : sources(target).entrySet()) {
+            visitor.visit(edge.getKey(), edge.getValue());
+        }
+    }
+    
+    /**
+     * Get an immutable snapshot of this graph. The snapshot interns vertex
+     * labels to dense int ids and stores edges in compressed sparse row
+     * arrays, so it is much smaller than a mutable graph and supports
+     * neighbour iteration without boxing. Later changes to this graph do not
+     * affect the snapshot.
+     * 
+     * @return an immutable graph with the same vertices and edges as this graph
+     */
+    public default FrozenGraph<L> freeze() {
+        return FrozenGraph.copyOf(this);
+    }
+    
+    /**
+     * Write the string representation of this graph to an output without
+     * building it in memory first, so that large graphs can be dumped in time
+     * and space linear in the number of vertices and edges. The
+     * implementations in this package write the same text as their
+     * {@code toString()}, which delegates to this method; by default the text
+     * is {@code "vertices{v1,v2,...};edges{source-weight->target,...}"}.
+     * 
+     * @param out output to append to; it is neither flushed nor closed
+     * @throws IOException if appending to out fails
+     */
+    public default void writeTo(Appendable out) throws IOException {
+        out.append("vertices{");
+        boolean first = true;
+        for (L vertex : vertices()) {
+            if (!first) {
+                out.append(",");
+            }
+            out.append(String.valueOf(vertex));
+            first = false;
+        }
+        out.append("};edges{");
+        first = true;
+        for (L source : vertices()) {
+            for (Map.Entry<L, Integer> edge : targets(source).entrySet()) {
+                if (!first) {
+                    out.append(",");
+                }
+                out.append(String.valueOf(source)).append("-").append(String.valueOf(edge.getValue()))
+                        .append("->").append(String.valueOf(edge.getKey()));
+                first = false;
+            }
+        }
+        out.append("}");
+    }
+    
 }
@@ -0,0 +1,262 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.util.*;
+
+/**
+ * A builder that loads many weighted edges into a graph at once.
+ *
+ * <p>GraphBuilder先把(source, target, weight)三元组追加到int数组中，不做查重也不检查RI，
+ * 每个标签只在加入时哈希一次，换成稠密的编号。build()时用两趟稳定的计数排序
+ * （先按终点、再按起点，即基数排序）把三元组按起点分组，组内按终点升序，
+ * 同一条边的三元组相邻且保持加入的顺序，再按MergePolicy合并，代价为O(V + E)。
+ * 排好序的三元组可以直接作为FrozenGraph的CSR数组，也可以一遍写入任意Graph。
+ * GraphBuilder为mutable，build()之后仍可以继续加入三元组并再次build()
+ *
+ * @param <L> type of vertex labels, must be immutable
+ */
+public final class GraphBuilder<L> {
+
+    private final MergePolicy policy;
+    private final LabelDictionary<L> dictionary = new LabelDictionary<>();
+    private int[] sources = new int[16];
+    private int[] targets = new int[16];
+    private int[] weights = new int[16];
+    private int size = 0;
+
+    // Abstraction function:
+    //   AF(policy, dictionary, sources, targets, weights, size) = dictionary中的顶点，
+    //       以及按加入顺序排列的三元组(dictionary.label(sources[i]), dictionary.label(targets[i]), weights[i])，0 <= i < size，
+    //       同一条边的多个三元组按policy合并
+    // Representation invariant:
+    //   sources、targets、weights的长度相同且 >= size
+    //   sources[0..size)和targets[0..size)都小于dictionary.limit()
+    //   weights[0..size)都 >= 0
+    //   dictionary中没有被删除的标签，因此编号为0..dictionary.limit()
+    // Safety from rep exposure:
+    //   所有数据都为private，不返回任何数组，标签为不可变类型
+
+    /**
+     * Create an empty builder that resolves duplicate edges with
+     * {@link MergePolicy#LAST_WINS}.
+     */
+    public GraphBuilder() {
+        this(MergePolicy.LAST_WINS);
+    }
+
+    /**
+     * Create an empty builder.
+     *
+     * @param policy how to combine the weights of triples that give the same
+     *        directed edge
+     */
+    public GraphBuilder(MergePolicy policy) {
+        this.policy = Objects.requireNonNull(policy);
+    }
+
+    /**
+     * 检测RI是否被保持
+     */
+    private void checkRep() {
+        assert sources.length == targets.length && sources.length == weights.length;
+        assert size <= sources.length;
+        assert dictionary.size() == dictionary.limit();
+    }
+
+    /**
+     * Add a vertex, which will be in the built graph even if no edge touches
+     * it. Adding a vertex more than once has no effect.
+     *
+     * @param vertex label for the vertex
+     * @return this builder
+     */
+    public GraphBuilder<L> addVertex(L vertex) {
+        dictionary.intern(Objects.requireNonNull(vertex));
+        return this;
+    }
+
+    /**
+     * Add a (source, target, weight) triple, adding the vertices if they have
+     * not been added. Triples for the same directed edge are combined by the
+     * builder's merge policy when the graph is built; an edge whose combined
+     * weight is zero is not created by {@link #build()}, and is removed from
+     * the graph by {@link #buildInto(Graph)}.
+     *
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param weight nonnegative weight
+     * @return this builder
+     * @throws IllegalArgumentException if weight is negative
+     */
+    public GraphBuilder<L> addEdge(L source, L target, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight + " for edge " + source + "->" + target);
+        }
+        int s = dictionary.intern(Objects.requireNonNull(source));
+        int t = dictionary.intern(Objects.requireNonNull(target));
+        if (size == sources.length) {
+            int capacity = size * 2;
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        sources[size] = s;
+        targets[size] = t;
+        weights[size] = weight;
+        size++;
+        return this;
+    }
+
+    /**
+     * Get the number of vertices added so far.
+     *
+     * @return the number of distinct labels added as vertices or as ends of
+     *         triples
+     */
+    public int vertexCount() {
+        return dictionary.size();
+    }
+
+    /**
+     * Get the number of triples added so far.
+     *
+     * @return the number of triples, counting duplicates
+     */
+    public int tripleCount() {
+        return size;
+    }
+
+    /**
+     * 按起点分组、组内按终点升序排列并合并重复的边
+     * @param offsets   长度为vertexCount() + 1，返回时第s行的边为[offsets[s], offsets[s+1])
+     * @param keepZero  是否保留合并后权值为0的边
+     * @return  两个长度为边数的数组：终点编号和合并后的权值，keepZero为false时都为正数
+     * @throws IllegalArgumentException 如果某条边的权值在合并时溢出
+     */
+    private int[][] sortAndMerge(int[] offsets, boolean keepZero) {
+        int n = dictionary.limit();
+        //第一趟按终点的稳定计数排序，得到三元组的下标
+        int[] count = new int[n + 1];
+        for (int i = 0; i < size; i++) {
+            count[targets[i] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            count[v + 1] += count[v];
+        }
+        int[] byTarget = new int[size];
+        for (int i = 0; i < size; i++) {
+            byTarget[count[targets[i]]++] = i;
+        }
+        //第二趟按起点的稳定计数排序，每行内仍按终点升序，同一条边的三元组保持加入顺序
+        Arrays.fill(count, 0);
+        for (int i = 0; i < size; i++) {
+            count[sources[i] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            count[v + 1] += count[v];
+        }
+        int[] order = new int[size];
+        for (int k = 0; k < size; k++) {
+            int i = byTarget[k];
+            order[count[sources[i]]++] = i;
+        }
+        //此时count[s]为第s行的末尾，逐行合并相邻的重复边
+        int[] mergedTargets = new int[size];
+        int[] mergedWeights = new int[size];
+        int m = 0;
+        int k = 0;
+        for (int s = 0; s < n; s++) {
+            int end = count[s];
+            while (k < end) {
+                int t = targets[order[k]];
+                int weight = 0;
+                for (; k < end && targets[order[k]] == t; k++) {
+                    weight = policy.merge(weight, weights[order[k]]);
+                    if (weight < 0) {
+                        throw new IllegalArgumentException("weight overflow for edge "
+                                + dictionary.label(s) + "->" + dictionary.label(t));
+                    }
+                }
+                if (weight > 0 || keepZero) {
+                    mergedTargets[m] = t;
+                    mergedWeights[m] = weight;
+                    m++;
+                }
+            }
+            offsets[s + 1] = m;
+        }
+        return new int[][] { Arrays.copyOf(mergedTargets, m), Arrays.copyOf(mergedWeights, m) };
+    }
+
+    /**
+     * Build an immutable graph with the added vertices and the merged edges.
+     * The triples are sorted in O(V + E) time and laid out directly as the
+     * graph's rows, without going through {@link Graph#set(Object, Object, int) set}.
+     *
+     * @return a new FrozenGraph with the vertices and merged edges added so far
+     * @throws IllegalArgumentException if a merged weight overflows
+     */
+    public FrozenGraph<L> build() {
+        int n = dictionary.limit();
+        int[] offsets = new int[n + 1];
+        int[][] rows = sortAndMerge(offsets, false);
+        Object[] labels = new Object[n];
+        Map<L, Integer> ids = new HashMap<>(n * 4 / 3 + 1);
+        for (int v = 0; v < n; v++) {
+            L label = dictionary.label(v);
+            labels[v] = label;
+            ids.put(label, v);
+        }
+        checkRep();
+        return new FrozenGraph<>(labels, ids, offsets, rows[0], rows[1]);
+    }
+
+    /**
+     * Add the added vertices and merged edges to a graph, in one pass over
+     * the sorted edges. A merged edge replaces the weight of the same edge
+     * already in the graph, as if passed to {@link Graph#set(Object, Object, int) set};
+     * in particular a merged edge whose weight is zero removes that edge.
+     * Other vertices and edges of the graph are kept.
+     *
+     * @param graph the graph to build into, e.g. {@code Graph.empty()}
+     * @param <G> type of the graph
+     * @return graph
+     * @throws IllegalArgumentException if a merged weight overflows (the graph
+     *         is not modified)
+     */
+    public <G extends Graph<L>> G buildInto(G graph) {
+        int n = dictionary.limit();
+        int[] offsets = new int[n + 1];
+        //合并后权值为0的边也要写入，以删除图中已有的同一条边
+        int[][] rows = sortAndMerge(offsets, true);
+        int[] rowTargets = rows[0];
+        int[] rowWeights = rows[1];
+        if (graph instanceof IndexedGraph) {
+            //编号图只需对每个标签哈希一次，之后按编号写入
+            IndexedGraph<L> indexed = (IndexedGraph<L>) graph;
+            int[] ids = new int[n];
+            for (int v = 0; v < n; v++) {
+                ids[v] = indexed.intern(dictionary.label(v));
+            }
+            for (int s = 0; s < n; s++) {
+                for (int i = offsets[s]; i < offsets[s + 1]; i++) {
+                    indexed.setById(ids[s], ids[rowTargets[i]], rowWeights[i]);
+                }
+            }
+        } else {
+            for (int v = 0; v < n; v++) {
+                graph.add(dictionary.label(v));
+            }
+            for (int s = 0; s < n; s++) {
+                L source = dictionary.label(s);
+                for (int i = offsets[s]; i < offsets[s + 1]; i++) {
+                    graph.set(source, dictionary.label(rowTargets[i]), rowWeights[i]);
+                }
+            }
+        }
+        checkRep();
+        return graph;
+    }
+}
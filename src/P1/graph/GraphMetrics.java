@@ -0,0 +1,162 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.util.*;
+
+/**
+ * Metrics of the operations of one component, such as an instrumented graph,
+ * a poet or a friendship graph. Each operation has an {@link OperationStats};
+ * an operation that takes at least the slow threshold is also emitted as a
+ * {@code P1.graph.SlowOperation} JDK Flight Recorder event when a recording
+ * with that event enabled is running.
+ *
+ * <p>Typical use around an operation:
+ * <pre>
+ *     long start = metrics.start();
+ *     Result result = ...;
+ *     metrics.stop(stats, start, result.size(), 0);
+ * </pre>
+ * GraphMetrics is thread-safe, and recording does not lock.
+ */
+public final class GraphMetrics {
+
+    /**
+     * Default slow threshold: one millisecond.
+     */
+    public static final long DEFAULT_SLOW_NANOS = 1_000_000;
+
+    private final String component;
+    private final long slowNanos;
+    private final Map<String, OperationStats> operations;
+
+    // Abstraction function:
+    //   AF(component, slowNanos, operations) = 名为component的组件的各操作的统计，
+    //       耗时不小于slowNanos的操作被作为JFR事件提交
+    // Representation invariant:
+    //   slowNanos >= 0
+    //   operations中每个键等于对应OperationStats的name()，operations不可修改
+    // Safety from rep exposure:
+    //   operations为不可修改的Map，只返回其中线程安全的OperationStats和不可修改的键集
+    // Thread safety argument:
+    //   创建后不再修改的字段都为final，OperationStats是线程安全的
+
+    /**
+     * Create metrics for a component.
+     *
+     * @param component name of the component, reported in the flight recorder events
+     * @param slowNanos latency in nanoseconds from which an operation is
+     *        reported as slow
+     * @param operations names of the operations of the component, distinct
+     * @throws IllegalArgumentException if slowNanos is negative or the names
+     *         are not distinct
+     */
+    public GraphMetrics(String component, long slowNanos, String... operations) {
+        if (slowNanos < 0) {
+            throw new IllegalArgumentException("negative slow threshold " + slowNanos);
+        }
+        this.component = component;
+        this.slowNanos = slowNanos;
+        Map<String, OperationStats> map = new LinkedHashMap<>();
+        for (String operation : operations) {
+            if (map.put(operation, new OperationStats(operation)) != null) {
+                throw new IllegalArgumentException("duplicate operation " + operation);
+            }
+        }
+        this.operations = Collections.unmodifiableMap(map);
+        checkRep();
+    }
+
+    /**
+     * 检测RI是否被保持
+     */
+    private void checkRep() {
+        assert slowNanos >= 0;
+        for (Map.Entry<String, OperationStats> entry : operations.entrySet()) {
+            assert entry.getKey().equals(entry.getValue().name());
+        }
+    }
+
+    /**
+     * Get the statistics of an operation.
+     *
+     * @param operation name of the operation
+     * @return statistics of the operation
+     * @throws IllegalArgumentException if there is no such operation
+     */
+    public OperationStats get(String operation) {
+        OperationStats stats = operations.get(operation);
+        if (stats == null) {
+            throw new IllegalArgumentException("no operation " + operation + " in " + component);
+        }
+        return stats;
+    }
+
+    /**
+     * @return the names of the operations, in the order given at creation
+     */
+    public Set<String> operations() {
+        return operations.keySet();
+    }
+
+    /**
+     * @return the latency in nanoseconds from which an operation is reported as slow
+     */
+    public long slowNanos() {
+        return slowNanos;
+    }
+
+    /**
+     * Start timing an operation.
+     *
+     * @return the start time to pass to {@link #stop(OperationStats, long, long, long) stop}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Finish timing an operation: record it in its statistics and, if it took
+     * at least the slow threshold, emit a flight recorder event for it.
+     *
+     * @param stats statistics of the operation, from {@link #get(String) get}
+     * @param start the value returned by {@link #start()} before the operation
+     * @param size size of the result
+     * @param bytes estimated number of bytes the operation allocated
+     */
+    public void stop(OperationStats stats, long start, long size, long bytes) {
+        long nanos = System.nanoTime() - start;
+        stats.record(nanos, size, bytes);
+        if (nanos >= slowNanos) {
+            SlowOperationEvent event = new SlowOperationEvent();
+            if (event.isEnabled()) {
+                event.component = component;
+                event.operation = stats.name();
+                event.latency = nanos;
+                event.resultSize = size;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Discard the statistics of all operations.
+     */
+    public void reset() {
+        for (OperationStats stats : operations.values()) {
+            stats.reset();
+        }
+    }
+
+    /**
+     * @return the component name followed by one line per operation
+     */
+    @Override public String toString() {
+        StringBuilder string = new StringBuilder(component);
+        for (OperationStats stats : operations.values()) {
+            string.append("\n  ").append(stats);
+        }
+        return string.toString();
+    }
+}
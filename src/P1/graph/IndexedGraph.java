@@ -0,0 +1,91 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+/**
+ * A mutable graph whose vertices also have dense int ids, with methods that
+ * read and modify edges by id.
+ *
+ * <p>标签只在进出Graph接口时通过LabelDictionary转换为编号一次，
+ * 图的内部和以ById结尾的方法都只使用编号，因此遍历和修改边时不计算标签的哈希值、也不比较标签。
+ * 顶点的编号在它被删除之前不变；删除后编号可以被之后加入的顶点复用。
+ * 所有编号都小于idLimit()，idLimit()不超过同时存在的最大顶点数，因此编号可以直接作为数组下标。
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public interface IndexedGraph<L> extends Graph<L> {
+
+    /**
+     * 获得顶点的编号，顶点不存在时加入顶点
+     * @param vertex    顶点的标签
+     * @return  顶点的编号
+     */
+    public int intern(L vertex);
+
+    /**
+     * 获得顶点的编号
+     * @param vertex    顶点的标签
+     * @return  顶点的编号；如果顶点不存在，返回-1
+     */
+    public int id(L vertex);
+
+    /**
+     * 获得编号对应的顶点
+     * @param id    编号，0 <= id < idLimit()
+     * @return  编号为id的顶点的标签；编号空闲时返回null
+     */
+    public L label(int id);
+
+    /**
+     * 获得编号的上界
+     * @return  所有顶点的编号都小于这个数
+     */
+    public int idLimit();
+
+    /**
+     * 按编号设置、修改或删除一条边，语义与set()相同，但两个顶点都必须已经存在
+     * @param sourceId  起点的编号
+     * @param targetId  终点的编号
+     * @param weight    非负的权值，为0时删除边
+     * @return  边原来的权值；如果边不存在，返回0
+     * @throws IllegalArgumentException  如果某个编号没有对应的顶点，或者权值为负数
+     */
+    public int setById(int sourceId, int targetId, int weight);
+
+    /**
+     * 按编号获得一条边的权值
+     * @param sourceId  起点的编号
+     * @param targetId  终点的编号
+     * @return  边的权值；如果边或顶点不存在，返回0
+     */
+    public int weightById(int sourceId, int targetId);
+
+    /**
+     * 按编号获得一个顶点的所有出边的终点
+     * @param sourceId  起点的编号
+     * @return  一个新的数组，包含所有出边的终点编号，顺序不确定；顶点不存在时为空数组
+     */
+    public int[] targetsById(int sourceId);
+
+    /**
+     * 按编号获得一个顶点的所有入边的起点
+     * @param targetId  终点的编号
+     * @return  一个新的数组，包含所有入边的起点编号，顺序不确定；顶点不存在时为空数组
+     */
+    public int[] sourcesById(int targetId);
+
+    /**
+     * 按编号访问一个顶点的所有出边，访问期间不能修改图
+     * @param sourceId  起点的编号
+     * @param visitor   对每条出边调用一次，参数为终点的编号和边的权值
+     */
+    public void forEachTargetById(int sourceId, IdEdgeVisitor visitor);
+
+    /**
+     * 按编号访问一个顶点的所有入边，访问期间不能修改图
+     * @param targetId  终点的编号
+     * @param visitor   对每条入边调用一次，参数为起点的编号和边的权值
+     */
+    public void forEachSourceById(int targetId, IdEdgeVisitor visitor);
+}
@@ -0,0 +1,130 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.util.Arrays;
+
+/**
+ * 以int编号为元素、long为键的二叉最小堆，支持按编号降低键值。
+ * 所有数据保存在基本类型数组中，插入、降低键值和取出最小元素都不分配对象。
+ * IndexedHeap为mutable
+ */
+final class IndexedHeap {
+
+    private final int[] heap;
+    private final long[] keys;
+    //positions[v]为v在heap中的下标，不在堆中时为-1
+    private final int[] positions;
+    private int size = 0;
+    // Abstraction function:
+    //   AF(heap, keys, size) = 元素集合{heap[0], ..., heap[size-1]}，元素v的键为keys[v]
+    // Representation invariant:
+    //   0 <= size <= heap.length
+    //   对0 <= i < size，positions[heap[i]] == i；不在堆中的元素的positions为-1
+    //   对0 < i < size，keys[heap[(i-1)/2]] <= keys[heap[i]]
+    // Safety from rep exposure:
+    //   所有数据都为private final，不返回任何数组
+
+    /**
+     * 创建一个空堆
+     * @param capacity  元素编号的上界，元素编号为0到capacity-1
+     */
+    IndexedHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.keys = new long[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * 判断堆是否为空
+     * @return  堆为空时返回true
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 插入元素，或在新键更小时降低已在堆中的元素的键
+     * @param element   元素编号
+     * @param key       新的键
+     */
+    void insertOrDecrease(int element, long key) {
+        int position = positions[element];
+        if (position < 0) {
+            position = size++;
+            heap[position] = element;
+            positions[element] = position;
+        } else if (key >= keys[element]) {
+            return;
+        }
+        keys[element] = key;
+        siftUp(position);
+    }
+
+    /**
+     * 取出键最小的元素
+     * @return  最小元素的编号，堆不能为空
+     */
+    int poll() {
+        int min = heap[0];
+        positions[min] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * 清空堆，代价与堆中剩余的元素个数成正比
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int position) {
+        int element = heap[position];
+        long key = keys[element];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            int parentElement = heap[parent];
+            if (keys[parentElement] <= key) {
+                break;
+            }
+            heap[position] = parentElement;
+            positions[parentElement] = position;
+            position = parent;
+        }
+        heap[position] = element;
+        positions[element] = position;
+    }
+
+    private void siftDown(int position) {
+        int element = heap[position];
+        long key = keys[element];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int childElement = heap[child];
+            if (key <= keys[childElement]) {
+                break;
+            }
+            heap[position] = childElement;
+            positions[childElement] = position;
+            position = child;
+        }
+        heap[position] = element;
+        positions[element] = position;
+    }
+}
@@ -0,0 +1,180 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * A graph that forwards every operation to another graph and records
+ * metrics of the operations.
+ *
+ * <p>add、set、merge、incrementAll、remove、vertices、sources、targets、
+ * forEachTarget和forEachSource各有一个OperationStats，记录次数、耗时直方图、
+ * 结果大小（返回的顶点数或边数，修改操作为修改的边数）和估计分配的字节数；
+ * 耗时不小于阈值的操作作为JFR事件提交。merge()和incrementAll()直接转发给被包装的图，
+ * increment()通过merge()实现，因此都不会计入targets()和set()。
+ * 分配的字节数按返回的集合是防御性拷贝估计，对返回视图的实现会偏大。
+ * 记录只使用LongAdder，不加锁，因此InstrumentedGraph的线程安全性与被包装的图相同
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public final class InstrumentedGraph<L> implements Graph<L> {
+
+    //估计拷贝一个集合的固定开销，以及每个顶点或每条边的开销（HashMap节点、表项和装箱的权值）
+    private static final long COPY_BYTES = 64;
+    private static final long VERTEX_BYTES = 40;
+    private static final long EDGE_BYTES = 56;
+
+    private final Graph<L> graph;
+    private final GraphMetrics metrics;
+    private final OperationStats add;
+    private final OperationStats set;
+    private final OperationStats merge;
+    private final OperationStats incrementAll;
+    private final OperationStats remove;
+    private final OperationStats vertices;
+    private final OperationStats sources;
+    private final OperationStats targets;
+    private final OperationStats forEachTarget;
+    private final OperationStats forEachSource;
+
+    // Abstraction function:
+    //   AF(graph) = graph所表示的带权有向图
+    // Representation invariant:
+    //   graph != null，各OperationStats为metrics中同名的统计
+    // Safety from rep exposure:
+    //   所有数据都为private final，graph不会被返回，metrics只能用来读取和记录统计
+    // Thread safety argument:
+    //   对graph的访问与直接使用graph相同；metrics是线程安全的
+
+    /**
+     * Wrap a graph, reporting operations that take at least
+     * {@link GraphMetrics#DEFAULT_SLOW_NANOS} as slow.
+     *
+     * @param graph graph to wrap; after this call it should only be accessed
+     *        through the wrapper, or the metrics will miss those accesses
+     */
+    public InstrumentedGraph(Graph<L> graph) {
+        this(graph, GraphMetrics.DEFAULT_SLOW_NANOS);
+    }
+
+    /**
+     * Wrap a graph.
+     *
+     * @param graph graph to wrap; after this call it should only be accessed
+     *        through the wrapper, or the metrics will miss those accesses
+     * @param slowNanos latency in nanoseconds from which an operation is
+     *        reported as slow
+     * @throws IllegalArgumentException if slowNanos is negative
+     */
+    public InstrumentedGraph(Graph<L> graph, long slowNanos) {
+        this.graph = graph;
+        this.metrics = new GraphMetrics("Graph", slowNanos,
+                "add", "set", "merge", "incrementAll", "remove", "vertices", "sources", "targets", "forEachTarget", "forEachSource");
+        this.add = metrics.get("add");
+        this.set = metrics.get("set");
+        this.merge = metrics.get("merge");
+        this.incrementAll = metrics.get("incrementAll");
+        this.remove = metrics.get("remove");
+        this.vertices = metrics.get("vertices");
+        this.sources = metrics.get("sources");
+        this.targets = metrics.get("targets");
+        this.forEachTarget = metrics.get("forEachTarget");
+        this.forEachSource = metrics.get("forEachSource");
+    }
+
+    /**
+     * Get the metrics of the operations on this graph.
+     *
+     * @return live metrics, with one operation per method of Graph that this
+     *         wrapper forwards
+     */
+    public GraphMetrics metrics() {
+        return metrics;
+    }
+
+    @Override public boolean add(L vertex) {
+        long start = metrics.start();
+        boolean added = graph.add(vertex);
+        metrics.stop(add, start, added ? 1 : 0, added ? VERTEX_BYTES : 0);
+        return added;
+    }
+
+    @Override public int set(L source, L target, int weight) {
+        long start = metrics.start();
+        int previous = graph.set(source, target, weight);
+        metrics.stop(set, start, previous != weight ? 1 : 0, previous == 0 && weight != 0 ? EDGE_BYTES : 0);
+        return previous;
+    }
+
+    @Override public int merge(L source, L target, int delta, IntBinaryOperator function) {
+        long start = metrics.start();
+        int weight = graph.merge(source, target, delta, function);
+        //不知道边原来是否存在，按不分配内存记录
+        metrics.stop(merge, start, weight != 0 ? 1 : 0, 0);
+        return weight;
+    }
+
+    @Override public void incrementAll(L[] sources, L[] targets, int[] deltas) {
+        long start = metrics.start();
+        graph.incrementAll(sources, targets, deltas);
+        metrics.stop(incrementAll, start, deltas.length, 0);
+    }
+
+    @Override public boolean remove(L vertex) {
+        long start = metrics.start();
+        boolean removed = graph.remove(vertex);
+        metrics.stop(remove, start, removed ? 1 : 0, 0);
+        return removed;
+    }
+
+    @Override public Set<L> vertices() {
+        long start = metrics.start();
+        Set<L> result = graph.vertices();
+        metrics.stop(vertices, start, result.size(), COPY_BYTES + VERTEX_BYTES * result.size());
+        return result;
+    }
+
+    @Override public Map<L, Integer> sources(L target) {
+        long start = metrics.start();
+        Map<L, Integer> result = graph.sources(target);
+        metrics.stop(sources, start, result.size(), COPY_BYTES + EDGE_BYTES * result.size());
+        return result;
+    }
+
+    @Override public Map<L, Integer> targets(L source) {
+        long start = metrics.start();
+        Map<L, Integer> result = graph.targets(source);
+        metrics.stop(targets, start, result.size(), COPY_BYTES + EDGE_BYTES * result.size());
+        return result;
+    }
+
+    @Override public void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+        long start = metrics.start();
+        graph.forEachTarget(source, visitor);
+        metrics.stop(forEachTarget, start, 0, 0);
+    }
+
+    @Override public void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+        long start = metrics.start();
+        graph.forEachSource(target, visitor);
+        metrics.stop(forEachSource, start, 0, 0);
+    }
+
+    @Override public FrozenGraph<L> freeze() {
+        return graph.freeze();
+    }
+
+    @Override public void writeTo(Appendable out) throws IOException {
+        graph.writeTo(out);
+    }
+
+    @Override
+    public String toString() {
+        return graph.toString();
+    }
+}
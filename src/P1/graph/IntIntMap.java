@@ -0,0 +1,214 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.util.Arrays;
+
+/**
+ * 键为非负int、值为正int的开放寻址哈希表，用作以顶点编号为键的邻接表，存取时不进行装箱。
+ * 删除时把后面的元素向前移动，而不留下删除标记，因此探测序列不会因反复删除而变长。
+ * IntIntMap为mutable
+ */
+final class IntIntMap {
+
+    private static final int EMPTY = -1;
+    private static final int MIN_CAPACITY = 4;
+
+    //键和值交错存放在同一个数组中，使一次探测只访问一个缓存行
+    private int[] slots;
+    private int size = 0;
+    // Abstraction function:
+    //   AF(slots, size) = 一个映射，对每个slots[2i] != EMPTY，把slots[2i]映射到slots[2i+1]
+    // Representation invariant:
+    //   slots.length / 2为2的幂，且不小于MIN_CAPACITY
+    //   slots中偶数下标处不等于EMPTY的元素都非负且互不相同，个数为size，对应的值都为正整数
+    //   size <= slots.length / 2 * 3 / 4
+    //   每个键都能从它的哈希位置开始线性探测、不经过EMPTY到达
+    // Safety from rep exposure:
+    //   所有数据都为private，且不返回数组
+
+    IntIntMap() {
+        slots = new int[MIN_CAPACITY * 2];
+        Arrays.fill(slots, EMPTY);
+    }
+
+    /**
+     * 计算键在表中的初始位置
+     * @param key   非负的键
+     * @param mask  表长减1
+     * @return  键的初始探测位置
+     */
+    private static int slot(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * 获得一个键的值
+     * @param key   非负的键
+     * @return  键的值；如果键不存在，返回0
+     */
+    int get(int key) {
+        int mask = slots.length / 2 - 1;
+        for (int index = slot(key, mask); ; index = (index + 1) & mask) {
+            int current = slots[2 * index];
+            if (current == key) {
+                return slots[2 * index + 1];
+            }
+            if (current == EMPTY) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 设置一个键的值
+     * @param key   非负的键
+     * @param value 正的值
+     * @return  键原来的值；如果键不存在，返回0
+     */
+    int put(int key, int value) {
+        int mask = slots.length / 2 - 1;
+        for (int index = slot(key, mask); ; index = (index + 1) & mask) {
+            int current = slots[2 * index];
+            if (current == key) {
+                int previous = slots[2 * index + 1];
+                slots[2 * index + 1] = value;
+                return previous;
+            }
+            if (current == EMPTY) {
+                slots[2 * index] = key;
+                slots[2 * index + 1] = value;
+                if (++size > (mask + 1) * 3 / 4) {
+                    resize((mask + 1) * 2);
+                }
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 删除一个键
+     * @param key   非负的键
+     * @return  键原来的值；如果键不存在，返回0
+     */
+    int remove(int key) {
+        int mask = slots.length / 2 - 1;
+        int index = slot(key, mask);
+        while (slots[2 * index] != key) {
+            if (slots[2 * index] == EMPTY) {
+                return 0;
+            }
+            index = (index + 1) & mask;
+        }
+        int previous = slots[2 * index + 1];
+        //把探测序列中后面的元素向前移动，填补空位
+        int hole = index;
+        for (int next = (hole + 1) & mask; slots[2 * next] != EMPTY; next = (next + 1) & mask) {
+            int home = slot(slots[2 * next], mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                slots[2 * hole] = slots[2 * next];
+                slots[2 * hole + 1] = slots[2 * next + 1];
+                hole = next;
+            }
+        }
+        slots[2 * hole] = EMPTY;
+        size--;
+        return previous;
+    }
+
+    /**
+     * 获得表中键的个数
+     * @return  键的个数
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 删除所有键
+     */
+    void clear() {
+        if (size > 0) {
+            slots = new int[MIN_CAPACITY * 2];
+            Arrays.fill(slots, EMPTY);
+            size = 0;
+        }
+    }
+
+    /**
+     * 访问表中的所有键值对，顺序不确定，访问期间不能修改表
+     * @param visitor   对每个键值对调用一次
+     */
+    void forEach(IdEdgeVisitor visitor) {
+        int[] slots = this.slots;
+        for (int i = 0; i < slots.length; i += 2) {
+            if (slots[i] != EMPTY) {
+                visitor.visit(slots[i], slots[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * 获得所有键，顺序与forEach()相同
+     * @return  一个新的数组，包含所有键
+     */
+    int[] keys() {
+        int[] keys = new int[size];
+        int k = 0;
+        for (int i = 0; i < slots.length; i += 2) {
+            if (slots[i] != EMPTY) {
+                keys[k++] = slots[i];
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 获得表中的位置数，用于按位置遍历
+     * @return  位置数，位置的下标为0到capacity()-1
+     */
+    int capacity() {
+        return slots.length / 2;
+    }
+
+    /**
+     * 获得一个位置上的键
+     * @param index 位置，0 <= index < capacity()
+     * @return  该位置上的键；位置为空时返回-1
+     */
+    int keyAt(int index) {
+        return slots[2 * index];
+    }
+
+    /**
+     * 获得一个位置上的值
+     * @param index 位置，0 <= index < capacity()，且该位置不为空
+     * @return  该位置上的值
+     */
+    int valueAt(int index) {
+        return slots[2 * index + 1];
+    }
+
+    /**
+     * 改变表长并重新插入所有键
+     * @param capacity  新的表长，为2的幂
+     */
+    private void resize(int capacity) {
+        int[] old = slots;
+        slots = new int[capacity * 2];
+        Arrays.fill(slots, EMPTY);
+        int mask = capacity - 1;
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != EMPTY) {
+                int index = slot(old[i], mask);
+                while (slots[2 * index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                slots[2 * index] = old[i];
+                slots[2 * index + 1] = old[i + 1];
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts vertex labels to and from bytes, so that a graph can be stored in a
+ * file. Decoding the encoding of a label must give a label equal to it, and
+ * equal labels must have equal encodings.
+ *
+ * @param <L> type of vertex labels, must be immutable
+ */
+public interface LabelCodec<L> {
+
+    /**
+     * Codec for String labels, which stores each label as UTF-8.
+     */
+    public static final LabelCodec<String> STRING = new LabelCodec<String>() {
+        @Override public byte[] encode(String label) {
+            return label.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    /**
+     * Encode a label.
+     *
+     * @param label label to encode
+     * @return the bytes of the label; the caller may keep the array
+     */
+    public byte[] encode(L label);
+
+    /**
+     * Decode a label.
+     *
+     * @param bytes bytes produced by {@link #encode(Object) encode}; the codec
+     *        may keep the array
+     * @return the label
+     */
+    public L decode(byte[] bytes);
+}
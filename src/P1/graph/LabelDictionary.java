@@ -0,0 +1,127 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.util.*;
+
+/**
+ * A dictionary that maps vertex labels to dense int ids.
+ *
+ * <p>每个标签在加入时分配一个从0开始的编号，之后图的内部只保存和比较编号，
+ * 只有在进出Graph接口时才对标签做一次哈希查找。编号可以直接作为数组下标：
+ * 删除一个标签后，它的编号放入空闲表，下一次加入标签时优先复用，
+ * 因此所有编号都小于limit()，且limit()不超过同时存在的最大标签数。
+ * LabelDictionary为mutable
+ *
+ * @param <L> type of labels, must be immutable
+ */
+public class LabelDictionary<L> {
+
+    private final Map<L, Integer> ids = new HashMap<>();
+    private final List<L> labels = new ArrayList<>();
+    private int[] free = new int[0];
+    private int freeCount = 0;
+
+    // Abstraction function:
+    //   AF(ids, labels) = 标签到编号的一一映射，编号为i的标签是labels.get(i)，labels.get(i)为null表示编号i空闲
+    // Representation invariant:
+    //   labels.get(i) != null 时 ids.get(labels.get(i)) == i
+    //   free[0..freeCount)恰好为labels中值为null的下标
+    //   ids.size() + freeCount == labels.size()
+    // Safety from rep exposure:
+    //   ids和labels为private，不会被返回，labels()返回不可修改的视图
+    //   标签为不可变数据类型
+
+    /**
+     * 检测RI是否被保持
+     */
+    private void checkRep() {
+        assert ids.size() + freeCount == labels.size();
+    }
+
+    /**
+     * 获得标签的编号，标签不存在时加入标签并分配编号
+     * @param label 标签
+     * @return  标签的编号
+     */
+    public int intern(L label) {
+        Integer existing = ids.get(label);
+        if (existing != null) {
+            return existing;
+        }
+        int id;
+        if (freeCount > 0) {
+            id = free[--freeCount];
+            labels.set(id, label);
+        } else {
+            id = labels.size();
+            labels.add(label);
+        }
+        ids.put(label, id);
+        checkRep();
+        return id;
+    }
+
+    /**
+     * 删除一个标签，它的编号之后可以被复用
+     * @param label 标签
+     * @return  标签删除前的编号；标签不存在时返回-1
+     */
+    public int remove(Object label) {
+        Integer id = ids.remove(label);
+        if (id == null) {
+            return -1;
+        }
+        labels.set(id, null);
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, Math.max(4, freeCount * 2));
+        }
+        free[freeCount++] = id;
+        checkRep();
+        return id;
+    }
+
+    /**
+     * 获得标签的编号
+     * @param label 标签
+     * @return  标签的编号；标签不存在时返回-1
+     */
+    public int id(Object label) {
+        Integer id = ids.get(label);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * 获得编号对应的标签
+     * @param id    编号，0 <= id < limit()
+     * @return  编号为id的标签；编号空闲时返回null
+     */
+    public L label(int id) {
+        return labels.get(id);
+    }
+
+    /**
+     * 获得标签的个数
+     * @return  标签的个数
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * 获得编号的上界
+     * @return  所有编号都小于这个数
+     */
+    public int limit() {
+        return labels.size();
+    }
+
+    /**
+     * 获得所有标签的不可修改的视图，它反映字典之后的修改
+     * @return  所有标签的集合
+     */
+    public Set<L> labels() {
+        return Collections.unmodifiableSet(ids.keySet());
+    }
+}
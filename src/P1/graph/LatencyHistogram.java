@@ -0,0 +1,178 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies in nanoseconds that may be recorded into
+ * concurrently without locking.
+ *
+ * <p>桶按对数-线性划分（与HdrHistogram相同的思路）：小于8的值各占一个桶，
+ * 之后每个2的幂区间[2^k, 2^(k+1))均分为8个桶，因此任何值所在桶的宽度不超过它的1/8，
+ * 百分位数的相对误差不超过12.5%，而覆盖全部long范围只需488个桶。
+ * 每个桶是一个LongAdder，记录时只对一个桶和总和各加一次，
+ * 多个线程同时记录时LongAdder把竞争分散到不同的cell上。
+ * 读取的结果是弱一致的：与并发的记录同时读取时，不同的统计量可能来自不同的时刻
+ */
+public final class LatencyHistogram {
+
+    //每个2的幂区间划分的桶数为2^SUB_BITS
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    // Abstraction function:
+    //   AF(buckets, sum, max) = 一个值的多重集合，其中有buckets[i].sum()个值落在第i个桶中，
+    //       所有值之和为sum，最大值为max
+    // Representation invariant:
+    //   buckets中的元素都不为null
+    // Safety from rep exposure:
+    //   所有数据都为private final，不会被返回
+    // Thread safety argument:
+    //   所有数据都是final的线程安全对象LongAdder和LongAccumulator，记录和读取都不需要锁
+
+    /**
+     * Create an empty histogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 获得值所在的桶
+     * @param value 非负的值
+     * @return  桶的下标
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (magnitude - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * 获得桶中的最大值
+     * @param bucket    桶的下标
+     * @return  落在这个桶中的最大值
+     */
+    private static long highest(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int magnitude = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (magnitude - SUB_BITS);
+        return lowest + (1L << (magnitude - SUB_BITS)) - 1;
+    }
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos latency in nanoseconds; negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets[bucket(value)].increment();
+        sum.add(value);
+        //最大值很少更新，先读再写以免每次记录都竞争同一个变量
+        if (value > max.get()) {
+            max.accumulate(value);
+        }
+    }
+
+    /**
+     * Get the number of recorded latencies.
+     *
+     * @return the number of recorded latencies
+     */
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Get the mean of the recorded latencies.
+     *
+     * @return the mean latency in nanoseconds, or 0 if none were recorded
+     */
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Get the largest recorded latency.
+     *
+     * @return the largest latency in nanoseconds, or 0 if none were recorded
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Get a percentile of the recorded latencies, to within 12.5%.
+     *
+     * @param percentile between 0 and 100
+     * @return the highest latency in nanoseconds that is equivalent, to the
+     *         precision of the histogram, to the latency below which the given
+     *         percentage of the recorded latencies fall; 0 if none were recorded
+     * @throws IllegalArgumentException if percentile is not between 0 and 100
+     */
+    public long percentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("percentile out of range: " + percentile);
+        }
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highest(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Discard all recorded latencies. Latencies recorded concurrently with
+     * this call may or may not be discarded.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * @return a summary of the histogram: count, mean, median, 99th
+     *         percentile and maximum, in microseconds
+     */
+    @Override public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+                count(), mean() / 1e3, percentile(50) / 1e3, percentile(99) / 1e3, max() / 1e3);
+    }
+}
@@ -0,0 +1,569 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+/**
+ * An immutable graph served directly from a memory-mapped file.
+ *
+ * <p>write()把图保存为二进制文件，open()用FileChannel.map以只读方式映射文件，
+ * 所有查询都直接读取映射的页，不把图载入堆中，因此打开文件的时间与图的大小无关，
+ * 多个进程打开同一个文件时共享操作系统的页缓存。
+ *
+ * <p>文件由64字节的文件头和若干段组成，所有整数都为小端序，每段从8字节对齐的位置开始：
+ * <pre>
+ *     文件头      magic、version、顶点数n、边数m、散列表大小、标签字节数、其余各段的CRC32C校验和
+ *     int[n+1]    出边CSR的行偏移     int[m] 出边终点    int[m] 出边权值
+ *     int[n+1]    入边CSR的行偏移     int[m] 入边起点    int[m] 入边权值
+ *     int[n+1]    各标签在标签段中的偏移
+ *     int[t]      按标签字节的散列值开放寻址的散列表，保存顶点编号加1，0表示空位
+ *     byte[]      由LabelCodec编码的所有标签
+ * </pre>
+ * open()只检查文件头和文件大小，校验和由verify()检查，因为它需要读取整个文件。
+ * 每段的大小不能超过2GB。
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class MappedGraph<L> implements CsrGraph<L> {
+
+    private static final int MAGIC = 0x47525343;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path path;
+    private final LabelCodec<L> codec;
+    private final int vertexCount;
+    private final int edgeCount;
+    private final long checksum;
+    private final IntBuffer targetOffsets;
+    private final IntBuffer targets;
+    private final IntBuffer targetWeights;
+    private final IntBuffer sourceOffsets;
+    private final IntBuffer sources;
+    private final IntBuffer sourceWeights;
+    private final IntBuffer labelOffsets;
+    private final IntBuffer table;
+    private final ByteBuffer labels;
+
+    // Abstraction function:
+    //   AF(targetOffsets, targets, targetWeights, labelOffsets, labels) = 一个有vertexCount个顶点的带权有向图，
+    //       编号为v的顶点的标签为codec对labels[labelOffsets[v], labelOffsets[v+1])解码的结果，
+    //       对targetOffsets[s] <= i < targetOffsets[s+1]，从s到targets[i]有一条权值为targetWeights[i]的边
+    //   sourceOffsets、sources、sourceWeights以同样方式按终点组织同一组边
+    // Representation invariant:
+    //   各缓冲区的长度与文件头中的顶点数、边数和散列表大小一致
+    //   文件由write()写出，满足FrozenGraph的RI：偏移单调不减、每行的顶点编号严格递增、权值为正，
+    //       正向和反向CSR表示同一组边；散列表的大小为2的幂且大于顶点数
+    // Safety from rep exposure:
+    //   所有数据都为private final，映射为只读，只通过绝对位置读取，不改变缓冲区的状态
+    //   sources()和targets()返回不可修改的视图，vertices()返回不可修改的Set
+
+    /**
+     * 由文件头和映射的段创建图
+     */
+    private MappedGraph(Path path, LabelCodec<L> codec, int vertexCount, int edgeCount, long checksum,
+                        IntBuffer[] sections, ByteBuffer labels) {
+        this.path = path;
+        this.codec = codec;
+        this.vertexCount = vertexCount;
+        this.edgeCount = edgeCount;
+        this.checksum = checksum;
+        this.targetOffsets = sections[0];
+        this.targets = sections[1];
+        this.targetWeights = sections[2];
+        this.sourceOffsets = sections[3];
+        this.sources = sections[4];
+        this.sourceWeights = sections[5];
+        this.labelOffsets = sections[6];
+        this.table = sections[7];
+        this.labels = labels;
+        checkRep();
+    }
+
+    /**
+     * 检测RI是否被保持，只检查不需要读取整个文件的部分
+     */
+    private void checkRep() {
+        assert targetOffsets.capacity() == vertexCount + 1 && sourceOffsets.capacity() == vertexCount + 1;
+        assert targets.capacity() == edgeCount && sources.capacity() == edgeCount;
+        assert Integer.bitCount(table.capacity()) == 1 && table.capacity() > vertexCount;
+    }
+
+    /**
+     * 计算各段的长度（以字节为单位）
+     * @param vertexCount   顶点数
+     * @param edgeCount     边数
+     * @param tableSize     散列表大小
+     * @param labelBytes    标签段的字节数
+     * @return  各段的字节数，依次为文件头之后的8个int段和标签段
+     */
+    private static long[] sectionSizes(int vertexCount, int edgeCount, int tableSize, long labelBytes) {
+        long offsets = 4L * (vertexCount + 1);
+        long edges = 4L * edgeCount;
+        return new long[] {offsets, edges, edges, offsets, edges, edges, offsets, 4L * tableSize, labelBytes};
+    }
+
+    /**
+     * 把一个段的长度向上取整为8的倍数
+     */
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * 计算标签字节的散列值
+     */
+    private static int hash(byte[] bytes) {
+        int hash = 0x811c9dc5;
+        for (byte b: bytes) {
+            hash = (hash ^ (b & 0xff)) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * 把图保存为可以用open()映射的文件。先写入同一目录下的临时文件，完成后再替换path，
+     * 因此已经打开path的进程不受影响
+     * @param graph 要保存的图
+     * @param codec 标签的编码方式
+     * @param path  文件路径，已存在时被替换
+     * @param <L>   顶点标签的类型，必须为不可变类型
+     * @throws IOException 如果写入文件失败，或者图太大而某一段超过2GB
+     */
+    public static <L> void write(Graph<L> graph, LabelCodec<L> codec, Path path) throws IOException {
+        CsrGraph<L> csr = graph instanceof CsrGraph ? (CsrGraph<L>) graph : graph.freeze();
+        int n = csr.vertexCount();
+        int m = csr.edgeCount();
+        byte[][] encoded = new byte[n][];
+        long labelBytes = 0;
+        for (int v = 0; v < n; v++) {
+            encoded[v] = codec.encode(csr.label(v));
+            labelBytes += encoded[v].length;
+        }
+        //散列表的装载因子不超过1/2
+        long slotCount = Long.highestOneBit(Math.max(1, n)) * 4;
+        for (long size: sectionSizes(n, m, (int) Math.min(slotCount, Integer.MAX_VALUE), labelBytes)) {
+            if (size > Integer.MAX_VALUE || slotCount > Integer.MAX_VALUE / 4) {
+                throw new IOException("graph too large for mapped format: section of " + size + " bytes");
+            }
+        }
+        int tableSize = (int) slotCount;
+        int[] slots = new int[tableSize];
+        for (int v = 0; v < n; v++) {
+            int slot = hash(encoded[v]) & (tableSize - 1);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            slots[slot] = v + 1;
+        }
+
+        Path directory = path.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            SectionWriter writer = new SectionWriter(channel);
+            //出边CSR
+            for (int v = 0; v <= n; v++) {
+                writer.putInt(v < n ? csr.targetsStart(v) : m);
+            }
+            writer.align();
+            for (int i = 0; i < m; i++) {
+                writer.putInt(csr.targetAt(i));
+            }
+            writer.align();
+            for (int i = 0; i < m; i++) {
+                writer.putInt(csr.targetWeightAt(i));
+            }
+            writer.align();
+            //入边CSR
+            for (int v = 0; v <= n; v++) {
+                writer.putInt(v < n ? csr.sourcesStart(v) : m);
+            }
+            writer.align();
+            for (int i = 0; i < m; i++) {
+                writer.putInt(csr.sourceAt(i));
+            }
+            writer.align();
+            for (int i = 0; i < m; i++) {
+                writer.putInt(csr.sourceWeightAt(i));
+            }
+            writer.align();
+            //标签偏移、散列表和标签
+            int offset = 0;
+            for (int v = 0; v <= n; v++) {
+                writer.putInt(offset);
+                offset += v < n ? encoded[v].length : 0;
+            }
+            writer.align();
+            for (int slot: slots) {
+                writer.putInt(slot);
+            }
+            writer.align();
+            for (byte[] bytes: encoded) {
+                writer.putBytes(bytes);
+            }
+            writer.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m).putInt(tableSize).putInt(0);
+            header.putLong(labelBytes).putLong(writer.checksum());
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 顺序写入文件头之后的各段，同时计算校验和
+     */
+    private static final class SectionWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C crc = new CRC32C();
+        private long position = HEADER_SIZE;
+
+        SectionWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < Integer.BYTES) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        /**
+         * 用0填充到8字节对齐的位置
+         */
+        void align() throws IOException {
+            while (((position + buffer.position()) & 7) != 0) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                buffer.put((byte) 0);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+
+        long checksum() {
+            return crc.getValue();
+        }
+    }
+
+    /**
+     * 以只读方式映射write()写出的文件。只读取文件头，不读取图的其余部分
+     * @param path  文件路径
+     * @param codec 标签的编码方式，必须与写入时相同
+     * @param <L>   顶点标签的类型，必须为不可变类型
+     * @return  由映射的文件提供数据的只读图
+     * @throws IOException 如果读取文件失败，或者文件不是这种格式、版本不同或大小与文件头不一致
+     */
+    public static <L> MappedGraph<L> open(Path path, LabelCodec<L> codec) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException(path + ": truncated header");
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException(path + ": not a mapped graph file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(path + ": unsupported version " + version);
+            }
+            int n = header.getInt();
+            int m = header.getInt();
+            int tableSize = header.getInt();
+            header.getInt();
+            long labelBytes = header.getLong();
+            long checksum = header.getLong();
+            if (n < 0 || m < 0 || labelBytes < 0 || tableSize <= n || Integer.bitCount(tableSize) != 1) {
+                throw new IOException(path + ": corrupt header");
+            }
+            long[] sizes = sectionSizes(n, m, tableSize, labelBytes);
+            long expected = HEADER_SIZE;
+            for (long size: sizes) {
+                expected += align(size);
+            }
+            //最后一段不需要填充
+            expected -= align(labelBytes) - labelBytes;
+            if (channel.size() != expected) {
+                throw new IOException(path + ": expected " + expected + " bytes but found " + channel.size());
+            }
+            IntBuffer[] sections = new IntBuffer[sizes.length - 1];
+            long position = HEADER_SIZE;
+            for (int i = 0; i < sections.length; i++) {
+                sections[i] = map(channel, position, sizes[i]).asIntBuffer();
+                position += align(sizes[i]);
+            }
+            ByteBuffer labels = map(channel, position, labelBytes);
+            return new MappedGraph<>(path, codec, n, m, checksum, sections, labels);
+        }
+    }
+
+    /**
+     * 以只读方式映射文件的一段，关闭FileChannel后映射仍然有效
+     */
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * 读取整个文件并检查校验和
+     * @return  文件头之后的内容与写入时相同时返回true
+     * @throws IOException 如果读取文件失败
+     */
+    public boolean verify() throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = HEADER_SIZE; position < size; position += Integer.MAX_VALUE) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(Integer.MAX_VALUE, size - position)));
+            }
+        }
+        return crc.getValue() == checksum;
+    }
+
+    @Override public boolean add(L vertex) {
+        throw new UnsupportedOperationException("MappedGraph is immutable");
+    }
+
+    @Override public int set(L source, L target, int weight) {
+        throw new UnsupportedOperationException("MappedGraph is immutable");
+    }
+
+    @Override public boolean remove(L vertex) {
+        throw new UnsupportedOperationException("MappedGraph is immutable");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>返回的是不可修改的视图，遍历时才从文件中解码标签。
+     */
+    @Override public Set<L> vertices() {
+        return new AbstractSet<L>() {
+            @Override public int size() {
+                return vertexCount;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override public boolean contains(Object o) {
+                try {
+                    return o != null && id((L) o) >= 0;
+                } catch (ClassCastException e) {
+                    return false;
+                }
+            }
+
+            @Override public Iterator<L> iterator() {
+                return new Iterator<L>() {
+                    private int next = 0;
+
+                    @Override public boolean hasNext() {
+                        return next < vertexCount;
+                    }
+
+                    @Override public L next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return label(next++);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>返回的是映射的CSR行上的不可修改视图，不进行拷贝。
+     */
+    @Override public Map<L, Integer> sources(L target) {
+        int t = id(target);
+        return t < 0 ? Collections.emptyMap() : new CsrRowView<>(this, false, sourcesStart(t), sourcesEnd(t));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>返回的是映射的CSR行上的不可修改视图，不进行拷贝。
+     */
+    @Override public Map<L, Integer> targets(L source) {
+        int s = id(source);
+        return s < 0 ? Collections.emptyMap() : new CsrRowView<>(this, true, targetsStart(s), targetsEnd(s));
+    }
+
+    @Override public void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+        int s = id(source);
+        if (s < 0) {
+            return;
+        }
+        for (int i = targetsStart(s), end = targetsEnd(s); i < end; i++) {
+            visitor.visit(label(targets.get(i)), targetWeights.get(i));
+        }
+    }
+
+    @Override public void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+        int t = id(target);
+        if (t < 0) {
+            return;
+        }
+        for (int i = sourcesStart(t), end = sourcesEnd(t); i < end; i++) {
+            visitor.visit(label(sources.get(i)), sourceWeights.get(i));
+        }
+    }
+
+    @Override public int vertexCount() {
+        return vertexCount;
+    }
+
+    @Override public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>编码标签后在文件中的散列表里查找，期望比较一次标签字节。
+     */
+    @Override public int id(L label) {
+        byte[] bytes = codec.encode(label);
+        int mask = table.capacity() - 1;
+        for (int slot = hash(bytes) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table.get(slot);
+            if (entry == 0) {
+                return -1;
+            }
+            int id = entry - 1;
+            if (labelEquals(id, bytes)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * 判断编号为id的顶点的标签字节是否与bytes相同
+     */
+    private boolean labelEquals(int id, byte[] bytes) {
+        int start = labelOffsets.get(id);
+        int length = labelOffsets.get(id + 1) - start;
+        if (length != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (labels.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>每次调用都从文件中解码标签，返回新的对象。
+     */
+    @Override public L label(int id) {
+        int start = labelOffsets.get(id);
+        byte[] bytes = new byte[labelOffsets.get(id + 1) - start];
+        labels.get(start, bytes);
+        return codec.decode(bytes);
+    }
+
+    @Override public int targetsStart(int id) {
+        return targetOffsets.get(id);
+    }
+
+    @Override public int targetsEnd(int id) {
+        return targetOffsets.get(id + 1);
+    }
+
+    @Override public int targetAt(int index) {
+        return targets.get(index);
+    }
+
+    @Override public int targetWeightAt(int index) {
+        return targetWeights.get(index);
+    }
+
+    @Override public int sourcesStart(int id) {
+        return sourceOffsets.get(id);
+    }
+
+    @Override public int sourcesEnd(int id) {
+        return sourceOffsets.get(id + 1);
+    }
+
+    @Override public int sourceAt(int index) {
+        return sources.get(index);
+    }
+
+    @Override public int sourceWeightAt(int index) {
+        return sourceWeights.get(index);
+    }
+
+    /**
+     * 返回图的字符串表示
+     * @return 图的字符串表示，与writeTo()写出的内容相同
+     */
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder();
+        try {
+            writeTo(string);
+        } catch (IOException e) {
+            //StringBuilder不会抛出IOException
+            throw new AssertionError(e);
+        }
+        return string.toString();
+    }
+}
@@ -0,0 +1,51 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+/**
+ * How a {@link GraphBuilder} combines the weights of several triples that
+ * give the same directed edge. The weights are combined in the order the
+ * triples were added. An edge whose combined weight is zero is not created
+ * by {@link GraphBuilder#build()}, and {@link GraphBuilder#buildInto(Graph)}
+ * removes it from the graph it builds into.
+ */
+public enum MergePolicy {
+
+    /**
+     * The weight of the last triple, as if each triple were passed to
+     * {@link Graph#set(Object, Object, int) set} in order.
+     */
+    LAST_WINS {
+        @Override int merge(int previous, int weight) {
+            return weight;
+        }
+    },
+
+    /**
+     * The sum of the weights, as if each triple were passed to
+     * {@link Graph#increment(Object, Object, int) increment} in order.
+     */
+    SUM {
+        @Override int merge(int previous, int weight) {
+            return previous + weight;
+        }
+    },
+
+    /**
+     * The largest of the weights.
+     */
+    MAX {
+        @Override int merge(int previous, int weight) {
+            return Math.max(previous, weight);
+        }
+    };
+
+    /**
+     * 合并同一条边的权值
+     * @param previous  之前的三元组合并得到的权值，>= 0
+     * @param weight    下一个三元组的权值，>= 0
+     * @return  合并后的权值，溢出时可能为负数
+     */
+    abstract int merge(int previous, int weight);
+}
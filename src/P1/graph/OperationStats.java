@@ -0,0 +1,117 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of one kind of operation: how many times it ran, how long it
+ * took, how large its results were and roughly how much memory it allocated.
+ * May be recorded into concurrently without locking; see
+ * {@link LatencyHistogram} for the consistency of what is read.
+ */
+public final class OperationStats {
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder resultSize = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    // Abstraction function:
+    //   AF(name, latency, resultSize, allocatedBytes) = 名为name的操作的统计，
+    //       每次操作的耗时记录在latency中，结果大小和估计分配的字节数分别累加到resultSize和allocatedBytes
+    // Representation invariant:
+    //   name不为空
+    // Safety from rep exposure:
+    //   name为不可变类型；latency被返回，但它本身就是供调用者读取的线程安全的统计
+    // Thread safety argument:
+    //   所有数据都是final的不可变对象或线程安全对象
+
+    /**
+     * 创建一种操作的统计
+     * @param name  操作的名字
+     */
+    OperationStats(String name) {
+        this.name = name;
+        checkRep();
+    }
+
+    /**
+     * 检测RI是否被保持
+     */
+    private void checkRep() {
+        assert !name.isEmpty();
+    }
+
+    /**
+     * Record one run of the operation.
+     *
+     * @param nanos how long the operation took, in nanoseconds
+     * @param size size of the result, e.g. the number of entries returned
+     * @param bytes estimated number of bytes the operation allocated
+     */
+    public void record(long nanos, long size, long bytes) {
+        latency.record(nanos);
+        if (size != 0) {
+            resultSize.add(size);
+        }
+        if (bytes != 0) {
+            allocatedBytes.add(bytes);
+        }
+    }
+
+    /**
+     * @return the name of the operation
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return the number of recorded runs
+     */
+    public long count() {
+        return latency.count();
+    }
+
+    /**
+     * @return the histogram of recorded latencies
+     */
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    /**
+     * @return the total size of the results of the recorded runs
+     */
+    public long resultSize() {
+        return resultSize.sum();
+    }
+
+    /**
+     * @return the estimated total number of bytes allocated by the recorded runs
+     */
+    public long allocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    /**
+     * Discard all recorded runs.
+     */
+    public void reset() {
+        latency.reset();
+        resultSize.reset();
+        allocatedBytes.reset();
+    }
+
+    /**
+     * @return the name followed by a summary of the latencies, mean result
+     *         size and total allocation
+     */
+    @Override public String toString() {
+        long count = count();
+        return String.format("%s %s size=%.1f alloc=%dB", name, latency,
+                count == 0 ? 0.0 : (double) resultSize() / count, allocatedBytes());
+    }
+}
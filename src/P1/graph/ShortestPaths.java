@@ -0,0 +1,235 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * 在带权有向图上计算最短路径，路径长度为路径上各边权值之和。
+ *
+ * <p>创建时把图冻结为FrozenGraph（图本身是CsrGraph时直接使用），此后在int编号的CSR邻接表上运行Dijkstra算法，
+ * 优先队列为基本类型数组实现的IndexedHeap。点到点查询在终点出队时立即结束；
+ * 还可以提供估价函数运行A*算法。距离、前驱和堆在查询之间复用，用epoch区分不同查询，
+ * 因此一次查询只分配结果路径，松弛边时不分配对象。
+ * ShortestPaths为mutable（保存查询之间复用的状态），不能在线程之间共享
+ *
+ * @param <L> type of vertex labels in the graph, must be immutable
+ */
+public class ShortestPaths<L> {
+
+    private final CsrGraph<L> graph;
+    private final long[] distances;
+    private final int[] previous;
+    private final int[] marks;
+    private final long[] estimates;
+    private final int[] estimateMarks;
+    private final IndexedHeap heap;
+    private int epoch = 0;
+    // Abstraction function:
+    //   AF(graph) = graph上的最短路径查询
+    // Representation invariant:
+    //   distances、previous、marks、estimates、estimateMarks的长度都为graph.vertexCount()
+    //   marks[v] == epoch 时，distances[v]为本次查询中已找到的从起点到v的最短距离上界，
+    //       previous[v]为相应路径上v的前驱（起点的前驱为-1）
+    //   estimateMarks[v] == epoch 时，estimates[v]为本次查询中v的估价
+    //   两次查询之间heap为空
+    // Safety from rep exposure:
+    //   所有数据都为private final；graph不可变，查询返回新建的Path
+
+    /**
+     * 为一个图创建最短路径查询
+     * @param graph 带权有向图，之后对它的修改不会反映到查询中
+     */
+    public ShortestPaths(Graph<L> graph) {
+        this.graph = graph instanceof CsrGraph ? (CsrGraph<L>) graph : graph.freeze();
+        int n = this.graph.vertexCount();
+        this.distances = new long[n];
+        this.previous = new int[n];
+        this.marks = new int[n];
+        this.estimates = new long[n];
+        this.estimateMarks = new int[n];
+        this.heap = new IndexedHeap(n);
+    }
+
+    /**
+     * 检测RI是否被保持
+     */
+    private void checkRep() {
+        assert heap.isEmpty();
+    }
+
+    /**
+     * 计算两个顶点之间的最短距离
+     * @param source    起点
+     * @param target    终点
+     * @return  最短路径上的权值之和；起点与终点相同时为0；不可达或顶点不在图中时为-1
+     */
+    public long distance(L source, L target) {
+        Optional<Path<L>> path = shortestPath(source, target);
+        return path.isPresent() ? path.get().length() : -1;
+    }
+
+    /**
+     * 用Dijkstra算法计算两个顶点之间的最短路径
+     * @param source    起点
+     * @param target    终点
+     * @return  最短路径；不可达或顶点不在图中时为空
+     */
+    public Optional<Path<L>> shortestPath(L source, L target) {
+        return search(source, target, null);
+    }
+
+    /**
+     * 用A*算法计算两个顶点之间的最短路径
+     * @param source    起点
+     * @param target    终点
+     * @param heuristic 估价函数，返回从顶点到target的距离下界，必须非负且满足一致性：
+     *                  对每条权值为w的边u->v，heuristic(u) <= w + heuristic(v)
+     * @return  最短路径；不可达或顶点不在图中时为空
+     * @throws IllegalArgumentException 如果估价函数返回负数
+     */
+    public Optional<Path<L>> shortestPath(L source, L target, ToLongFunction<? super L> heuristic) {
+        return search(source, target, heuristic);
+    }
+
+    /**
+     * 从source开始搜索，直到target出队
+     * @param heuristic 估价函数，为null时运行Dijkstra算法
+     */
+    private Optional<Path<L>> search(L source, L target, ToLongFunction<? super L> heuristic) {
+        int s = graph.id(source);
+        int t = graph.id(target);
+        if (s < 0 || t < 0) {
+            return Optional.empty();
+        }
+        newQuery();
+        marks[s] = epoch;
+        distances[s] = 0;
+        previous[s] = -1;
+        heap.insertOrDecrease(s, estimate(s, heuristic));
+        boolean found = false;
+        try {
+            while (!heap.isEmpty()) {
+                int u = heap.poll();
+                if (u == t) {
+                    found = true;
+                    break;
+                }
+                long distance = distances[u];
+                for (int i = graph.targetsStart(u), end = graph.targetsEnd(u); i < end; i++) {
+                    int v = graph.targetAt(i);
+                    long candidate = distance + graph.targetWeightAt(i);
+                    if (marks[v] != epoch) {
+                        marks[v] = epoch;
+                    } else if (candidate >= distances[v]) {
+                        continue;
+                    }
+                    distances[v] = candidate;
+                    previous[v] = u;
+                    heap.insertOrDecrease(v, candidate + estimate(v, heuristic));
+                }
+            }
+        } finally {
+            //估价函数抛出异常时也要清空堆，之后的查询才能复用它
+            heap.clear();
+        }
+        checkRep();
+        if (!found) {
+            return Optional.empty();
+        }
+        int hops = 0;
+        for (int v = t; v != s; v = previous[v]) {
+            hops++;
+        }
+        List<L> vertices = new ArrayList<>(Collections.nCopies(hops + 1, (L) null));
+        for (int v = t, i = hops; i >= 0; v = previous[v], i--) {
+            vertices.set(i, graph.label(v));
+        }
+        return Optional.of(new Path<>(distances[t], vertices));
+    }
+
+    /**
+     * 获得顶点的估价，每次查询中对每个顶点只调用一次估价函数
+     */
+    private long estimate(int vertex, ToLongFunction<? super L> heuristic) {
+        if (heuristic == null) {
+            return 0;
+        }
+        if (estimateMarks[vertex] != epoch) {
+            long estimate = heuristic.applyAsLong(graph.label(vertex));
+            if (estimate < 0) {
+                throw new IllegalArgumentException("negative estimate " + estimate + " for " + graph.label(vertex));
+            }
+            estimateMarks[vertex] = epoch;
+            estimates[vertex] = estimate;
+        }
+        return estimates[vertex];
+    }
+
+    /**
+     * 开始一次新的查询，使上一次查询的标记失效
+     */
+    private void newQuery() {
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            Arrays.fill(estimateMarks, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * 一条带权路径，Path为immutable
+     *
+     * @param <L> type of vertex labels
+     */
+    public static final class Path<L> {
+
+        private final long length;
+        private final List<L> vertices;
+        // Abstraction function:
+        //   AF(length, vertices) = 依次经过vertices中各顶点、权值之和为length的路径
+        // Representation invariant:
+        //   length >= 0，vertices非空
+        // Safety from rep exposure:
+        //   所有数据都为private final，vertices()返回不可修改的List
+
+        private Path(long length, List<L> vertices) {
+            this.length = length;
+            this.vertices = Collections.unmodifiableList(vertices);
+        }
+
+        /**
+         * 获得路径长度
+         * @return  路径上各边权值之和
+         */
+        public long length() {
+            return length;
+        }
+
+        /**
+         * 获得路径经过的顶点
+         * @return  从起点到终点依次经过的顶点，不可修改
+         */
+        public List<L> vertices() {
+            return vertices;
+        }
+
+        /**
+         * 返回路径的字符串表示
+         * @return  路径的字符串表示，格式为"v1->v2->...->vn(length)"
+         */
+        @Override
+        public String toString() {
+            StringBuilder string = new StringBuilder();
+            for (L vertex: vertices) {
+                if (string.length() > 0) {
+                    string.append("->");
+                }
+                string.append(vertex);
+            }
+            return string.append("(").append(length).append(")").toString();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder中的慢操作事件：GraphMetrics记录的某次操作的耗时达到阈值时提交。
+ * 耗时在操作结束后才知道，因此放在latency字段中，事件本身的开始时间为提交的时刻
+ */
+@Name("P1.graph.SlowOperation")
+@Label("Slow Graph Operation")
+@Category({"P1", "Graph"})
+@Description("A graph or query operation that took at least the slow threshold of its metrics")
+@StackTrace(true)
+class SlowOperationEvent extends jdk.jfr.Event {
+
+    @Label("Component")
+    String component;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+
+    @Label("Result Size")
+    long resultSize;
+}
@@ -0,0 +1,116 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * 用一把锁保护另一个图的所有操作，使其可以在线程之间共享。
+ * 所有操作都在同一个对象上同步，因此并发操作之间完全互斥。
+ */
+class SynchronizedGraph<L> implements P1.graph.Graph<L> {
+
+    private final Graph<L> graph;
+    private final Object mutex = new Object();
+
+    // Abstraction function:
+    //   AF(graph) = graph所表示的带权有向图
+    // Representation invariant:
+    //   graph != null
+    // Safety from rep exposure:
+    //   所有数据都为private final，graph不会被返回；
+    //   vertices()、sources()和targets()在持有锁时返回graph的结果，调用者应只使用防御性拷贝的实现
+    // Thread safety argument:
+    //   对graph的每次访问都在持有mutex时进行
+
+    /**
+     * 创建一个同步的图
+     * @param graph 被保护的图，之后只能通过这个同步的图访问
+     */
+    SynchronizedGraph(Graph<L> graph) {
+        this.graph = graph;
+    }
+
+    @Override public boolean add(L vertex) {
+        synchronized (mutex) {
+            return graph.add(vertex);
+        }
+    }
+
+    @Override public int set(L source, L target, int weight) {
+        synchronized (mutex) {
+            return graph.set(source, target, weight);
+        }
+    }
+
+    @Override public int merge(L source, L target, int delta, IntBinaryOperator function) {
+        synchronized (mutex) {
+            return graph.merge(source, target, delta, function);
+        }
+    }
+
+    @Override public void incrementAll(L[] sources, L[] targets, int[] deltas) {
+        synchronized (mutex) {
+            graph.incrementAll(sources, targets, deltas);
+        }
+    }
+
+    @Override public boolean remove(L vertex) {
+        synchronized (mutex) {
+            return graph.remove(vertex);
+        }
+    }
+
+    @Override public Set<L> vertices() {
+        synchronized (mutex) {
+            return graph.vertices();
+        }
+    }
+
+    @Override public Map<L, Integer> sources(L target) {
+        synchronized (mutex) {
+            return graph.sources(target);
+        }
+    }
+
+    @Override public Map<L, Integer> targets(L source) {
+        synchronized (mutex) {
+            return graph.targets(source);
+        }
+    }
+
+    @Override public void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+        synchronized (mutex) {
+            graph.forEachTarget(source, visitor);
+        }
+    }
+
+    @Override public void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+        synchronized (mutex) {
+            graph.forEachSource(target, visitor);
+        }
+    }
+
+    @Override public FrozenGraph<L> freeze() {
+        synchronized (mutex) {
+            return graph.freeze();
+        }
+    }
+
+    @Override public void writeTo(Appendable out) throws IOException {
+        synchronized (mutex) {
+            graph.writeTo(out);
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (mutex) {
+            return graph.toString();
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.poet;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import P1.graph.CsrGraph;
+
+/**
+ * 为单词对(w1, w2)查找桥接词的索引。
+ *
+ * <p>候选桥接词b必须同时是w1的出边终点和w2的入边起点。由于CsrGraph中每行的顶点编号有序，
+ * 查找时对w1的出边行和w2的入边行求交集：遍历较短的一行，在较长的一行中向前二分查找，
+ * 因此每次查找的代价为O(min(out(w1), in(w2)) * log(max(out(w1), in(w2))))。
+ * 候选桥接词按BridgeScoring计算的得分排序；如果有trigram计数，则先按w1 b w2连续出现的次数排序，
+ * 次数相同时再按得分排序；都相同时编号较小的优先。前k个候选词用大小为k的堆选出。
+ * 可选地把最佳桥接词保存在容量有限的LRU缓存中，命中时为O(1)，并统计命中和未命中的次数。
+ * BridgeIndex是线程安全的
+ */
+final class BridgeIndex {
+
+    private static final int NO_BRIDGE = -1;
+
+    private final CsrGraph<String> graph;
+    private final LongIntHashMap trigrams;
+    private final BridgeScoring scoring;
+    private final int capacity;
+    private final Map<Long, Integer> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // Abstraction function:
+    //   AF(graph, trigrams, scoring, capacity, cache) = graph上按scoring和trigrams排序候选词的桥接词查找表，
+    //       cache中保存最近查找过的至多capacity个单词对的结果，
+    //       键为两个单词编号打包成的long，值为桥接词的编号（NO_BRIDGE表示没有桥接词）
+    // Representation invariant:
+    //   capacity >= 0，cache.size() <= capacity
+    //   cache中的每个值都等于对相应单词对调用find()的结果
+    //   trigrams为null或者其键由graph中的编号按CorpusCounter.pack(i, j, k)打包而成
+    // Safety from rep exposure:
+    //   所有数据都为private final，graph不可变，trigrams创建后不再修改，cache不会被返回
+
+    /**
+     * 创建桥接词索引
+     * @param graph     单词亲和图
+     * @param trigrams  以graph中的编号为键的trigram计数，创建后不能再修改；为null时只使用bigram
+     * @param scoring   候选桥接词的得分
+     * @param capacity  缓存的最大单词对个数，为0时不使用缓存
+     */
+    BridgeIndex(CsrGraph<String> graph, LongIntHashMap trigrams, BridgeScoring scoring, int capacity) {
+        this.graph = graph;
+        this.trigrams = trigrams;
+        this.scoring = scoring;
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<Long, Integer>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+                return size() > BridgeIndex.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * 查找两个单词之间的桥接词
+     * @param source    第一个单词的编号
+     * @param target    第二个单词的编号
+     * @return  桥接词的编号；如果没有桥接词，返回-1
+     */
+    int bridge(int source, int target) {
+        if (capacity == 0) {
+            return find(source, target);
+        }
+        Long key = CorpusCounter.pack(source, target);
+        Integer cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        int bridge = find(source, target);
+        synchronized (cache) {
+            cache.put(key, bridge);
+        }
+        return bridge;
+    }
+
+    /**
+     * 查找最佳的桥接词
+     * @param source    第一个单词的编号
+     * @param target    第二个单词的编号
+     * @return  桥接词的编号；如果没有，返回NO_BRIDGE
+     */
+    private int find(int source, int target) {
+        int[] best = top(source, target, 1);
+        return best.length == 0 ? NO_BRIDGE : best[0];
+    }
+
+    /**
+     * 查找最佳的若干个桥接词
+     * @param source    第一个单词的编号
+     * @param target    第二个单词的编号
+     * @param k         最多返回的桥接词个数，为正整数
+     * @return  至多k个桥接词的编号，从最佳的开始排列
+     */
+    int[] top(int source, int target, int k) {
+        Selection selection = new Selection(k);
+        int outStart = graph.targetsStart(source);
+        int outEnd = graph.targetsEnd(source);
+        int inStart = graph.sourcesStart(target);
+        int inEnd = graph.sourcesEnd(target);
+        if (outEnd - outStart <= inEnd - inStart) {
+            int low = inStart;
+            for (int i = outStart; i < outEnd && low < inEnd; i++) {
+                int bridge = graph.targetAt(i);
+                low = seekSource(bridge, low, inEnd);
+                if (low < inEnd && graph.sourceAt(low) == bridge) {
+                    offer(selection, source, bridge, target, graph.targetWeightAt(i), graph.sourceWeightAt(low));
+                }
+            }
+        } else {
+            int low = outStart;
+            for (int i = inStart; i < inEnd && low < outEnd; i++) {
+                int bridge = graph.sourceAt(i);
+                low = seekTarget(bridge, low, outEnd);
+                if (low < outEnd && graph.targetAt(low) == bridge) {
+                    offer(selection, source, bridge, target, graph.targetWeightAt(low), graph.sourceWeightAt(i));
+                }
+            }
+        }
+        return selection.sorted();
+    }
+
+    /**
+     * 为一个候选桥接词计分并交给选择器
+     * @param selection 选择器
+     * @param source    第一个单词的编号
+     * @param bridge    候选桥接词的编号
+     * @param target    第二个单词的编号
+     * @param first     从source到bridge的边的权值
+     * @param second    从bridge到target的边的权值
+     */
+    private void offer(Selection selection, int source, int bridge, int target, int first, int second) {
+        int count = trigrams != null && CorpusCounter.fitsTrigram(source, bridge, target)
+                ? trigrams.get(CorpusCounter.pack(source, bridge, target)) : 0;
+        selection.offer(bridge, count, scoring.score(first, second));
+    }
+
+    /**
+     * 在入边行的[low, high)中二分查找第一个起点编号不小于key的位置
+     */
+    private int seekSource(int key, int low, int high) {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (graph.sourceAt(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 在出边行的[low, high)中二分查找第一个终点编号不小于key的位置
+     */
+    private int seekTarget(int key, int low, int high) {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (graph.targetAt(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 选出最佳的k个候选桥接词的有界堆，堆顶是已选出的候选词中最差的一个。
+     * Selection为mutable，只在一次查找中使用
+     */
+    private static final class Selection {
+
+        private final int[] ids;
+        private final int[] counts;
+        private final long[] scores;
+        private int size = 0;
+        // Abstraction function:
+        //   AF(ids, counts, scores, size) = 已选出的size个候选词，第i个的编号为ids[i]，
+        //       trigram次数为counts[i]，得分为scores[i]
+        // Representation invariant:
+        //   0 <= size <= ids.length == counts.length == scores.length
+        //   [0, size)构成堆：每个元素都不优于它的子元素
+        // Safety from rep exposure:
+        //   所有数据都为private，sorted()返回新建的数组
+
+        /**
+         * 创建空的选择器
+         * @param k 最多选出的候选词个数，为正整数
+         */
+        Selection(int k) {
+            ids = new int[k];
+            counts = new int[k];
+            scores = new long[k];
+        }
+
+        /**
+         * 判断一个候选词是否比另一个差
+         * @return  (countA, scoreA, -idA)按字典序小于(countB, scoreB, -idB)时为true
+         */
+        private static boolean worse(int idA, int countA, long scoreA, int idB, int countB, long scoreB) {
+            if (countA != countB) {
+                return countA < countB;
+            }
+            if (scoreA != scoreB) {
+                return scoreA < scoreB;
+            }
+            return idA > idB;
+        }
+
+        private boolean worse(int i, int j) {
+            return worse(ids[i], counts[i], scores[i], ids[j], counts[j], scores[j]);
+        }
+
+        /**
+         * 加入一个候选词；已选满k个时，只有比堆顶好的候选词才替换堆顶
+         * @param id    候选词的编号
+         * @param count 候选词的trigram次数
+         * @param score 候选词的得分
+         */
+        void offer(int id, int count, long score) {
+            if (size < ids.length) {
+                set(size, id, count, score);
+                int child = size++;
+                while (child > 0) {
+                    int parent = (child - 1) >>> 1;
+                    if (!worse(child, parent)) {
+                        break;
+                    }
+                    swap(child, parent);
+                    child = parent;
+                }
+            } else if (worse(ids[0], counts[0], scores[0], id, count, score)) {
+                set(0, id, count, score);
+                siftDown();
+            }
+        }
+
+        /**
+         * 依次取出堆顶，得到从最佳开始排列的候选词，之后选择器为空
+         * @return  选出的候选词的编号，从最佳的开始排列
+         */
+        int[] sorted() {
+            int[] result = new int[size];
+            while (size > 0) {
+                result[size - 1] = ids[0];
+                size--;
+                set(0, ids[size], counts[size], scores[size]);
+                siftDown();
+            }
+            return result;
+        }
+
+        private void siftDown() {
+            int parent = 0;
+            while (true) {
+                int child = 2 * parent + 1;
+                if (child >= size) {
+                    return;
+                }
+                if (child + 1 < size && worse(child + 1, child)) {
+                    child++;
+                }
+                if (!worse(child, parent)) {
+                    return;
+                }
+                swap(child, parent);
+                parent = child;
+            }
+        }
+
+        private void set(int i, int id, int count, long score) {
+            ids[i] = id;
+            counts[i] = count;
+            scores[i] = score;
+        }
+
+        private void swap(int i, int j) {
+            int id = ids[i];
+            int count = counts[i];
+            long score = scores[i];
+            set(i, ids[j], counts[j], scores[j]);
+            set(j, id, count, score);
+        }
+    }
+
+    /**
+     * 获得缓存命中的次数
+     * @return  缓存命中的次数
+     */
+    long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * 获得缓存未命中的次数
+     * @return  缓存未命中的次数；不使用缓存时为0
+     */
+    long misses() {
+        return misses.sum();
+    }
+}
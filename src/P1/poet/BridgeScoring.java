@@ -0,0 +1,39 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.poet;
+
+/**
+ * How GraphPoet scores a candidate bridge word b between input words w1 and
+ * w2 from the weights of the edges w1 -> b and b -> w2. The candidate with
+ * the highest score is the bridge word.
+ */
+public enum BridgeScoring {
+
+    /**
+     * The weight of the two-edge path: the sum of the two edge weights.
+     */
+    SUM {
+        @Override long score(int first, int second) {
+            return (long) first + second;
+        }
+    },
+
+    /**
+     * The product of the two edge weights, which favours candidates that
+     * follow w1 and precede w2 about equally often.
+     */
+    PRODUCT {
+        @Override long score(int first, int second) {
+            return (long) first * second;
+        }
+    };
+
+    /**
+     * 计算候选桥接词的得分
+     * @param first     从w1到b的边的权值，为正整数
+     * @param second    从b到w2的边的权值，为正整数
+     * @return  候选桥接词的得分
+     */
+    abstract long score(int first, int second);
+}
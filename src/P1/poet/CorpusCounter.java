@@ -0,0 +1,567 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.poet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import P1.graph.CsrGraph;
+import P1.graph.Graph;
+import P1.graph.IndexedGraph;
+
+/**
+ * 流式地统计语料中的单词和相邻单词对（bigram）的出现次数，用于构造GraphPoet的单词亲和图。
+ *
+ * <p>语料按UTF-8编码，以字节为单位读入固定大小的缓冲区并原地切分单词：
+ * 空格、换行符和回车符是单词的分隔符，其他字节都属于单词。
+ * 每种原始拼写的单词只在第一次出现时解码为String并转为小写，之后通过字节哈希表直接得到单词编号；
+ * 每个bigram的计数只需在以打包编号为键的原始类型哈希表中累加一次。
+ * 内存占用只与不同单词和不同bigram的个数有关，而与语料的长度无关。
+ * 可选地同时统计连续三个单词（trigram）的出现次数，三个编号各占21位打包为一个long键，
+ * 编号不小于2^21的单词不参与trigram的统计。
+ * CorpusCounter为mutable
+ */
+final class CorpusCounter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    //trigram中每个单词编号所占的位数
+    private static final int TRIGRAM_ID_BITS = 21;
+    private static final int TRIGRAM_ID_LIMIT = 1 << TRIGRAM_ID_BITS;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private final LongIntHashMap bigrams = new LongIntHashMap(1 << 10);
+    private final LongIntHashMap trigrams;
+
+    //原始拼写表：以开放寻址方式保存每种原始字节序列及其单词编号
+    private int[] spellings = new int[1 << 10];
+    private int[] spellingOffsets = new int[1 << 9];
+    private int[] spellingLengths = new int[1 << 9];
+    private int[] spellingHashes = new int[1 << 9];
+    private int[] spellingIds = new int[1 << 9];
+    private int spellingCount = 0;
+    private byte[] spellingBytes = new byte[1 << 12];
+    private int spellingBytesUsed = 0;
+
+    //跨越两段输入的单词的已读部分
+    private byte[] token = new byte[64];
+    private int tokenLength = 0;
+    private int tokenHash = 0;
+    private int first = -1;
+    private int previous = -1;
+    private int beforePrevious = -1;
+    // Abstraction function:
+    //   AF(ids, words, bigrams, previous, token) = 已读入的语料的统计结果：
+    //       words.get(i)是编号为i的小写单词，
+    //       从单词i到单词j的相邻次数为bigrams.get(pack(i, j))，
+    //       统计trigram时，单词i、j、k连续出现的次数为trigrams.get(pack(i, j, k))，
+    //       first是读入的第一个单词的编号，previous是最后一个已完成的单词的编号（-1表示还没有），
+    //       beforePrevious是previous之前的单词的编号（-1表示还没有），
+    //       token[0..tokenLength)是跨越输入边界、尚未遇到分隔符的单词的前缀
+    // Representation invariant:
+    //   ids.get(words.get(i)) == i
+    //   words中的单词非空、都是小写、不含分隔符
+    //   bigrams中的键都由words中的编号打包而成，值都为正整数
+    //   trigrams为null或者其中的键都由words中小于TRIGRAM_ID_LIMIT的编号打包而成，值都为正整数
+    //   spellings中的非零元素k表示第k-1个原始拼写，它的字节经解码、转为小写后等于words.get(spellingIds[k-1])
+    //   在accept()之间，tokenHash是token[0..tokenLength)的哈希值
+    // Safety from rep exposure:
+    //   所有数据都为private，toGraph()返回新建的图
+
+    /**
+     * 创建只统计单词和bigram的空的统计结果
+     */
+    CorpusCounter() {
+        this(false);
+    }
+
+    /**
+     * 创建空的统计结果
+     * @param countTrigrams 是否同时统计trigram
+     */
+    CorpusCounter(boolean countTrigrams) {
+        trigrams = countTrigrams ? new LongIntHashMap(1 << 10) : null;
+    }
+
+    /**
+     * 统计一个文件中的语料
+     * @param corpus    语料文件
+     * @return  语料的统计结果
+     * @throws IOException  如果文件无法找到或读取
+     */
+    static CorpusCounter of(Path corpus) throws IOException {
+        return of(corpus, false);
+    }
+
+    /**
+     * 统计一个文件中的语料
+     * @param corpus        语料文件
+     * @param countTrigrams 是否同时统计trigram
+     * @return  语料的统计结果
+     * @throws IOException  如果文件无法找到或读取
+     */
+    static CorpusCounter of(Path corpus, boolean countTrigrams) throws IOException {
+        CorpusCounter counter = new CorpusCounter(countTrigrams);
+        counter.ingest(corpus);
+        return counter;
+    }
+
+    /**
+     * 统计一个输入流中的语料，读取到流的末尾，但不关闭流
+     * @param corpus    语料输入流
+     * @return  语料的统计结果
+     * @throws IOException  如果输入流无法读取
+     */
+    static CorpusCounter of(InputStream corpus) throws IOException {
+        CorpusCounter counter = new CorpusCounter();
+        counter.ingest(Channels.newChannel(corpus));
+        counter.finish();
+        return counter;
+    }
+
+    /**
+     * 统计一个目录中文件名与glob模式匹配的所有文件，文件按文件名顺序读取
+     * @param directory 语料文件所在的目录
+     * @param glob      文件名的glob模式，如"*.txt"
+     * @return  语料的统计结果
+     * @throws IOException  如果目录或其中的文件无法读取
+     */
+    static CorpusCounter of(Path directory, String glob) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path file: stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        CorpusCounter counter = new CorpusCounter();
+        for (Path file: files) {
+            counter.ingest(file);
+        }
+        return counter;
+    }
+
+    /**
+     * 用fork-join线程池并行统计一个文件中的语料，结果与of(corpus)相同。
+     * 文件在分隔符处被切分为若干块，每块由一个任务独立统计，
+     * 再把相邻块的统计结果两两合并，并补上跨越块边界的bigram。
+     * @param corpus    语料文件
+     * @param pool      执行统计任务的线程池
+     * @return  语料的统计结果
+     * @throws IOException  如果文件无法找到或读取
+     */
+    static CorpusCounter of(Path corpus, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(corpus, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunks = (int) Math.max(1, Math.min(pool.getParallelism() * 2L, size / MIN_CHUNK_SIZE));
+            long[] bounds = new long[chunks + 1];
+            bounds[chunks] = size;
+            for (int i = 1; i < chunks; i++) {
+                bounds[i] = nextDelimiter(channel, Math.max(bounds[i - 1], size / chunks * i), size);
+            }
+            CorpusCounter counter = pool.invoke(new ChunkTask(channel, bounds, 0, chunks));
+            counter.finish();
+            return counter;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 找到从某个位置开始的第一个分隔符
+     * @param channel   语料文件的通道
+     * @param position  开始查找的位置
+     * @param size      文件的大小
+     * @return  第一个分隔符的位置；如果没有，返回size
+     * @throws IOException  如果文件无法读取
+     */
+    private static long nextDelimiter(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == ' ' || b == '\n' || b == '\r') {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * 统计文件中连续若干块语料的任务：块数较多时一分为二并行统计，再合并结果
+     */
+    @SuppressWarnings("serial")
+    private static final class ChunkTask extends RecursiveTask<CorpusCounter> {
+
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final int from;
+        private final int to;
+
+        /**
+         * 创建统计任务
+         * @param channel   语料文件的通道
+         * @param bounds    各块的边界，第i块为[bounds[i], bounds[i+1])，边界都位于分隔符处
+         * @param from      第一块的下标（包含）
+         * @param to        最后一块的下标（不包含）
+         */
+        ChunkTask(FileChannel channel, long[] bounds, int from, int to) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override protected CorpusCounter compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                ChunkTask right = new ChunkTask(channel, bounds, middle, to);
+                right.fork();
+                CorpusCounter left = new ChunkTask(channel, bounds, from, middle).compute();
+                left.absorb(right.join());
+                return left;
+            }
+            CorpusCounter counter = new CorpusCounter();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = bounds[from];
+            long end = bounds[to];
+            try {
+                while (position < end) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(BUFFER_SIZE, end - position));
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        break;
+                    }
+                    counter.accept(buffer.array(), 0, read);
+                    position += read;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            counter.flush();
+            return counter;
+        }
+    }
+
+    /**
+     * 把紧跟在此语料之后的另一段语料的统计结果合并到此结果中，
+     * 包括此语料最后一个单词与另一段语料第一个单词构成的bigram。
+     * 两段语料都必须已经flush()，且合并后不再使用other
+     * @param other 紧跟在此语料之后的语料的统计结果
+     */
+    private void absorb(CorpusCounter other) {
+        int[] map = new int[other.words.size()];
+        for (int i = 0; i < map.length; i++) {
+            map[i] = wordId(other.words.get(i));
+        }
+        other.bigrams.forEach((key, count) -> bigrams.addTo(pack(map[(int) (key >>> 32)], map[(int) key]), count));
+        if (other.first >= 0) {
+            if (previous >= 0) {
+                bigrams.addTo(pack(previous, map[other.first]), 1);
+            }
+            if (first < 0) {
+                first = map[other.first];
+            }
+            previous = map[other.previous];
+        }
+    }
+
+    /**
+     * 读入一个文件的全部内容；不同文件是独立的文本，因此文件之间不产生bigram
+     * @param corpus    语料文件
+     * @throws IOException  如果文件无法找到或读取
+     */
+    void ingest(Path corpus) throws IOException {
+        try (FileChannel channel = FileChannel.open(corpus, StandardOpenOption.READ)) {
+            ingest(channel);
+        }
+        finish();
+    }
+
+    /**
+     * 从通道中读入语料直到末尾，不关闭通道；末尾未遇到分隔符的单词留待finish()完成
+     * @param channel   语料通道
+     * @throws IOException  如果通道无法读取
+     */
+    void ingest(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            accept(buffer.array(), 0, buffer.limit());
+            buffer.clear();
+        }
+    }
+
+    /**
+     * 读入一段语料字节；完全位于这段字节中的单词直接在原数组上查找，
+     * 只有跨越两段字节的单词才被拷贝到token中
+     * @param bytes     字节数组
+     * @param offset    语料在数组中的起始下标
+     * @param length    语料的字节数
+     */
+    void accept(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int start = offset;
+        int hash = tokenHash;
+        for (int i = offset; i < end; i++) {
+            byte b = bytes[i];
+            if (b == ' ' || b == '\n' || b == '\r') {
+                if (tokenLength > 0) {
+                    append(bytes, start, i - start);
+                    tokenHash = hash;
+                    endToken(token, 0, tokenLength);
+                } else if (i > start) {
+                    tokenHash = hash;
+                    endToken(bytes, start, i - start);
+                }
+                start = i + 1;
+                hash = 0;
+            } else {
+                hash = 31 * hash + b;
+            }
+        }
+        if (end > start) {
+            append(bytes, start, end - start);
+        }
+        tokenHash = hash;
+    }
+
+    /**
+     * 把单词的一部分追加到token中
+     * @param bytes     字节数组
+     * @param offset    起始下标
+     * @param length    字节数
+     */
+    private void append(byte[] bytes, int offset, int length) {
+        if (tokenLength + length > token.length) {
+            token = Arrays.copyOf(token, Math.max(token.length * 2, tokenLength + length));
+        }
+        System.arraycopy(bytes, offset, token, tokenLength, length);
+        tokenLength += length;
+    }
+
+    /**
+     * 结束当前文本：完成末尾的单词，之后读入的单词不与之前的单词构成bigram
+     */
+    void finish() {
+        flush();
+        previous = -1;
+        beforePrevious = -1;
+    }
+
+    /**
+     * 完成末尾的单词，但之后读入的单词仍与之前的单词构成bigram
+     */
+    void flush() {
+        if (tokenLength > 0) {
+            endToken(token, 0, tokenLength);
+        }
+        tokenHash = 0;
+    }
+
+    /**
+     * 完成一个单词：查出它的编号，并累加它与前一个单词构成的bigram
+     * @param bytes     单词所在的字节数组
+     * @param offset    单词的起始下标
+     * @param length    单词的字节数，为正数
+     */
+    private void endToken(byte[] bytes, int offset, int length) {
+        int id = lookup(bytes, offset, length);
+        if (previous >= 0) {
+            bigrams.addTo(pack(previous, id), 1);
+            if (trigrams != null && beforePrevious >= 0 && fitsTrigram(beforePrevious, previous, id)) {
+                trigrams.addTo(pack(beforePrevious, previous, id), 1);
+            }
+        } else if (first < 0) {
+            first = id;
+        }
+        beforePrevious = previous;
+        previous = id;
+        tokenLength = 0;
+    }
+
+    /**
+     * 在原始拼写表中查找一个单词，不存在时解码并加入；单词的哈希值为tokenHash
+     * @param bytes     单词所在的字节数组
+     * @param offset    单词的起始下标
+     * @param length    单词的字节数
+     * @return  单词的编号
+     */
+    private int lookup(byte[] bytes, int offset, int length) {
+        int mask = spellings.length - 1;
+        int index = mix(tokenHash) & mask;
+        while (spellings[index] != 0) {
+            int k = spellings[index] - 1;
+            if (spellingHashes[k] == tokenHash && spellingLengths[k] == length
+                    && Arrays.equals(spellingBytes, spellingOffsets[k], spellingOffsets[k] + length,
+                                     bytes, offset, offset + length)) {
+                return spellingIds[k];
+            }
+            index = (index + 1) & mask;
+        }
+        int id = wordId(new String(bytes, offset, length, StandardCharsets.UTF_8).toLowerCase());
+        addSpelling(index, bytes, offset, length, id);
+        return id;
+    }
+
+    /**
+     * 把一个单词作为新的原始拼写加入原始拼写表，它的哈希值为tokenHash
+     * @param index     表中的空位置
+     * @param bytes     单词所在的字节数组
+     * @param offset    单词的起始下标
+     * @param length    单词的字节数
+     * @param id        单词的编号
+     */
+    private void addSpelling(int index, byte[] bytes, int offset, int length, int id) {
+        if (spellingCount == spellingIds.length) {
+            int capacity = spellingCount * 2;
+            spellingOffsets = Arrays.copyOf(spellingOffsets, capacity);
+            spellingLengths = Arrays.copyOf(spellingLengths, capacity);
+            spellingHashes = Arrays.copyOf(spellingHashes, capacity);
+            spellingIds = Arrays.copyOf(spellingIds, capacity);
+        }
+        if (spellingBytesUsed + length > spellingBytes.length) {
+            spellingBytes = Arrays.copyOf(spellingBytes, Math.max(spellingBytes.length * 2, spellingBytesUsed + length));
+        }
+        System.arraycopy(bytes, offset, spellingBytes, spellingBytesUsed, length);
+        spellingOffsets[spellingCount] = spellingBytesUsed;
+        spellingLengths[spellingCount] = length;
+        spellingHashes[spellingCount] = tokenHash;
+        spellingIds[spellingCount] = id;
+        spellingBytesUsed += length;
+        spellingCount++;
+        spellings[index] = spellingCount;
+        if (spellingCount * 2 > spellings.length) {
+            //保持装载因子不超过1/2
+            int[] larger = new int[spellings.length * 2];
+            int largerMask = larger.length - 1;
+            for (int k = 0; k < spellingCount; k++) {
+                int slot = mix(spellingHashes[k]) & largerMask;
+                while (larger[slot] != 0) {
+                    slot = (slot + 1) & largerMask;
+                }
+                larger[slot] = k + 1;
+            }
+            spellings = larger;
+        }
+    }
+
+    /**
+     * 打乱哈希值的各位，使低位分布均匀
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * 获得小写单词的编号，不存在时分配新的编号
+     * @param word  小写单词
+     * @return  单词的编号
+     */
+    private int wordId(String word) {
+        Integer id = ids.get(word);
+        if (id == null) {
+            id = words.size();
+            ids.put(word, id);
+            words.add(word);
+        }
+        return id;
+    }
+
+    /**
+     * 把两个单词编号打包为bigram的键
+     * @param source    前一个单词的编号
+     * @param target    后一个单词的编号
+     * @return  非负的键，高32位为source，低32位为target
+     */
+    static long pack(int source, int target) {
+        return ((long) source << 32) | target;
+    }
+
+    /**
+     * 判断三个单词编号能否打包为trigram的键
+     * @return  三个编号都小于TRIGRAM_ID_LIMIT时为true
+     */
+    static boolean fitsTrigram(int first, int second, int third) {
+        return (first | second | third) < TRIGRAM_ID_LIMIT;
+    }
+
+    /**
+     * 把三个单词编号打包为trigram的键
+     * @param first     第一个单词的编号，小于2^21
+     * @param second    第二个单词的编号，小于2^21
+     * @param third     第三个单词的编号，小于2^21
+     * @return  非负的键，从高到低每21位依次为first、second、third
+     */
+    static long pack(int first, int second, int third) {
+        return ((long) first << (2 * TRIGRAM_ID_BITS)) | ((long) second << TRIGRAM_ID_BITS) | third;
+    }
+
+    /**
+     * 获得以图中的顶点编号为键的trigram计数，需在finish()之后调用
+     * @param graph 由toGraph()得到的图的只读快照
+     * @return  一个新的表，单词i、j、k连续出现的次数为get(pack(i, j, k))，其中i、j、k为graph中的编号；
+     *          没有统计trigram时返回null
+     */
+    LongIntHashMap trigrams(CsrGraph<String> graph) {
+        if (trigrams == null) {
+            return null;
+        }
+        int[] map = new int[words.size()];
+        for (int i = 0; i < map.length; i++) {
+            map[i] = graph.id(words.get(i));
+        }
+        int mask = TRIGRAM_ID_LIMIT - 1;
+        LongIntHashMap remapped = new LongIntHashMap(trigrams.size());
+        trigrams.forEach((key, count) -> {
+            int first = map[(int) (key >>> (2 * TRIGRAM_ID_BITS))];
+            int second = map[(int) (key >>> TRIGRAM_ID_BITS) & mask];
+            int third = map[(int) key & mask];
+            if (fitsTrigram(first, second, third)) {
+                remapped.addTo(pack(first, second, third), count);
+            }
+        });
+        return remapped;
+    }
+
+    /**
+     * 构造语料的单词亲和图，需在finish()之后调用
+     * @return  一个新的图，顶点为语料中的所有小写单词，从w1到w2的边的权值为w1后面紧跟着w2的次数
+     */
+    Graph<String> toGraph() {
+        IndexedGraph<String> graph = Graph.indexed();
+        int[] map = new int[words.size()];
+        for (int i = 0; i < map.length; i++) {
+            map[i] = graph.intern(words.get(i));
+        }
+        //按编号加入边，不再对单词哈希
+        bigrams.forEach((key, count) -> graph.setById(map[(int) (key >>> 32)], map[(int) key], count));
+        return graph;
+    }
+}
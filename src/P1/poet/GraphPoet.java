@@ -3,12 +3,23 @@
  */
 package P1.poet;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
-import P1.graph.Graph;
+import P1.graph.CsrGraph;
+import P1.graph.GraphMetrics;
+import P1.graph.LabelCodec;
+import P1.graph.MappedGraph;
 
 /**
  * A graph-based poetry generator.
@@ -54,42 +65,253 @@ import P1.graph.Graph;
  */
 public class GraphPoet {
 
-    private final Graph<String> graph = Graph.empty();
+    //检查RI需要解码所有单词，只在启用断言时进行，使open()不读取整个图
+    private static final boolean CHECK_REP = GraphPoet.class.desiredAssertionStatus();
+    private static final int BUFFER_SIZE = 8192;
+
+    private final CsrGraph<String> graph;
+    private final LongIntHashMap trigrams;
+    private final BridgeScoring scoring;
+    private final int cacheCapacity;
+    private final BridgeIndex bridges;
+    private final GraphMetrics metrics = new GraphMetrics("GraphPoet", GraphMetrics.DEFAULT_SLOW_NANOS, "poem", "bridges");
 
     // Abstraction function:
     //   AF(graph) = 一个诗歌生成器，该诗歌生成器所用的单词为graph中的顶点，单词"w1"后面跟着"w2"的次数为graph中从w1到w2的边的权重
     // Representation invariant:
     //   graph中的顶点为非空格非换行符的非空字符串
     //   graph中的顶点都是小写的单词
+    //   trigrams为null或者是以graph中的编号为键的trigram计数，创建后不再修改
+    //   bridges是graph上以trigrams和scoring排序候选词、缓存容量为cacheCapacity的桥接词索引
     // Safety from rep exposure:
-    //   graph为private
+    //   graph为private，且为不可变的图
+    //   trigrams和bridges为private，不会被返回
+    //   metrics被返回，但它本身就是供调用者读取的线程安全的统计
+    // Thread safety argument:
+    //   graph和trigrams不可变，bridges是线程安全的，其他数据都为final，
+    //   每次生成诗歌的状态都在局部变量或各自的PoemWriter中，因此多个线程可以同时使用同一个诗歌生成器
     
     /**
      * Create a new poet with the graph from corpus (as described above).
+     * The corpus is read as UTF-8 in a single streaming pass.
      * 
      * @param corpus text file from which to derive the poet's affinity graph
      * @throws IOException if the corpus file cannot be found or read
      */
     public GraphPoet(File corpus) throws IOException {
-        BufferedReader bufferedReader = new BufferedReader(new FileReader(corpus));
-        String source = "";
-        String line;
-        while ((line = bufferedReader.readLine()) != null) {
-            for (String target: line.split(" ")) {
-                target = target.toLowerCase();
-                graph.add(target);
-                if (!source.isEmpty()) {
-                    int curWeight = 0;
-                    if (graph.targets(source).containsKey(target)) {
-                        curWeight = graph.targets(source).get(target);
-                    }
-                    graph.set(source, target, curWeight + 1);
-                }
-                source = target;
+        this(CorpusCounter.of(corpus.toPath()));
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus (as described above),
+     * optionally also counting the occurrences of every three consecutive
+     * words of the corpus. With trigram counts, the bridge word between w1
+     * and w2 is the candidate b that most often occurs in the corpus as
+     * "w1 b w2", and only candidates that tie on that count are compared by
+     * the weights of their edges. Trigrams are counted only among the first
+     * 2^21 distinct words of the corpus.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param trigrams whether to count trigrams as well
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(File corpus, boolean trigrams) throws IOException {
+        this(CorpusCounter.of(corpus.toPath(), trigrams));
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus (as described above),
+     * counting the words of the corpus in parallel. The corpus file is split
+     * into chunks at whitespace, each chunk is counted by a task on the given
+     * pool, and the counts are merged. The resulting poet is identical to the
+     * one created by {@link #GraphPoet(File)}.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param pool fork-join pool that runs the counting tasks
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(File corpus, ForkJoinPool pool) throws IOException {
+        this(CorpusCounter.of(corpus.toPath(), pool));
+    }
+    
+    /**
+     * Create a new poet with the graph from a corpus read from a stream (as
+     * described above). The stream is read as UTF-8 to its end but not closed.
+     * 
+     * @param corpus stream of text from which to derive the poet's affinity graph
+     * @throws IOException if the stream cannot be read
+     */
+    public GraphPoet(InputStream corpus) throws IOException {
+        this(CorpusCounter.of(corpus));
+    }
+    
+    /**
+     * Create a new poet with the graph from many corpus files (as described
+     * above). The files are the regular files in a directory whose names match
+     * a glob pattern, read as UTF-8 in order of their names. Each file is a
+     * separate text: the last word of one file and the first word of the next
+     * are not counted as adjacent.
+     * 
+     * @param directory directory containing the corpus files
+     * @param glob glob pattern of corpus file names, such as {@code "*.txt"}
+     * @throws IOException if the directory or a corpus file cannot be read
+     */
+    public GraphPoet(Path directory, String glob) throws IOException {
+        this(CorpusCounter.of(directory, glob));
+    }
+    
+    /**
+     * 由语料的统计结果创建诗歌生成器
+     * @param counter   已读完全部语料的统计结果
+     */
+    private GraphPoet(CorpusCounter counter) {
+        //语料读取完毕后只进行查询，因此保存图的只读快照
+        this(counter.toGraph().freeze(), counter);
+    }
+    
+    /**
+     * 由单词亲和图和语料的统计结果创建诗歌生成器
+     * @param graph     由counter得到的单词亲和图
+     * @param counter   已读完全部语料的统计结果
+     */
+    private GraphPoet(CsrGraph<String> graph, CorpusCounter counter) {
+        this(graph, counter.trigrams(graph), BridgeScoring.SUM, 0);
+    }
+    
+    /**
+     * 由单词亲和图创建诗歌生成器
+     * @param graph         单词亲和图
+     * @param trigrams      以graph中的编号为键的trigram计数，为null时只使用bigram
+     * @param scoring       候选桥接词的得分
+     * @param cacheCapacity 桥接词缓存的最大单词对个数，为0时不使用缓存
+     */
+    private GraphPoet(CsrGraph<String> graph, LongIntHashMap trigrams, BridgeScoring scoring, int cacheCapacity) {
+        this.graph = graph;
+        this.trigrams = trigrams;
+        this.scoring = scoring;
+        this.cacheCapacity = cacheCapacity;
+        this.bridges = new BridgeIndex(graph, trigrams, scoring, cacheCapacity);
+        checkRep();
+    }
+    
+    /**
+     * Open a poet whose affinity graph was saved by {@link #save(Path)}. The
+     * file is memory-mapped rather than read, so opening takes time
+     * independent of the size of the graph, the graph stays off the heap,
+     * and processes that open the same file share its pages. Trigram counts
+     * are not saved, so the opened poet compares candidates by edge weights
+     * only.
+     * 
+     * @param file file written by {@link #save(Path)}
+     * @return a poet that generates the same poems as the poet that saved the file
+     * @throws IOException if the file cannot be read or is not a saved graph
+     */
+    public static GraphPoet open(Path file) throws IOException {
+        return new GraphPoet(MappedGraph.open(file, LabelCodec.STRING), null, BridgeScoring.SUM, 0);
+    }
+    
+    /**
+     * Save the affinity graph of this poet in a binary file that
+     * {@link #open(Path)} can map. An existing file is replaced atomically.
+     * 
+     * @param file file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        MappedGraph.write(graph, LabelCodec.STRING, file);
+    }
+    
+    /**
+     * Get a poet with the same affinity graph as this poet that caches bridge
+     * words. The cache is filled lazily as poems are generated and keeps the
+     * bridge words of at most {@code capacity} recently used pairs of adjacent
+     * input words. Both poets share the affinity graph.
+     * 
+     * @param capacity maximum number of word pairs in the cache, nonnegative;
+     *        0 means no cache
+     * @return a poet that generates the same poems as this poet
+     */
+    public GraphPoet withBridgeCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must be nonnegative: " + capacity);
+        }
+        return new GraphPoet(graph, trigrams, scoring, capacity);
+    }
+    
+    /**
+     * Get a poet with the same affinity graph as this poet that scores
+     * candidate bridge words differently. A new poet scores candidates by
+     * {@link BridgeScoring#SUM}, as described above. Both poets share the
+     * affinity graph; the returned poet has a bridge cache of the same
+     * capacity as this poet, initially empty.
+     * 
+     * @param scoring how to score a candidate bridge word from the weights of
+     *        its two edges
+     * @return a poet that chooses bridge words by scoring
+     */
+    public GraphPoet withScoring(BridgeScoring scoring) {
+        return new GraphPoet(graph, trigrams, scoring, cacheCapacity);
+    }
+    
+    /**
+     * Get the best candidate bridge words between two words, in the order in
+     * which this poet ranks them; the first one is the bridge word this poet
+     * inserts between them. The candidates are selected with a heap of size
+     * k, so the time taken grows with log k rather than with the number of
+     * candidates kept.
+     * 
+     * @param w1 first word, case-insensitive
+     * @param w2 second word, case-insensitive
+     * @param k maximum number of candidates to return, positive
+     * @return at most k lower-case bridge words b such that w1 -> b -> w2 is
+     *         a path in the affinity graph, best first
+     * @throws IllegalArgumentException if k is not positive
+     */
+    public List<String> bridges(String w1, String w2, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        long start = metrics.start();
+        int source = graph.id(w1.toLowerCase());
+        int target = graph.id(w2.toLowerCase());
+        List<String> words = new ArrayList<>();
+        if (source >= 0 && target >= 0) {
+            for (int bridge: bridges.top(source, target, k)) {
+                words.add(graph.label(bridge));
             }
         }
-        bufferedReader.close();
-        checkRep();
+        metrics.stop(metrics.get("bridges"), start, words.size(), 0);
+        return words;
+    }
+    
+    /**
+     * 获得桥接词缓存命中的次数
+     * @return  桥接词缓存命中的次数
+     */
+    public long bridgeCacheHits() {
+        return bridges.hits();
+    }
+    
+    /**
+     * 获得桥接词缓存未命中的次数
+     * @return  桥接词缓存未命中的次数；不使用缓存时为0
+     */
+    public long bridgeCacheMisses() {
+        return bridges.misses();
+    }
+    
+    /**
+     * Get the metrics of the queries answered by this poet: operation
+     * "poem" covers both poem methods and the poems generated by
+     * {@link #poems(List, ForkJoinPool)}, with the number of input characters
+     * as the result size; operation "bridges" covers
+     * {@link #bridges(String, String, int)}. Poets returned by the with
+     * methods have metrics of their own.
+     * 
+     * @return live metrics of this poet
+     */
+    public GraphMetrics metrics() {
+        return metrics;
     }
     
     // TODO checkRep
@@ -97,6 +319,9 @@ public class GraphPoet {
      * 检测RI是否被保持
      */
     private void checkRep() {
+        if (!CHECK_REP) {
+            return;
+        }
         for (String vertex: graph.vertices()) {
             assert !vertex.isEmpty();
             assert !vertex.equals("\n");
@@ -112,38 +337,120 @@ public class GraphPoet {
      * @return poem (as described above)
      */
     public String poem(String input) {
-        String output = "";
-        String source = "";
-        int newLinesNum = input.split("\n").length;
-        for (String splitByNewlines: input.split("\n")) {
-            int spacesNum = splitByNewlines.split(" ").length;
-            for (String target: splitByNewlines.split(" ")) {
-                if (!source.isEmpty()) {
-                    int maxWeight = -1;
-                    String maxBridge = "";
-                    for (String bridge: graph.targets(source.toLowerCase()).keySet()) {
-                        if (graph.targets(source.toLowerCase()).get(bridge).equals(graph.sources(target.toLowerCase()).get(bridge)) && (maxWeight == -1 || graph.targets(source.toLowerCase()).get(bridge) > maxWeight)) {
-                            maxWeight = graph.targets(source.toLowerCase()).get(bridge);
-                            maxBridge = bridge;
-                        }
-                    }
-                    if (maxWeight != -1) {
-                        output = output.concat(maxBridge + " ");
-                    }
-                }
-                source = target;
-                output = output.concat(source);
-                spacesNum--;
-                if (spacesNum > 0) {
-                    output = output.concat(" ");
+        long start = metrics.start();
+        StringWriter output = new StringWriter(input.length() + input.length() / 2);
+        try (PoemWriter poem = poemWriter(output)) {
+            poem.write(input);
+        } catch (IOException e) {
+            //StringWriter不会抛出IOException
+            throw new AssertionError(e);
+        }
+        String poem = output.toString();
+        //StringWriter的缓冲区和返回的字符串
+        metrics.stop(metrics.get("poem"), start, input.length(), 4L * poem.length());
+        return poem;
+    }
+    
+    /**
+     * Generate a poem from a stream of input words, writing it to an output
+     * stream as the input is read. Only the current input word is kept in
+     * memory, so inputs of any length can be processed in bounded memory.
+     * Input words are delimited by spaces, carriage returns, newlines and the
+     * end of the input; the poem consists of the input words and bridge words
+     * separated by single spaces, as described above.
+     * 
+     * @param input stream from which to create the poem, read to its end but
+     *        not closed
+     * @param output stream the poem is written to, flushed at the end but not
+     *        closed; it should be buffered
+     * @throws IOException if reading input or writing output fails
+     */
+    public void poem(Reader input, Writer output) throws IOException {
+        long start = metrics.start();
+        PoemWriter poem = poemWriter(output);
+        char[] buffer = new char[BUFFER_SIZE];
+        long length = 0;
+        for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+            poem.write(buffer, 0, read);
+            length += read;
+        }
+        poem.finish();
+        metrics.stop(metrics.get("poem"), start, length, 2L * BUFFER_SIZE);
+    }
+    
+    /**
+     * Get a character stream that generates a poem incrementally: each input
+     * word written to it is emitted to output, with its bridge word, as soon
+     * as the whitespace after it is written. See {@link PoemWriter}.
+     * 
+     * @param output stream the poem is written to
+     * @return a stream that writes the poem of the text written to it to output
+     */
+    public PoemWriter poemWriter(Writer output) {
+        return new PoemWriter(graph, bridges, output);
+    }
+    
+    /**
+     * Generate the poems of many inputs in parallel on a fork-join pool. Each
+     * poem is the same as {@link #poem(String)} would generate for its input.
+     * 
+     * @param inputs strings from which to create the poems
+     * @param pool fork-join pool that runs the generation tasks
+     * @return poems of the inputs, in the same order as inputs
+     */
+    public List<String> poems(List<String> inputs, ForkJoinPool pool) {
+        String[] input = inputs.toArray(new String[0]);
+        String[] output = new String[input.length];
+        pool.invoke(new PoemTask(input, output, 0, input.length));
+        return Arrays.asList(output);
+    }
+    
+    /**
+     * 为一段输入生成诗歌的fork-join任务，输入较多时分成两半并行生成
+     */
+    @SuppressWarnings("serial")
+    private final class PoemTask extends RecursiveAction {
+        
+        private final String[] input;
+        private final String[] output;
+        private final int from;
+        private final int to;
+        
+        /**
+         * 创建生成诗歌的任务
+         * @param input     所有输入
+         * @param output    保存诗歌的数组，与input长度相同
+         * @param from      本任务的第一个输入的下标
+         * @param to        本任务的最后一个输入的下一个下标
+         */
+        PoemTask(String[] input, String[] output, int from, int to) {
+            this.input = input;
+            this.output = output;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override protected void compute() {
+            if (to - from <= 1) {
+                for (int i = from; i < to; i++) {
+                    output[i] = poem(input[i]);
                 }
+                return;
             }
-            newLinesNum--;
-            if (newLinesNum > 1) {
-                output = output.concat("\n");
-            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PoemTask(input, output, from, middle), new PoemTask(input, output, middle, to));
         }
-        return output;
+    }
+    
+    /**
+     * Write the affinity graph of this poet to an output in the format of
+     * {@link #toString()}, without building the whole string in memory.
+     * 
+     * @param out output to append to; it is neither flushed nor closed
+     * @throws IOException if appending to out fails
+     */
+    public void writeTo(Appendable out) throws IOException {
+        graph.writeTo(out);
     }
     
     // TODO toString()
@@ -153,6 +460,13 @@ public class GraphPoet {
      */
     @Override
     public String toString() {
-        return graph.toString();
+        StringBuilder string = new StringBuilder();
+        try {
+            writeTo(string);
+        } catch (IOException e) {
+            //StringBuilder不会抛出IOException
+            throw new AssertionError(e);
+        }
+        return string.toString();
     }
 }
@@ -0,0 +1,156 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.poet;
+
+import java.util.Arrays;
+
+/**
+ * 键为非负long、值为int的开放寻址哈希表，用于以打包的单词编号为键累加计数，
+ * 累加时只需一次探测且不进行装箱。
+ * LongIntHashMap为mutable
+ */
+final class LongIntHashMap {
+
+    private static final long EMPTY = -1L;
+
+    //键和值交错存放在同一个数组中，使一次探测只访问一个缓存行
+    private long[] slots;
+    private int capacity;
+    private int size;
+    // Abstraction function:
+    //   AF(slots, capacity, size) = 一个映射，对每个slots[2i] != EMPTY，把slots[2i]映射到(int) slots[2i+1]
+    // Representation invariant:
+    //   slots.length == 2 * capacity，capacity为2的幂
+    //   slots中偶数下标处不等于EMPTY的元素都非负且互不相同，个数为size
+    //   size < capacity * 3 / 4
+    //   每个键都能从它的哈希位置开始线性探测、不经过EMPTY到达
+    // Safety from rep exposure:
+    //   所有数据都为private，且不返回数组
+
+    /**
+     * 创建一个空表
+     * @param expectedSize  预计的键的个数
+     */
+    LongIntHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity * 3 / 4 <= expectedSize) {
+            capacity <<= 1;
+        }
+        this.capacity = capacity;
+        slots = new long[capacity * 2];
+        Arrays.fill(slots, EMPTY);
+    }
+
+    /**
+     * 计算键在表中的初始位置
+     * @param key   非负的键
+     * @param mask  表长减1
+     * @return  键的初始探测位置
+     */
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * 把一个键的值加上delta；如果键不存在，则以delta为值加入
+     * @param key   非负的键
+     * @param delta 增量
+     * @return  累加之后的值
+     */
+    int addTo(long key, int delta) {
+        int mask = capacity - 1;
+        int index = slot(key, mask);
+        while (true) {
+            long current = slots[2 * index];
+            if (current == key) {
+                return (int) (slots[2 * index + 1] += delta);
+            }
+            if (current == EMPTY) {
+                slots[2 * index] = key;
+                slots[2 * index + 1] = delta;
+                if (++size >= capacity * 3 / 4) {
+                    grow();
+                }
+                return delta;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * 获得一个键的值
+     * @param key   非负的键
+     * @return  键的值；如果键不存在，返回0
+     */
+    int get(long key) {
+        int mask = capacity - 1;
+        int index = slot(key, mask);
+        while (true) {
+            long current = slots[2 * index];
+            if (current == key) {
+                return (int) slots[2 * index + 1];
+            }
+            if (current == EMPTY) {
+                return 0;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * 获得表中键的个数
+     * @return  键的个数
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 访问表中的所有键值对，顺序不确定
+     * @param visitor   对每个键值对调用一次
+     */
+    void forEach(EntryVisitor visitor) {
+        for (int i = 0; i < slots.length; i += 2) {
+            if (slots[i] != EMPTY) {
+                visitor.visit(slots[i], (int) slots[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * 把表长扩大一倍并重新插入所有键
+     */
+    private void grow() {
+        long[] old = slots;
+        capacity *= 2;
+        slots = new long[capacity * 2];
+        Arrays.fill(slots, EMPTY);
+        int mask = capacity - 1;
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != EMPTY) {
+                int index = slot(old[i], mask);
+                while (slots[2 * index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                slots[2 * index] = old[i];
+                slots[2 * index + 1] = old[i + 1];
+            }
+        }
+    }
+
+    /**
+     * 访问键值对的回调
+     */
+    @FunctionalInterface
+    interface EntryVisitor {
+
+        /**
+         * 访问一个键值对
+         * @param key   键
+         * @param value 值
+         */
+        void visit(long key, int value);
+    }
+}
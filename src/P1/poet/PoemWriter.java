@@ -0,0 +1,168 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.poet;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import P1.graph.CsrGraph;
+
+/**
+ * A character stream that turns the input text written to it into a poem as
+ * described in {@link GraphPoet}, emitting each input word to an underlying
+ * output, preceded by its bridge word, as soon as the whitespace after it is
+ * written. Only the current input word is kept in memory, so the delay before
+ * a word appears in the output is bounded by the length of the word rather
+ * than the length of the input.
+ *
+ * <p>The last input word is not emitted until {@link #finish()} or
+ * {@link #close()} is called, since until then it may still continue.
+ * A PoemWriter must be used by one thread at a time; several PoemWriters of
+ * the same GraphPoet may be used concurrently.
+ */
+public final class PoemWriter extends Writer {
+
+    //还没有输入单词时上一个单词的编号
+    private static final int NO_WORD = -2;
+
+    private final CsrGraph<String> graph;
+    private final BridgeIndex bridges;
+    private final Writer output;
+    private final StringBuilder word = new StringBuilder();
+    private int previous = NO_WORD;
+    private boolean finished;
+
+    // Abstraction function:
+    //   AF(graph, bridges, output, word, previous) = 已经读入的文本生成的诗歌，
+    //       其中除word以外的单词及其前的桥接词已写入output，word是还没有结束的最后一个输入单词
+    // Representation invariant:
+    //   word中没有空格、回车和换行符
+    //   previous为上一个写出的输入单词在graph中的编号，不在图中时为-1，还没有写出单词时为NO_WORD
+    //   finished时word为空
+    // Safety from rep exposure:
+    //   所有数据都为private，graph不可变，word不会被返回
+
+    /**
+     * 创建诗歌输出流
+     * @param graph     单词亲和图
+     * @param bridges   graph上的桥接词索引
+     * @param output    诗歌写入的输出
+     */
+    PoemWriter(CsrGraph<String> graph, BridgeIndex bridges, Writer output) {
+        super(output);
+        this.graph = graph;
+        this.bridges = bridges;
+        this.output = output;
+    }
+
+    /**
+     * 检测RI是否被保持
+     */
+    private void checkRep() {
+        assert !finished || word.length() == 0;
+        assert previous >= NO_WORD;
+    }
+
+    /**
+     * 读入一个字符，遇到分隔符时写出结束的单词
+     * @param c 字符
+     * @throws IOException  如果写入输出失败
+     */
+    private void accept(char c) throws IOException {
+        if (c == ' ' || c == '\n' || c == '\r') {
+            if (word.length() > 0) {
+                writeWord();
+            }
+        } else {
+            word.append(c);
+        }
+    }
+
+    /**
+     * 写出word及它与上一个输入单词之间的桥接词，再清空word
+     * @throws IOException  如果写入输出失败
+     */
+    private void writeWord() throws IOException {
+        String target = word.toString();
+        int targetId = graph.id(target.toLowerCase());
+        if (previous != NO_WORD) {
+            output.write(' ');
+            int bridge = previous >= 0 && targetId >= 0 ? bridges.bridge(previous, targetId) : -1;
+            if (bridge >= 0) {
+                output.write(graph.label(bridge));
+                output.write(' ');
+            }
+        }
+        output.write(target);
+        word.setLength(0);
+        previous = targetId;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("poem already finished");
+        }
+    }
+
+    @Override public void write(int c) throws IOException {
+        ensureOpen();
+        accept((char) c);
+    }
+
+    @Override public void write(char[] buffer, int offset, int length) throws IOException {
+        ensureOpen();
+        for (int i = offset; i < offset + length; i++) {
+            accept(buffer[i]);
+        }
+    }
+
+    @Override public void write(String string, int offset, int length) throws IOException {
+        ensureOpen();
+        for (int i = offset; i < offset + length; i++) {
+            accept(string.charAt(i));
+        }
+    }
+
+    /**
+     * Flush the underlying output. The last input word, if it has not yet
+     * been ended by whitespace, is not emitted.
+     *
+     * @throws IOException if flushing the output fails
+     */
+    @Override public void flush() throws IOException {
+        output.flush();
+    }
+
+    /**
+     * End the input: emit the last input word and flush the underlying
+     * output, without closing it. No more text may be written afterwards.
+     * Calling this method more than once has no effect.
+     *
+     * @throws IOException if writing to the output fails
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (word.length() > 0) {
+            writeWord();
+        }
+        finished = true;
+        checkRep();
+        output.flush();
+    }
+
+    /**
+     * End the input as by {@link #finish()} and close the underlying output.
+     *
+     * @throws IOException if writing to or closing the output fails
+     */
+    @Override public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            output.close();
+        }
+    }
+}
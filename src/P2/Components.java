@@ -0,0 +1,201 @@
+package P2;
+
+import java.util.Arrays;
+
+/**
+ * 增量地维护DistanceEngine中的人组成的弱连通分量（忽略边的方向）。
+ *
+ * <p>用按编号索引的并查集表示分量，查找时压缩路径，合并时按秩把较矮的树挂到较高的树下，
+ * 因此加入人和边以及判断两人是否连通的均摊代价都是O(α(n))。
+ * 两人不在同一个分量中时，任何方向上都没有路径，距离查询可以立即返回。
+ * 删除边或人可能把一个分量分开，并查集无法拆分，因此只把分量标记为过期，
+ * 在下一次查询时用一遍所有边重新计算；连续的多次删除只需一次重新计算。
+ * Components为mutable
+ */
+class Components {
+
+    private final DistanceEngine engine;
+    private int[] parent = new int[0];
+    private byte[] rank = new byte[0];
+    //size[r]为根为r的分量的人数
+    private int[] size = new int[0];
+    private int count = 0;
+    private boolean stale = true;
+    // Abstraction function:
+    //   AF(engine, parent) = engine中的人按弱连通性划分成的分量，编号为i和j的人在同一个分量中当且仅当find(i) == find(j)
+    // Representation invariant:
+    //   !stale时，parent.length >= engine.limit()，对engine中的每个人i，沿parent到达的根r满足parent[r] == r，
+    //       两人同根当且仅当engine中忽略方向后他们之间有路径
+    //   size[r]为以r为根的人数，count为engine中的根的个数
+    //   rank[i] < rank[parent[i]]，除非parent[i] == i
+    // Safety from rep exposure:
+    //   所有数据都为private，不返回任何数组
+
+    /**
+     * 创建连通分量，分量在第一次查询时计算
+     * @param engine    社交网络
+     */
+    Components(DistanceEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * 检测RI是否被保持
+     */
+    private void checkRep() {
+        assert stale || parent.length >= engine.limit();
+        assert count >= 0 && count <= engine.size();
+    }
+
+    /**
+     * 保证数组能容纳编号小于limit的人
+     */
+    private void ensureCapacity(int limit) {
+        if (parent.length < limit) {
+            int capacity = Math.max(limit, parent.length * 2);
+            parent = Arrays.copyOf(parent, capacity);
+            rank = Arrays.copyOf(rank, capacity);
+            size = Arrays.copyOf(size, capacity);
+        }
+    }
+
+    /**
+     * 把编号为id的人设为只有他自己的分量
+     */
+    private void makeSet(int id) {
+        parent[id] = id;
+        rank[id] = 0;
+        size[id] = 1;
+        count++;
+    }
+
+    /**
+     * 查找一个人所在分量的根，并把路径上的人直接挂到根下
+     * @param id    人的编号
+     * @return  分量的根
+     */
+    private int find(int id) {
+        int root = id;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        while (parent[id] != root) {
+            int next = parent[id];
+            parent[id] = root;
+            id = next;
+        }
+        return root;
+    }
+
+    /**
+     * 合并两人所在的分量
+     */
+    private void union(int a, int b) {
+        int ra = find(a);
+        int rb = find(b);
+        if (ra == rb) {
+            return;
+        }
+        if (rank[ra] < rank[rb]) {
+            int swap = ra;
+            ra = rb;
+            rb = swap;
+        }
+        parent[rb] = ra;
+        size[ra] += size[rb];
+        if (rank[ra] == rank[rb]) {
+            rank[ra]++;
+        }
+        count--;
+    }
+
+    /**
+     * 用所有人和边重新计算分量
+     */
+    private void rebuild() {
+        int n = engine.limit();
+        ensureCapacity(n);
+        count = 0;
+        for (int id = 0; id < n; id++) {
+            if (engine.person(id) != null) {
+                makeSet(id);
+            } else {
+                parent[id] = id;
+                size[id] = 0;
+            }
+        }
+        for (int id = 0; id < n; id++) {
+            for (int k = 0; k < engine.outDegree(id); k++) {
+                union(id, engine.target(id, k));
+            }
+        }
+        stale = false;
+        checkRep();
+    }
+
+    /**
+     * 分量在加入一个人后保持最新
+     * @param id    新加入的人的编号
+     */
+    void addVertex(int id) {
+        if (stale) {
+            return;
+        }
+        ensureCapacity(id + 1);
+        makeSet(id);
+    }
+
+    /**
+     * 分量在加入一条边后保持最新
+     * @param source    新加入的边的起点
+     * @param target    新加入的边的终点
+     */
+    void addEdge(int source, int target) {
+        if (!stale) {
+            union(source, target);
+        }
+    }
+
+    /**
+     * 删除边或人后分量可能被分开，使分量在下一次查询时重新计算
+     */
+    void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * 判断两人之间是否可能有路径
+     * @param a 一个人的编号
+     * @param b 另一个人的编号
+     * @return  如果忽略边的方向后两人之间有路径，返回true
+     */
+    boolean connected(int a, int b) {
+        if (stale) {
+            rebuild();
+        }
+        return find(a) == find(b);
+    }
+
+    /**
+     * 获得一个人所在分量的人数
+     * @param id    人的编号
+     * @return  忽略边的方向后与此人之间有路径的人数，包括他自己
+     */
+    int size(int id) {
+        if (stale) {
+            rebuild();
+        }
+        return size[find(id)];
+    }
+
+    /**
+     * 获得分量的个数
+     * @return  分量的个数
+     */
+    int count() {
+        if (stale) {
+            rebuild();
+        }
+        return count;
+    }
+}
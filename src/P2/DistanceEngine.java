@@ -0,0 +1,562 @@
+package P2;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 以稠密的int编号表示社交网络中的人，并在此基础上计算两人之间的距离。
+ *
+ * <p>每个人被分配一个从0开始的编号，出边和入边都保存在按编号索引的int数组中。
+ * 距离用双向BFS计算：从起点沿出边、从终点沿入边同时按层扩展，每次扩展较小的一侧，
+ * 两侧相遇时即可得到最短距离，因此一次查询通常只访问起点和终点附近的少量顶点。
+ * 访问标记、距离和队列数组在查询之间复用，用递增的epoch区分不同查询的标记，无需每次清空。
+ *
+ * <p>批量查询用一次BFS求出一个（或一组）起点到所有人的距离。BFS采用方向优化：
+ * 前沿较小时自顶向下沿出边扩展；前沿的出边数超过尚未访问的出边数的1/ALPHA时，
+ * 改为自底向上，由每个未访问的人沿入边寻找位于前沿中的前驱，直到前沿小于人数的1/BETA。
+ * 距离分布可以在ForkJoinPool上并行计算，每个任务使用自己的Traversal缓冲区。
+ * DistanceEngine为mutable，并行查询期间不能修改
+ */
+class DistanceEngine {
+
+    //方向优化BFS的切换阈值
+    private static final int ALPHA = 14;
+    private static final int BETA = 24;
+    //并行计算距离分布时每个任务至少处理的起点个数
+    private static final int MIN_SOURCES_PER_TASK = 4;
+
+    private final PersonRegistry registry = new PersonRegistry();
+    private int[][] targets = new int[16][];
+    //targetSlots[i][k]为边(i, targets[i][k])在sources[targets[i][k]]中的下标
+    private int[][] targetSlots = new int[16][];
+    private int[] targetCounts = new int[16];
+    private int[][] sources = new int[16][];
+    //sourceSlots[j][k]为边(sources[j][k], j)在targets[sources[j][k]]中的下标
+    private int[][] sourceSlots = new int[16][];
+    private int[] sourceCounts = new int[16];
+    private int edgeCount = 0;
+
+    //查询之间复用的BFS状态
+    private int epoch = 0;
+    private int[] forwardMarks = new int[0];
+    private int[] backwardMarks = new int[0];
+    private int[] forwardDistances = new int[0];
+    private int[] backwardDistances = new int[0];
+    private int[] forwardQueue = new int[0];
+    private int[] backwardQueue = new int[0];
+    // Abstraction function:
+    //   AF(registry, targets, targetCounts) = 一个有向图，顶点为registry中的人，编号为i的人是registry.label(i)，
+    //       从i到j有边当且仅当j出现在targets[i][0..targetCounts[i])中
+    // Representation invariant:
+    //   targets、targetSlots、sources、sourceSlots中前registry.limit()项不为null
+    //   空闲编号的targetCounts和sourceCounts为0
+    //   targets[i][0..targetCounts[i])中没有重复元素，且都是已注册的人的编号
+    //   对k < targetCounts[i]，令j = targets[i][k]、m = targetSlots[i][k]，则sources[j][m] == i且sourceSlots[j][m] == k；
+    //       反之亦然，因此正向和反向邻接表表示同一组边
+    //   edgeCount为targetCounts[0..limit())之和
+    //   forwardMarks[v] == epoch 当且仅当 v在当前（或最近一次）查询中被正向搜索访问过，反向同理
+    // Safety from rep exposure:
+    //   所有数据都为private，不返回任何数组
+
+    /**
+     * 检测RI是否被保持
+     */
+    private void checkRep() {
+        assert edgeCount >= 0;
+    }
+
+    /**
+     * 获得人的编号
+     * @param person    一个人
+     * @return  人的编号；如果此人不在图中，返回-1
+     */
+    int id(Person person) {
+        return registry.id(person);
+    }
+
+    /**
+     * 获得编号对应的人
+     * @param id    人的编号，0 <= id < limit()
+     * @return  编号为id的人，与加入时同名的唯一实例；编号空闲时返回null
+     */
+    Person person(int id) {
+        return registry.label(id);
+    }
+
+    /**
+     * 获得图中的人数
+     * @return  人数
+     */
+    int size() {
+        return registry.size();
+    }
+
+    /**
+     * 获得编号的上界
+     * @return  所有人的编号都小于此值
+     */
+    int limit() {
+        return registry.limit();
+    }
+
+    /**
+     * 获得一个人的出度
+     * @param id    人的编号
+     * @return  此人认识的人数
+     */
+    int outDegree(int id) {
+        return targetCounts[id];
+    }
+
+    /**
+     * 获得一个人的第k条出边的终点
+     * @param id    人的编号
+     * @param k     出边的下标，0 <= k < outDegree(id)
+     * @return  终点的编号
+     */
+    int target(int id, int k) {
+        return targets[id][k];
+    }
+
+    /**
+     * 获得一个人的入度
+     * @param id    人的编号
+     * @return  认识此人的人数
+     */
+    int inDegree(int id) {
+        return sourceCounts[id];
+    }
+
+    /**
+     * 获得一个人的第m条入边的起点
+     * @param id    人的编号
+     * @param m     入边的下标，0 <= m < inDegree(id)
+     * @return  起点的编号
+     */
+    int source(int id, int m) {
+        return sources[id][m];
+    }
+
+    /**
+     * 加入一个人，优先复用被删除的人的编号
+     * @param person    一个人
+     * @return  此人的编号；如果此人已经在图中，返回已有的编号
+     */
+    int addVertex(Person person) {
+        int existing = registry.id(person);
+        if (existing >= 0) {
+            return existing;
+        }
+        int id = registry.intern(person);
+        if (id == targets.length) {
+            int capacity = id * 2;
+            targets = Arrays.copyOf(targets, capacity);
+            targetSlots = Arrays.copyOf(targetSlots, capacity);
+            targetCounts = Arrays.copyOf(targetCounts, capacity);
+            sources = Arrays.copyOf(sources, capacity);
+            sourceSlots = Arrays.copyOf(sourceSlots, capacity);
+            sourceCounts = Arrays.copyOf(sourceCounts, capacity);
+        }
+        if (targets[id] == null) {
+            targets[id] = new int[2];
+            targetSlots[id] = new int[2];
+            sources[id] = new int[2];
+            sourceSlots[id] = new int[2];
+        }
+        checkRep();
+        return id;
+    }
+
+    /**
+     * 加入一条有向边，调用者需保证这条边原先不存在
+     * @param source    起点的编号
+     * @param target    终点的编号
+     */
+    void addEdge(int source, int target) {
+        int k = targetCounts[source];
+        int m = sourceCounts[target];
+        if (k == targets[source].length) {
+            targets[source] = Arrays.copyOf(targets[source], k * 2);
+            targetSlots[source] = Arrays.copyOf(targetSlots[source], k * 2);
+        }
+        if (m == sources[target].length) {
+            sources[target] = Arrays.copyOf(sources[target], m * 2);
+            sourceSlots[target] = Arrays.copyOf(sourceSlots[target], m * 2);
+        }
+        targets[source][k] = target;
+        targetSlots[source][k] = m;
+        sources[target][m] = source;
+        sourceSlots[target][m] = k;
+        targetCounts[source]++;
+        sourceCounts[target]++;
+        edgeCount++;
+    }
+
+    /**
+     * 判断一条有向边是否存在；在起点的出边和终点的入边中较短的一张表里查找，代价为O(min(出度, 入度))
+     * @param source    起点的编号
+     * @param target    终点的编号
+     * @return  如果这条边存在，返回true
+     */
+    boolean hasEdge(int source, int target) {
+        if (targetCounts[source] <= sourceCounts[target]) {
+            for (int k = 0; k < targetCounts[source]; k++) {
+                if (targets[source][k] == target) {
+                    return true;
+                }
+            }
+        } else {
+            for (int m = 0; m < sourceCounts[target]; m++) {
+                if (sources[target][m] == source) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 删除一条有向边；代价为O(起点的出度)
+     * @param source    起点的编号
+     * @param target    终点的编号
+     * @return  如果这条边存在并被删除，返回true
+     */
+    boolean removeEdge(int source, int target) {
+        for (int k = 0; k < targetCounts[source]; k++) {
+            if (targets[source][k] == target) {
+                removeSourceSlot(target, targetSlots[source][k]);
+                removeTargetSlot(source, k);
+                edgeCount--;
+                checkRep();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 删除一个人及与他相关的所有边，他的编号之后可以被复用；代价为O(入度 + 出度)
+     * @param id    人的编号
+     */
+    void removeVertex(int id) {
+        //先删除反向表中对应的条目，再整体清空此人自己的两张表
+        for (int k = 0; k < targetCounts[id]; k++) {
+            removeSourceSlot(targets[id][k], targetSlots[id][k]);
+        }
+        for (int m = 0; m < sourceCounts[id]; m++) {
+            removeTargetSlot(sources[id][m], sourceSlots[id][m]);
+        }
+        edgeCount -= targetCounts[id] + sourceCounts[id];
+        targetCounts[id] = 0;
+        sourceCounts[id] = 0;
+        registry.remove(registry.label(id));
+        checkRep();
+    }
+
+    /**
+     * 从target的入边表中删除第m项，用最后一项填补空位，并更新被移动的边在出边表中的反向下标
+     */
+    private void removeSourceSlot(int target, int m) {
+        int last = --sourceCounts[target];
+        if (m != last) {
+            int moved = sources[target][last];
+            int k = sourceSlots[target][last];
+            sources[target][m] = moved;
+            sourceSlots[target][m] = k;
+            targetSlots[moved][k] = m;
+        }
+    }
+
+    /**
+     * 从source的出边表中删除第k项，用最后一项填补空位，并更新被移动的边在入边表中的反向下标
+     */
+    private void removeTargetSlot(int source, int k) {
+        int last = --targetCounts[source];
+        if (k != last) {
+            int moved = targets[source][last];
+            int m = targetSlots[source][last];
+            targets[source][k] = moved;
+            targetSlots[source][k] = m;
+            sourceSlots[moved][m] = k;
+        }
+    }
+
+    /**
+     * 开始一次新的查询：使上一次查询的标记失效，并保证复用的数组足够大
+     */
+    private void newQuery() {
+        int n = registry.limit();
+        if (forwardMarks.length < n) {
+            int capacity = Math.max(n, forwardMarks.length * 2);
+            forwardMarks = new int[capacity];
+            backwardMarks = new int[capacity];
+            forwardDistances = new int[capacity];
+            backwardDistances = new int[capacity];
+            forwardQueue = new int[capacity];
+            backwardQueue = new int[capacity];
+            epoch = 0;
+        }
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(forwardMarks, 0);
+            Arrays.fill(backwardMarks, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * 用双向BFS计算两人之间的距离
+     * @param source    起点的编号
+     * @param target    终点的编号
+     * @return  从source沿有向边到达target的最少边数；如果不可达，返回-1
+     */
+    int distance(int source, int target) {
+        return distance(source, target, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 用双向BFS计算两人之间不超过已知上界的距离。
+     * 两侧已扩展到的深度之和达到上界时，更短的路径已不可能存在，无需继续搜索
+     * @param source    起点的编号
+     * @param target    终点的编号
+     * @param bound     距离的上界
+     * @return  从source沿有向边到达target的最少边数，若不小于bound则返回bound；如果不可达，返回-1
+     */
+    int distance(int source, int target, int bound) {
+        if (source == target) {
+            return 0;
+        }
+        newQuery();
+        int forwardHead = 0;
+        int forwardTail = 0;
+        int backwardHead = 0;
+        int backwardTail = 0;
+        forwardQueue[forwardTail++] = source;
+        forwardMarks[source] = epoch;
+        forwardDistances[source] = 0;
+        backwardQueue[backwardTail++] = target;
+        backwardMarks[target] = epoch;
+        backwardDistances[target] = 0;
+        while (forwardHead < forwardTail && backwardHead < backwardTail) {
+            //两侧还没有相遇，因此最短距离大于两侧当前层的深度之和
+            if (forwardDistances[forwardQueue[forwardHead]] + backwardDistances[backwardQueue[backwardHead]] + 1 >= bound) {
+                return bound;
+            }
+            int best = Integer.MAX_VALUE;
+            //扩展当前层较小的一侧，并扩展完整的一层，再在这一层的所有相遇点中取最小值
+            if (forwardTail - forwardHead <= backwardTail - backwardHead) {
+                int levelEnd = forwardTail;
+                for (; forwardHead < levelEnd; forwardHead++) {
+                    int u = forwardQueue[forwardHead];
+                    int next = forwardDistances[u] + 1;
+                    int[] adjacent = targets[u];
+                    for (int i = 0; i < targetCounts[u]; i++) {
+                        int v = adjacent[i];
+                        if (backwardMarks[v] == epoch) {
+                            best = Math.min(best, next + backwardDistances[v]);
+                        }
+                        if (forwardMarks[v] != epoch) {
+                            forwardMarks[v] = epoch;
+                            forwardDistances[v] = next;
+                            forwardQueue[forwardTail++] = v;
+                        }
+                    }
+                }
+            } else {
+                int levelEnd = backwardTail;
+                for (; backwardHead < levelEnd; backwardHead++) {
+                    int u = backwardQueue[backwardHead];
+                    int next = backwardDistances[u] + 1;
+                    int[] adjacent = sources[u];
+                    for (int i = 0; i < sourceCounts[u]; i++) {
+                        int v = adjacent[i];
+                        if (forwardMarks[v] == epoch) {
+                            best = Math.min(best, next + forwardDistances[v]);
+                        }
+                        if (backwardMarks[v] != epoch) {
+                            backwardMarks[v] = epoch;
+                            backwardDistances[v] = next;
+                            backwardQueue[backwardTail++] = v;
+                        }
+                    }
+                }
+            }
+            if (best != Integer.MAX_VALUE) {
+                return Math.min(best, bound);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 用一次BFS计算一个人到所有人的距离
+     * @param source    起点的编号
+     * @return  长度为limit()的数组，第i项为从source到编号为i的人的距离，不可达时为-1
+     */
+    int[] distances(int source) {
+        return distances(new int[] {source});
+    }
+
+    /**
+     * 用一次多源BFS计算一组人到所有人的距离
+     * @param sources   起点的编号，不能为空
+     * @return  长度为limit()的数组，第i项为从最近的起点到编号为i的人的距离，不可达时为-1
+     */
+    int[] distances(int[] sources) {
+        Traversal traversal = new Traversal(registry.limit());
+        traversal.run(sources);
+        return traversal.distances;
+    }
+
+    /**
+     * 在ForkJoinPool上并行计算距离分布，每个起点做一次BFS
+     * @param origins   起点的编号，可以重复
+     * @param pool      执行BFS的线程池
+     * @return  第d项为满足起点s在origins中、从s到t的距离为d的(s, t)对数；不可达的对不计入，
+     *          数组在最大距离之后截断
+     */
+    long[] histogram(int[] origins, ForkJoinPool pool) {
+        int tasks = Math.max(1, Math.min(pool.getParallelism() * 4, origins.length / MIN_SOURCES_PER_TASK));
+        long[] histogram = pool.invoke(new HistogramTask(origins, 0, origins.length, tasks));
+        int length = histogram.length;
+        while (length > 0 && histogram[length - 1] == 0) {
+            length--;
+        }
+        return Arrays.copyOf(histogram, length);
+    }
+
+    /**
+     * 把一段起点分成若干子任务计算距离分布
+     */
+    @SuppressWarnings("serial")
+    private final class HistogramTask extends RecursiveTask<long[]> {
+
+        private final int[] origins;
+        private final int from;
+        private final int to;
+        private final int tasks;
+
+        /**
+         * @param origins   所有起点
+         * @param from      本任务处理的第一个起点的下标
+         * @param to        本任务处理的最后一个起点的下标加1
+         * @param tasks     本任务还要分成的子任务个数
+         */
+        HistogramTask(int[] origins, int from, int to, int tasks) {
+            this.origins = origins;
+            this.from = from;
+            this.to = to;
+            this.tasks = tasks;
+        }
+
+        @Override protected long[] compute() {
+            if (tasks > 1) {
+                int half = tasks / 2;
+                int middle = from + (int) ((long) (to - from) * half / tasks);
+                HistogramTask left = new HistogramTask(origins, from, middle, half);
+                HistogramTask right = new HistogramTask(origins, middle, to, tasks - half);
+                left.fork();
+                long[] histogram = right.compute();
+                long[] other = left.join();
+                for (int d = 0; d < histogram.length; d++) {
+                    histogram[d] += other[d];
+                }
+                return histogram;
+            }
+            //最大距离小于limit()
+            long[] histogram = new long[Math.max(1, registry.limit())];
+            Traversal traversal = new Traversal(registry.limit());
+            int[] single = new int[1];
+            for (int i = from; i < to; i++) {
+                single[0] = origins[i];
+                traversal.run(single);
+                for (int k = 0; k < traversal.visited; k++) {
+                    histogram[traversal.distances[traversal.queue[k]]]++;
+                }
+            }
+            return histogram;
+        }
+    }
+
+    /**
+     * 一次方向优化BFS使用的缓冲区，可以在同一线程中重复使用
+     */
+    private final class Traversal {
+
+        private final int[] distances;
+        //按访问顺序保存已访问的人，每一层的人在queue中连续存放
+        private final int[] queue;
+        private int visited;
+
+        Traversal(int size) {
+            this.distances = new int[size];
+            this.queue = new int[size];
+        }
+
+        /**
+         * 从一组起点开始BFS，结束后distances保存每个人的距离，queue[0..visited)为所有可达的人
+         * @param origins   起点的编号
+         */
+        void run(int[] origins) {
+            int n = distances.length;
+            Arrays.fill(distances, -1);
+            visited = 0;
+            long unexplored = edgeCount;
+            for (int origin: origins) {
+                if (distances[origin] < 0) {
+                    distances[origin] = 0;
+                    queue[visited++] = origin;
+                    unexplored -= targetCounts[origin];
+                }
+            }
+            int levelStart = 0;
+            int level = 0;
+            boolean bottomUp = false;
+            while (levelStart < visited) {
+                int levelEnd = visited;
+                long frontierEdges = 0;
+                for (int k = levelStart; k < levelEnd; k++) {
+                    frontierEdges += targetCounts[queue[k]];
+                }
+                if (!bottomUp && frontierEdges > unexplored / ALPHA) {
+                    bottomUp = true;
+                } else if (bottomUp && levelEnd - levelStart < n / BETA) {
+                    bottomUp = false;
+                }
+                int next = level + 1;
+                if (bottomUp) {
+                    //由每个未访问的人沿入边寻找上一层中的前驱
+                    for (int v = 0; v < n; v++) {
+                        if (distances[v] >= 0) {
+                            continue;
+                        }
+                        int[] adjacent = sources[v];
+                        for (int i = 0; i < sourceCounts[v]; i++) {
+                            if (distances[adjacent[i]] == level) {
+                                distances[v] = next;
+                                queue[visited++] = v;
+                                unexplored -= targetCounts[v];
+                                break;
+                            }
+                        }
+                    }
+                } else {
+                    for (int k = levelStart; k < levelEnd; k++) {
+                        int u = queue[k];
+                        int[] adjacent = targets[u];
+                        for (int i = 0; i < targetCounts[u]; i++) {
+                            int v = adjacent[i];
+                            if (distances[v] < 0) {
+                                distances[v] = next;
+                                queue[visited++] = v;
+                                unexplored -= targetCounts[v];
+                            }
+                        }
+                    }
+                }
+                levelStart = levelEnd;
+                level = next;
+            }
+        }
+    }
+}
@@ -1,27 +1,62 @@
 package P2;
 
-import P1.graph.ConcreteEdgesGraph;
-import P1.graph.Graph;
+import P1.graph.GraphBuilder;
+import P1.graph.GraphMetrics;
+import P1.graph.LabelCodec;
+import P1.graph.MappedGraph;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class FriendshipGraph {
-    private final Graph<Person> graph = new ConcreteEdgesGraph<>();
+    //把人保存为UTF-8编码的名字
+    private static final LabelCodec<Person> PERSON_CODEC = new LabelCodec<Person>() {
+        @Override public byte[] encode(Person person) {
+            return person.getName().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override public Person decode(byte[] bytes) {
+            return new Person(new String(bytes, StandardCharsets.UTF_8));
+        }
+    };
+
+    private final DistanceEngine engine = new DistanceEngine();
+    private final Components components = new Components(engine);
+    private final GraphMetrics metrics = new GraphMetrics("FriendshipGraph", GraphMetrics.DEFAULT_SLOW_NANOS,
+            "getDistance", "getDistances");
+    //没有启用地标时为null
+    private LandmarkOracle oracle = null;
+    // Abstraction function:
+    //   AF(engine) = 一个社交网络，engine中的人为其中的人，从p1到p2的边表示p1认识p2
+    // Representation invariant:
+    //   engine按名字为每个人分配唯一的编号
+    //   components和oracle不为null时建立在engine之上
+    // Safety from rep exposure:
+    //   engine、components和oracle都为private，不会被返回
+    //   metrics被返回，但它本身就是供调用者读取的线程安全的统计
 
     public FriendshipGraph() {
 
     }
     public void addVertex(Person person) {
-        for (Person p: graph.vertices()) {
-            if(p.equals(person)) {
-                System.out.println(person.getName() + "名称重复");
-            }
+        if (engine.id(person) >= 0) {
+            System.out.println(person.getName() + "名称重复");
+            return;
+        }
+        int id = engine.addVertex(person);
+        components.addVertex(id);
+        if (oracle != null) {
+            oracle.addVertex(id);
         }
-        graph.add(person);
     }
 
     public void addEdge(Person person1, Person person2) {
-        if (!graph.vertices().contains(person1) || !graph.vertices().contains(person2)) {
+        int id1 = engine.id(person1);
+        int id2 = engine.id(person2);
+        if (id1 < 0 || id2 < 0) {
             System.out.println("所加边的顶点不存在");
             return;
         }
@@ -29,39 +64,276 @@ public class FriendshipGraph {
             System.out.println("边两端为同一个顶点");
             return;
         }
-        if (graph.set(person1, person2, 1) != 0) {
+        if (engine.hasEdge(id1, id2)) {
             System.out.println("边已存在");
+        } else {
+            engine.addEdge(id1, id2);
+            components.addEdge(id1, id2);
+            if (oracle != null) {
+                oracle.addEdge(id1, id2);
+            }
         }
     }
+    /**
+     * 删除一个人及与他相关的所有关系，代价与他的关系数成正比
+     * @param person    要删除的人
+     */
+    public void removeVertex(Person person) {
+        int id = engine.id(person);
+        if (id < 0) {
+            System.out.println("顶点不存在");
+            return;
+        }
+        engine.removeVertex(id);
+        components.invalidate();
+        if (oracle != null) {
+            oracle.invalidate();
+        }
+    }
+
+    /**
+     * 删除一条关系，代价与person1的关系数成正比。
+     * 连通分量和地标距离表在下一次查询时重新计算，因此连续删除多条关系只需重新计算一次
+     * @param person1   关系的起点
+     * @param person2   关系的终点
+     */
+    public void removeEdge(Person person1, Person person2) {
+        int id1 = engine.id(person1);
+        int id2 = engine.id(person2);
+        if (id1 < 0 || id2 < 0) {
+            System.out.println("顶点不存在");
+            return;
+        }
+        if (!engine.removeEdge(id1, id2)) {
+            System.out.println("边不存在");
+            return;
+        }
+        components.invalidate();
+        if (oracle != null) {
+            oracle.invalidate();
+        }
+    }
+
     public int getDistance(Person person1, Person person2) {
-        if (!graph.vertices().contains(person1) || !graph.vertices().contains(person2)) {
+        long start = metrics.start();
+        int distance = distance(person1, person2);
+        //结果大小记为距离，不可达时为0，查询本身不分配内存
+        metrics.stop(metrics.get("getDistance"), start, Math.max(distance, 0), 0);
+        return distance;
+    }
+
+    /**
+     * 计算两人之间的距离
+     * @param person1   起点
+     * @param person2   终点
+     * @return  从person1到person2的最少关系数；不可达或有人不在图中时为-1
+     */
+    private int distance(Person person1, Person person2) {
+        int id1 = engine.id(person1);
+        int id2 = engine.id(person2);
+        if (id1 < 0 || id2 < 0) {
             System.out.println("顶点不存在");
             return -1;
         }
-        if (person1.equals(person2)) {
-            return 0;
-        }
-
-        Set<Person> visited = new HashSet<>();
-        Queue<Person> queue = new LinkedList<>();
-        int distance;
-        distance = 0;
-        queue.offer(person1);
-        visited.add(person1);
-        while (!queue.isEmpty()) {
-            Person curPerson = queue.poll();
-            distance++;
-            for (Person p: graph.targets(curPerson).keySet()) {
-                if (p.equals(person2)) {
-                    return distance;
+        if (!components.connected(id1, id2)) {
+            return -1;
+        }
+        return oracle != null ? oracle.distance(id1, id2) : engine.distance(id1, id2);
+    }
+
+    /**
+     * 判断两人是否在同一个连通分量中，均摊代价为O(α(n))
+     * @param person1   一个人
+     * @param person2   另一个人
+     * @return  如果忽略关系的方向后两人之间有路径，返回true；有人不在图中时返回false
+     */
+    public boolean isConnected(Person person1, Person person2) {
+        int id1 = engine.id(person1);
+        int id2 = engine.id(person2);
+        return id1 >= 0 && id2 >= 0 && components.connected(id1, id2);
+    }
+
+    /**
+     * 获得一个人所在连通分量的人数
+     * @param person    一个人
+     * @return  忽略关系的方向后与此人之间有路径的人数，包括他自己；不在图中时为0
+     */
+    public int getComponentSize(Person person) {
+        int id = engine.id(person);
+        return id < 0 ? 0 : components.size(id);
+    }
+
+    /**
+     * 获得连通分量的个数
+     * @return  忽略关系的方向后社交网络中连通分量的个数
+     */
+    public int getComponentCount() {
+        return components.count();
+    }
+
+    /**
+     * 获得距离查询的统计：getDistance()以距离（不可达时为0）为结果大小，
+     * getDistances()以终点个数为结果大小；耗时不少于1毫秒的查询作为JFR事件提交
+     * @return  随查询更新的统计
+     */
+    public GraphMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 用地标加速getDistance()。启用后选取landmarks个关系最多的人作为地标，保存他们与所有人之间的距离，
+     * 每人每个地标占2到4字节；查询时先用三角不等式求出距离的上下界，两者相等时直接返回，
+     * 否则只搜索可能在更短路径上的人。加边时距离表被增量更新，删除人后在下一次查询时重新计算
+     * @param landmarks 地标个数，为0时停用地标并释放距离表
+     */
+    public void useLandmarks(int landmarks) {
+        if (landmarks < 0) {
+            throw new IllegalArgumentException("negative landmark count: " + landmarks);
+        }
+        oracle = landmarks == 0 ? null : new LandmarkOracle(engine, landmarks);
+    }
+
+    /**
+     * 获得地标距离表占用的内存
+     * @return  字节数；没有启用地标时为0
+     */
+    public long getLandmarkMemory() {
+        return oracle == null ? 0 : oracle.memory();
+    }
+
+    /**
+     * 获得启用地标以来，getDistance()只用上下界就得到准确距离的比例
+     * @return  0到1之间的比例；没有启用地标或还没有查询时为0
+     */
+    public double getLandmarkExactRate() {
+        return oracle == null ? 0 : oracle.exactRate();
+    }
+
+    /**
+     * 用一次BFS计算一个人到一组人的距离
+     * @param source    起点
+     * @param targets   终点
+     * @return  与targets等长的数组，第i项为source到targets.get(i)的距离；不可达或终点不存在时为-1
+     */
+    public int[] getDistances(Person source, List<Person> targets) {
+        return getDistances(Collections.singleton(source), targets);
+    }
+
+    /**
+     * 用一次多源BFS计算一组人到另一组人的距离
+     * @param sources   起点，距离从其中最近的一个算起
+     * @param targets   终点
+     * @return  与targets等长的数组，第i项为sources到targets.get(i)的最短距离；不可达或终点不存在时为-1
+     */
+    public int[] getDistances(Collection<Person> sources, List<Person> targets) {
+        long start = metrics.start();
+        int[] result = new int[targets.size()];
+        Arrays.fill(result, -1);
+        int[] ids = new int[sources.size()];
+        int count = 0;
+        for (Person source: sources) {
+            int id = engine.id(source);
+            if (id < 0) {
+                System.out.println("顶点不存在");
+            } else {
+                ids[count++] = id;
+            }
+        }
+        if (count > 0) {
+            int[] distances = engine.distances(Arrays.copyOf(ids, count));
+            for (int i = 0; i < result.length; i++) {
+                int id = engine.id(targets.get(i));
+                if (id >= 0) {
+                    result[i] = distances[id];
                 }
-                if (!visited.contains(p)) {
-                    visited.add(p);
-                    queue.offer(p);
+            }
+        }
+        //起点和结果数组，以及BFS得到的所有人的距离
+        metrics.stop(metrics.get("getDistances"), start, result.length,
+                4L * (ids.length + result.length + (count > 0 ? engine.limit() : 0)));
+        return result;
+    }
+
+    /**
+     * 并行计算所有人两两之间的距离分布
+     * @param pool  执行BFS的线程池
+     * @return  第d项为距离为d的有序对(p1, p2)的个数，第0项为人数；不可达的对不计入
+     */
+    public long[] getDistanceHistogram(ForkJoinPool pool) {
+        int[] origins = new int[engine.size()];
+        int count = 0;
+        for (int id = 0; id < engine.limit(); id++) {
+            if (engine.person(id) != null) {
+                origins[count++] = id;
+            }
+        }
+        return engine.histogram(origins, pool);
+    }
+
+    /**
+     * 随机抽取一部分人作为起点，并行估计距离分布
+     * @param samples   抽取的起点个数（可重复抽取）
+     * @param seed      随机数种子
+     * @param pool      执行BFS的线程池
+     * @return  第d项为抽取的起点到其他人距离为d的次数；不可达的对不计入
+     */
+    public long[] getDistanceHistogram(int samples, long seed, ForkJoinPool pool) {
+        if (engine.size() == 0) {
+            return new long[0];
+        }
+        Random random = new Random(seed);
+        int[] origins = new int[samples];
+        for (int i = 0; i < samples; i++) {
+            int id;
+            do {
+                id = random.nextInt(engine.limit());
+            } while (engine.person(id) == null);
+            origins[i] = id;
+        }
+        return engine.histogram(origins, pool);
+    }
+
+    /**
+     * 把社交网络保存为可以映射的二进制文件，已存在的文件被原子地替换
+     * @param file  文件路径
+     * @throws IOException  如果写入文件失败
+     */
+    public void save(Path file) throws IOException {
+        //按编号顺序从engine的邻接表生成快照，不需要另外保存一份图
+        GraphBuilder<Person> builder = new GraphBuilder<>();
+        for (int id = 0; id < engine.limit(); id++) {
+            Person person = engine.person(id);
+            if (person != null) {
+                builder.addVertex(person);
+                for (int k = 0; k < engine.outDegree(id); k++) {
+                    builder.addEdge(person, engine.person(engine.target(id, k)), 1);
                 }
             }
         }
-        return -1;
+        MappedGraph.write(builder.build(), PERSON_CODEC, file);
+    }
+
+    /**
+     * 读取save()保存的社交网络。文件被映射而不是逐行解析，再直接按编号载入人和关系
+     * @param file  save()写出的文件
+     * @return  与保存时具有相同的人和关系的社交网络
+     * @throws IOException  如果读取文件失败，或者文件不是保存的社交网络
+     */
+    public static FriendshipGraph load(Path file) throws IOException {
+        MappedGraph<Person> mapped = MappedGraph.open(file, PERSON_CODEC);
+        FriendshipGraph friendships = new FriendshipGraph();
+        int[] ids = new int[mapped.vertexCount()];
+        for (int v = 0; v < ids.length; v++) {
+            ids[v] = friendships.engine.addVertex(mapped.label(v));
+        }
+        for (int v = 0; v < ids.length; v++) {
+            for (int i = mapped.targetsStart(v); i < mapped.targetsEnd(v); i++) {
+                friendships.engine.addEdge(ids[v], ids[mapped.targetAt(i)]);
+            }
+        }
+        //直接载入的边没有经过addEdge()，分量在第一次查询时一次算出
+        friendships.components.invalidate();
+        return friendships;
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,452 @@
+package P2;
+
+import java.util.Arrays;
+
+/**
+ * 用地标估计并加速DistanceEngine中两人之间的距离查询。
+ *
+ * <p>选取K个分布在图的边缘的人作为地标L，预先用BFS求出每个地标到所有人的距离d(L, v)和所有人到地标的距离d(v, L)。
+ * 由三角不等式，d(s, t) <= d(s, L) + d(L, t)，且d(s, t) >= d(L, t) - d(L, s)、d(s, t) >= d(s, L) - d(t, L)；
+ * 若L能到达s却不能到达t，或t能到达L而s不能，则s不能到达t。上下界相等时直接返回，
+ * 否则用双向BFS搜索，两侧已扩展的深度之和达到上界时即可停止。
+ *
+ * <p>距离表按地标和方向分列保存，所有距离小于255时每人占1字节，否则扩展为2字节；
+ * 有人的距离达到65535的地标被舍弃。加入人和边时距离表被增量地更新，
+ * 删除人时距离可能变大，因此距离表被标记为过期，在下一次查询时重新计算。
+ * 选取时有关系的人可能不足以选出count个地标；此后加入的边连到没有被任何地标到达的人（例如新的连通分量）时，
+ * 距离表同样被标记为过期，在下一次查询时重新选取地标，地标达到count个之后加边不再引起重新计算。
+ * LandmarkOracle为mutable，不能被多个线程同时使用
+ */
+class LandmarkOracle {
+
+    //不可达时的距离
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final DistanceEngine engine;
+    private final int count;
+    private int[] landmarks = new int[0];
+    //from[i].get(v)为landmarks[i]到v的距离，to[i].get(v)为v到landmarks[i]的距离
+    private Column[] from = new Column[0];
+    private Column[] to = new Column[0];
+    private boolean stale = true;
+    private long queries = 0;
+    private long exact = 0;
+
+    //BFS和增量更新复用的缓冲区
+    private int epoch = 0;
+    private int[] marks = new int[0];
+    private int[] distances = new int[0];
+    private int[] queue = new int[0];
+    // Abstraction function:
+    //   AF(engine, landmarks, from, to) = engine中的社交网络上的距离查询，
+    //       以landmarks中的人为地标，from和to为它们与所有人之间的距离
+    // Representation invariant:
+    //   landmarks.length == from.length == to.length <= count
+    //   !stale时，landmarks中的人都在engine中，对engine中的每个人v，
+    //       from[i].get(v)和to[i].get(v)等于engine中landmarks[i]到v和v到landmarks[i]的距离，不可达时为INFINITY
+    //   exact <= queries
+    //   marks[v] == epoch 当且仅当 v在最近一次BFS中被访问过
+    // Safety from rep exposure:
+    //   所有数据都为private，不返回任何数组
+
+    /**
+     * 一个地标在一个方向上到所有人的距离，按编号索引，占1或2字节
+     */
+    private static final class Column {
+        private static final int BYTE_INFINITY = 0xFF;
+        private static final int SHORT_INFINITY = 0xFFFF;
+
+        //narrow和wide恰有一个不为null
+        private byte[] narrow;
+        private short[] wide;
+
+        Column(int length) {
+            narrow = new byte[length];
+            Arrays.fill(narrow, (byte) BYTE_INFINITY);
+        }
+
+        int length() {
+            return narrow != null ? narrow.length : wide.length;
+        }
+
+        long bytes() {
+            return narrow != null ? narrow.length : 2L * wide.length;
+        }
+
+        int get(int v) {
+            if (narrow != null) {
+                int d = narrow[v] & 0xFF;
+                return d == BYTE_INFINITY ? INFINITY : d;
+            }
+            int d = wide[v] & 0xFFFF;
+            return d == SHORT_INFINITY ? INFINITY : d;
+        }
+
+        /**
+         * 设置到v的距离，必要时扩展为2字节
+         * @return  如果距离超出2字节能表示的范围，返回false且不修改
+         */
+        boolean set(int v, int d) {
+            if (d >= SHORT_INFINITY) {
+                return false;
+            }
+            if (narrow != null) {
+                if (d < BYTE_INFINITY) {
+                    narrow[v] = (byte) d;
+                    return true;
+                }
+                wide = new short[narrow.length];
+                for (int i = 0; i < narrow.length; i++) {
+                    int old = narrow[i] & 0xFF;
+                    wide[i] = (short) (old == BYTE_INFINITY ? SHORT_INFINITY : old);
+                }
+                narrow = null;
+            }
+            wide[v] = (short) d;
+            return true;
+        }
+
+        /**
+         * 扩大到能容纳length个人，新增的人不可达
+         */
+        void grow(int length) {
+            int old = length();
+            if (narrow != null) {
+                narrow = Arrays.copyOf(narrow, length);
+                Arrays.fill(narrow, old, length, (byte) BYTE_INFINITY);
+            } else {
+                wide = Arrays.copyOf(wide, length);
+                Arrays.fill(wide, old, length, (short) SHORT_INFINITY);
+            }
+        }
+    }
+
+    /**
+     * 创建距离预言机，距离表在第一次查询时计算
+     * @param engine    社交网络
+     * @param count     地标个数的上限，> 0
+     */
+    LandmarkOracle(DistanceEngine engine, int count) {
+        this.engine = engine;
+        this.count = count;
+    }
+
+    /**
+     * 检测RI是否被保持
+     */
+    private void checkRep() {
+        assert landmarks.length == from.length && landmarks.length == to.length;
+        assert landmarks.length <= count;
+        assert exact <= queries;
+    }
+
+    /**
+     * 开始一次新的BFS，保证缓冲区足够大
+     */
+    private void newSearch() {
+        int n = engine.limit();
+        if (marks.length < n) {
+            int capacity = Math.max(n, marks.length * 2);
+            marks = new int[capacity];
+            distances = new int[capacity];
+            queue = new int[capacity];
+            epoch = 0;
+        }
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * 重新选取地标并计算距离表。第一个地标为关系最多的人，之后每次选取与已选地标最远的人，
+     * 使地标分布在图的边缘，从而对更多的人给出紧的上下界；还没有被任何地标到达的人最优先
+     */
+    private void rebuild() {
+        int n = engine.limit();
+        int[] nearest = new int[n];
+        Arrays.fill(nearest, INFINITY);
+        int[] chosen = new int[count];
+        Column[] forward = new Column[count];
+        Column[] backward = new Column[count];
+        int k = 0;
+        int tried = 0;
+        while (k < count && tried < count * 2) {
+            int landmark = farthest(nearest);
+            if (landmark < 0) {
+                break;
+            }
+            tried++;
+            //已选的人不会再被选中，距离超出范围的人也不作为地标
+            nearest[landmark] = 0;
+            Column f = search(landmark, true, n);
+            Column b = f == null ? null : search(landmark, false, n);
+            if (b == null) {
+                continue;
+            }
+            chosen[k] = landmark;
+            forward[k] = f;
+            backward[k] = b;
+            k++;
+            for (int v = 0; v < n; v++) {
+                nearest[v] = Math.min(nearest[v], Math.min(f.get(v), b.get(v)));
+            }
+        }
+        landmarks = Arrays.copyOf(chosen, k);
+        from = Arrays.copyOf(forward, k);
+        to = Arrays.copyOf(backward, k);
+        stale = false;
+        checkRep();
+    }
+
+    /**
+     * 选取下一个地标
+     * @param nearest   每个人与已选地标的最近距离，不与任何地标相连时为INFINITY
+     * @return  没有被任何地标到达的人中关系最多的人；都已到达时为离地标最远的人；
+     *          没有可选的人时返回-1。没有任何关系的人不会被选中
+     */
+    private int farthest(int[] nearest) {
+        int best = -1;
+        long bestKey = 0;
+        for (int v = 0; v < nearest.length; v++) {
+            int degree = engine.person(v) == null ? 0 : engine.outDegree(v) + engine.inDegree(v);
+            if (degree == 0 || nearest[v] == 0) {
+                continue;
+            }
+            long key = nearest[v] == INFINITY ? (1L << 32) + degree : nearest[v];
+            if (key > bestKey) {
+                best = v;
+                bestKey = key;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 用BFS计算一个地标在一个方向上到所有人的距离
+     * @param landmark  地标的编号
+     * @param forward   为true时沿出边计算地标到所有人的距离，否则沿入边计算所有人到地标的距离
+     * @param length    距离表的长度，>= engine.limit()
+     * @return  距离表；如果有人的距离超出2字节能表示的范围，返回null
+     */
+    private Column search(int landmark, boolean forward, int length) {
+        Column column = new Column(length);
+        newSearch();
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = landmark;
+        marks[landmark] = epoch;
+        distances[landmark] = 0;
+        column.set(landmark, 0);
+        while (head < tail) {
+            int u = queue[head++];
+            int next = distances[u] + 1;
+            int degree = forward ? engine.outDegree(u) : engine.inDegree(u);
+            for (int i = 0; i < degree; i++) {
+                int v = forward ? engine.target(u, i) : engine.source(u, i);
+                if (marks[v] != epoch) {
+                    if (!column.set(v, next)) {
+                        return null;
+                    }
+                    marks[v] = epoch;
+                    distances[v] = next;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return column;
+    }
+
+    /**
+     * 距离表在加入一个人后保持最新
+     * @param id    新加入的人的编号
+     */
+    void addVertex(int id) {
+        if (stale) {
+            return;
+        }
+        for (int i = 0; i < landmarks.length; i++) {
+            if (id >= from[i].length()) {
+                int length = Math.max(engine.limit(), from[i].length() * 2);
+                from[i].grow(length);
+                to[i].grow(length);
+            }
+        }
+    }
+
+    /**
+     * 加入边只会缩短距离，把缩短的距离从边的一端沿BFS的顺序传播出去。
+     * 地标不足count个且边的一端没有被任何地标到达时，使距离表在下一次查询时重新计算以增加地标
+     * @param source    新加入的边的起点
+     * @param target    新加入的边的终点
+     */
+    void addEdge(int source, int target) {
+        if (stale) {
+            return;
+        }
+        if (landmarks.length < count && (!covered(source) || !covered(target))) {
+            stale = true;
+            return;
+        }
+        for (int i = 0; i < landmarks.length; i++) {
+            int d = from[i].get(source);
+            if (d != INFINITY && d + 1 < from[i].get(target) && !relax(from[i], target, d + 1, true)) {
+                stale = true;
+                return;
+            }
+            d = to[i].get(target);
+            if (d != INFINITY && d + 1 < to[i].get(source) && !relax(to[i], source, d + 1, false)) {
+                stale = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 判断一个人是否与某个地标相连
+     * @param v 人的编号
+     * @return  如果某个地标能到达v或v能到达某个地标，返回true
+     */
+    private boolean covered(int v) {
+        for (int i = 0; i < landmarks.length; i++) {
+            if (from[i].get(v) != INFINITY || to[i].get(v) != INFINITY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把v的距离缩短为d，再依次缩短经过v可以更近的人的距离。
+     * 所有被缩短的距离都经过v，因此按BFS的顺序每人至多被缩短一次
+     * @param column    距离表
+     * @param v         距离缩短的人
+     * @param d         v的新距离
+     * @param forward   为true时column为地标到所有人的距离，沿出边传播；否则沿入边传播
+     * @return  如果有人的距离超出2字节能表示的范围，返回false
+     */
+    private boolean relax(Column column, int v, int d, boolean forward) {
+        newSearch();
+        int head = 0;
+        int tail = 0;
+        column.set(v, d);
+        queue[tail++] = v;
+        while (head < tail) {
+            int u = queue[head++];
+            int next = column.get(u) + 1;
+            int degree = forward ? engine.outDegree(u) : engine.inDegree(u);
+            for (int i = 0; i < degree; i++) {
+                int w = forward ? engine.target(u, i) : engine.source(u, i);
+                if (next < column.get(w)) {
+                    if (!column.set(w, next)) {
+                        return false;
+                    }
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 删除人后距离可能变大，使距离表在下一次查询时重新计算
+     */
+    void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * 由地标得到的距离下界
+     * @param v 起点的编号
+     * @param t 终点的编号
+     * @return  v到t的距离的下界；能确定v不能到达t时为INFINITY
+     */
+    private int lowerBound(int v, int t) {
+        int bound = 0;
+        for (int i = 0; i < landmarks.length; i++) {
+            int fv = from[i].get(v);
+            int ft = from[i].get(t);
+            if (ft != INFINITY) {
+                if (fv != INFINITY) {
+                    bound = Math.max(bound, ft - fv);
+                }
+            } else if (fv != INFINITY) {
+                return INFINITY;
+            }
+            int tv = to[i].get(v);
+            int tt = to[i].get(t);
+            if (tt != INFINITY) {
+                if (tv == INFINITY) {
+                    return INFINITY;
+                }
+                bound = Math.max(bound, tv - tt);
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * 由地标得到的距离上界
+     * @param s 起点的编号
+     * @param t 终点的编号
+     * @return  s经过某个地标到达t的最短距离；不经过任何地标时为INFINITY
+     */
+    private int upperBound(int s, int t) {
+        int bound = INFINITY;
+        for (int i = 0; i < landmarks.length; i++) {
+            int ts = to[i].get(s);
+            int ft = from[i].get(t);
+            if (ts != INFINITY && ft != INFINITY) {
+                bound = Math.min(bound, ts + ft);
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * 计算两人之间的距离
+     * @param source    起点的编号
+     * @param target    终点的编号
+     * @return  从source沿有向边到达target的最少边数；如果不可达，返回-1
+     */
+    int distance(int source, int target) {
+        if (stale) {
+            rebuild();
+        }
+        queries++;
+        if (source == target) {
+            exact++;
+            return 0;
+        }
+        int upper = upperBound(source, target);
+        int lower = lowerBound(source, target);
+        if (lower >= upper) {
+            exact++;
+            return upper == INFINITY ? -1 : upper;
+        }
+        return engine.distance(source, target, upper);
+    }
+
+    /**
+     * 获得距离表占用的内存
+     * @return  距离表和地标占用的字节数
+     */
+    long memory() {
+        if (stale) {
+            rebuild();
+        }
+        long bytes = 4L * landmarks.length;
+        for (int i = 0; i < landmarks.length; i++) {
+            bytes += from[i].bytes() + to[i].bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * 获得只用上下界就得到准确距离的查询所占的比例
+     * @return  这样的查询数除以查询总数；还没有查询时为0
+     */
+    double exactRate() {
+        return queries == 0 ? 0 : (double) exact / queries;
+    }
+}
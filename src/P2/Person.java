@@ -6,10 +6,11 @@ package P2;
  */
 public class Person {
     private final String name;
+    private final int hash;
     // Abstraction function:
     //  AF(name) = 一个名字为name的人
     // Representation invariant:
-    // 无
+    // hash == name.hashCode()
     // Safety from rep exposure:
     // name为private
     // name为不可变数据类型
@@ -20,6 +21,7 @@ public class Person {
      */
     public Person(String name) {
         this.name = name;
+        this.hash = name.hashCode();
     }
 
     /**
@@ -47,4 +49,9 @@ public class Person {
         Person p = (Person) o;
         return p.getName().equals(this.name);
     }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
 }
@@ -0,0 +1,38 @@
+package P2;
+
+import P1.graph.LabelDictionary;
+
+/**
+ * 人的注册表：把人映射为从0开始的稠密编号，并按名字获得唯一的Person实例。
+ *
+ * <p>编号的分配和复用由LabelDictionary完成：Person按名字判断相等，
+ * 因此同名的人只保存第一次注册的实例，查重、判断是否在图中和获得编号都只需一次哈希查找。
+ * 注册表只在此之上增加按名字查找：intern(String)返回名字对应的唯一实例，名字未注册时创建并注册一个新的人。
+ * PersonRegistry为mutable
+ */
+public class PersonRegistry extends LabelDictionary<Person> {
+    // Abstraction function:
+    //  AF = 父类表示的人到编号的映射
+    // Representation invariant:
+    //  父类的RI
+    // Safety from rep exposure:
+    //  没有新增的数据；Person为不可变数据类型
+
+    /**
+     * 获得名字对应的唯一实例，名字未注册时创建一个新的人并注册
+     * @param name  人的名字
+     * @return  名字为name的唯一实例
+     */
+    public Person intern(String name) {
+        return label(intern(new Person(name)));
+    }
+
+    /**
+     * 获得名字对应的编号
+     * @param name  人的名字
+     * @return  名字为name的人的编号；未注册时返回-1
+     */
+    public int id(String name) {
+        return id(new Person(name));
+    }
+}
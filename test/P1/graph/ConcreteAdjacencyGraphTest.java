@@ -0,0 +1,45 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for ConcreteAdjacencyGraph.
+ *
+ * <p>This class runs the IndexedGraphInstanceTest tests against
+ * ConcreteAdjacencyGraph, as well as tests for its read-only view mode.
+ */
+public class ConcreteAdjacencyGraphTest extends IndexedGraphInstanceTest {
+
+    // Testing strategy for view mode
+    //   vertices()、targets()、sources()返回的视图反映之后的修改，且不能被修改
+
+    @Override public IndexedGraph<String> emptyInstance() {
+        return Graph.indexed();
+    }
+
+    @Test
+    public void testViewsReflectLaterChanges() {
+        Graph<String> graph = new ConcreteAdjacencyGraph<>(true);
+        Set<String> vertices = graph.vertices();
+        graph.set("a", "b", 1);
+        Map<String, Integer> sources = graph.sources("b");
+        graph.set("c", "b", 2);
+        assertEquals(Set.of("a", "b", "c"), vertices);
+        assertEquals(Map.of("a", 1, "c", 2), sources);
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testViewsAreReadOnly() {
+        Graph<String> graph = new ConcreteAdjacencyGraph<>(true);
+        graph.set("a", "b", 1);
+        graph.targets("a").put("c", 2);
+    }
+}
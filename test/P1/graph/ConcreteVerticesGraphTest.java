@@ -0,0 +1,45 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for ConcreteVerticesGraph.
+ *
+ * <p>This class runs the GraphInstanceTest tests against ConcreteVerticesGraph, as well
+ * as tests for its read-only view mode.
+ */
+public class ConcreteVerticesGraphTest extends GraphInstanceTest {
+
+    // Testing strategy for view mode
+    //   vertices()、targets()、sources()返回的视图反映之后的修改，且不能被修改
+
+    @Override public Graph<String> emptyInstance() {
+        return new ConcreteVerticesGraph<>();
+    }
+
+    @Test
+    public void testViewsReflectLaterChanges() {
+        Graph<String> graph = new ConcreteVerticesGraph<>(true);
+        Set<String> vertices = graph.vertices();
+        graph.set("a", "b", 1);
+        Map<String, Integer> targets = graph.targets("a");
+        graph.set("a", "c", 2);
+        assertEquals(Set.of("a", "b", "c"), vertices);
+        assertEquals(Map.of("b", 1, "c", 2), targets);
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testViewsAreReadOnly() {
+        Graph<String> graph = new ConcreteVerticesGraph<>(true);
+        graph.add("a");
+        graph.vertices().remove("a");
+    }
+}
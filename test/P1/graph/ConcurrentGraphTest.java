@@ -0,0 +1,119 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Tests for ConcurrentGraph.
+ *
+ * <p>This class runs the GraphInstanceTest tests against ConcurrentGraph, as
+ * well as tests of concurrent modification.
+ */
+public class ConcurrentGraphTest extends GraphInstanceTest {
+
+    // Testing strategy for concurrency
+    //   多个线程同时increment()同一条边和不同的边，同时remove()和set()
+    //   freeze()、writeTo()与加入新顶点的set()和remove()同时进行
+
+    private static final int THREADS = 4;
+    private static final int ROUNDS = 2000;
+
+    @Override public Graph<String> emptyInstance() {
+        return Graph.concurrent();
+    }
+
+    /**
+     * 在THREADS个线程中同时运行task，等待它们全部结束
+     */
+    private static void runConcurrently(Runnable task) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            threads.add(new Thread(task));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testConcurrentIncrementsAreNotLost() throws InterruptedException {
+        Graph<String> graph = emptyInstance();
+        runConcurrently(() -> {
+            for (int i = 0; i < ROUNDS; i++) {
+                graph.increment("a", "b", 1);
+                graph.increment("b", "a", 1);
+            }
+        });
+        assertEquals(Map.of("b", THREADS * ROUNDS), graph.targets("a"));
+        assertEquals(Map.of("b", THREADS * ROUNDS), graph.sources("a"));
+    }
+
+    @Test
+    public void testConcurrentRemoveKeepsEdgesConsistent() throws InterruptedException {
+        Graph<String> graph = emptyInstance();
+        runConcurrently(() -> {
+            for (int i = 0; i < ROUNDS; i++) {
+                graph.set("a" + (i % 10), "b" + (i % 7), 1 + i % 3);
+                graph.remove("b" + (i % 5));
+            }
+        });
+        for (String source : graph.vertices()) {
+            for (Map.Entry<String, Integer> edge : graph.targets(source).entrySet()) {
+                assertTrue(graph.vertices().contains(edge.getKey()));
+                assertEquals(edge.getValue(), graph.sources(edge.getKey()).get(source));
+            }
+        }
+    }
+
+    @Test
+    public void testFreezeAndWriteToDuringConcurrentChanges() throws InterruptedException {
+        Graph<String> graph = emptyInstance();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            //不断加入指向新顶点的边，并删除另一些顶点，使顶点集在快照期间变化
+            for (int i = 0; !done.get(); i++) {
+                graph.set("v" + i % 500, "v" + (i + 1) % 500, 1 + i % 3);
+                graph.remove("v" + (i + 250) % 500);
+            }
+        });
+        writer.start();
+        try {
+            for (int round = 0; round < 200; round++) {
+                FrozenGraph<String> snapshot = graph.freeze();
+                for (String source : snapshot.vertices()) {
+                    for (Map.Entry<String, Integer> edge : snapshot.targets(source).entrySet()) {
+                        assertEquals(edge.getValue(), snapshot.sources(edge.getKey()).get(source));
+                    }
+                }
+                String text = graph.toString();
+                int edges = text.indexOf("};edges{");
+                Set<String> vertices = new HashSet<>();
+                for (String vertex : text.substring("vertices{".length(), edges).split(",")) {
+                    vertices.add(vertex);
+                }
+                String edgeList = text.substring(edges + "};edges{".length(), text.length() - 1);
+                for (String edge : edgeList.isEmpty() ? new String[0] : edgeList.split(",")) {
+                    assertTrue(edge, vertices.contains(edge.substring(0, edge.indexOf('-'))));
+                    assertTrue(edge, vertices.contains(edge.substring(edge.indexOf("->") + 2)));
+                }
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+    }
+}
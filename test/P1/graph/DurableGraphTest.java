@@ -0,0 +1,248 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for DurableGraph.
+ *
+ * <p>This class runs the GraphInstanceTest tests against a DurableGraph
+ * wrapping an indexed graph, as well as tests of recovery from its
+ * directory.
+ */
+public class DurableGraphTest extends GraphInstanceTest {
+
+    // Testing strategy for recovery
+    //   重新打开：关闭后、sync()后、checkpoint()后；日志中有add、set、merge、remove
+    //   日志末尾：不完整的记录头、校验和不符的完整记录；截断后追加的记录能被重放
+    //   压缩：日志超过最小压缩大小和快照大小后sync()，第1代快照和日志替换第0代
+    //   关闭：重复关闭；关闭后修改；后台线程正在sync()时关闭
+    //   open(): 图不为空、同步间隔为负
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<DurableGraph<String>> opened = new ArrayList<>();
+
+    @Override public Graph<String> emptyInstance() {
+        try {
+            return open(folder.newFolder().toPath());
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * 打开目录中的持久图，测试结束时关闭
+     */
+    private DurableGraph<String> open(Path directory) throws IOException {
+        DurableGraph<String> graph = DurableGraph.open(directory, LabelCodec.STRING, Graph.indexed(), 0);
+        opened.add(graph);
+        return graph;
+    }
+
+    @After
+    public void closeGraphs() throws IOException {
+        for (DurableGraph<String> graph : opened) {
+            graph.close();
+        }
+    }
+
+    /**
+     * 向图中写入一组覆盖所有记录类型的修改
+     */
+    private static void mutate(Graph<String> graph) {
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        graph.increment("a", "b", 4);
+        graph.add("d");
+        graph.set("c", "a", 3);
+        graph.remove("c");
+        graph.set("b", "e", 7);
+        graph.set("b", "e", 0);
+    }
+
+    /**
+     * 检查图与mutate()之后的图相同
+     */
+    private static void assertMutated(Graph<String> graph) {
+        assertEquals(Set.of("a", "b", "d", "e"), graph.vertices());
+        assertEquals(Map.of("b", 5), graph.targets("a"));
+        assertTrue(graph.targets("b").isEmpty());
+        assertEquals(Map.of("a", 5), graph.sources("b"));
+    }
+
+    @Test
+    public void testRecoverAfterClose() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        DurableGraph<String> graph = open(directory);
+        mutate(graph);
+        graph.close();
+        assertMutated(open(directory));
+    }
+
+    @Test
+    public void testRecoverAfterSync() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        DurableGraph<String> graph = open(directory);
+        mutate(graph);
+        graph.sync();
+        assertMutated(open(directory));
+    }
+
+    @Test
+    public void testRecoverAfterCheckpoint() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        DurableGraph<String> graph = open(directory);
+        graph.set("x", "y", 9);
+        graph.checkpoint();
+        graph.remove("x");
+        graph.remove("y");
+        mutate(graph);
+        graph.close();
+        assertMutated(open(directory));
+    }
+
+    @Test
+    public void testRecoverTwice() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        DurableGraph<String> graph = open(directory);
+        graph.set("a", "b", 1);
+        graph.close();
+        graph = open(directory);
+        graph.set("b", "a", 2);
+        graph.close();
+        graph = open(directory);
+        assertEquals(Map.of("b", 1), graph.targets("a"));
+        assertEquals(Map.of("a", 2), graph.targets("b"));
+    }
+
+    @Test
+    public void testCloseTwiceAndModifyAfterClose() throws IOException {
+        DurableGraph<String> graph = open(folder.newFolder().toPath());
+        graph.add("a");
+        graph.close();
+        graph.close();
+        try {
+            graph.add("b");
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            //关闭后不能修改
+        }
+    }
+
+    @Test
+    public void testCloseWithBackgroundSyncKeepsAllMutations() throws IOException {
+        //后台线程每毫秒sync()一次，close()很可能发生在它写日志期间
+        for (int trial = 0; trial < 50; trial++) {
+            Path directory = folder.newFolder().toPath();
+            DurableGraph<String> graph = DurableGraph.open(directory, LabelCodec.STRING, Graph.indexed(), 1);
+            for (int i = 0; i < 2000; i++) {
+                graph.add("v" + i);
+            }
+            graph.close();
+            assertEquals(2000, open(directory).vertices().size());
+        }
+    }
+
+    /**
+     * 获得目录中的文件名
+     */
+    private static Set<String> files(Path directory) throws IOException {
+        Set<String> names = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                names.add(file.getFileName().toString());
+            }
+        }
+        return names;
+    }
+
+    @Test
+    public void testTornTailIsTruncated() throws IOException {
+        //不完整的记录头；长度合理但校验和不符的完整记录
+        byte[][] tails = {
+            { 0, 0, 1 },
+            ByteBuffer.allocate(8 + 6).putInt(6).putInt(12345).put(new byte[] { 1, 0, 0, 0, 1, 'z' }).array(),
+        };
+        for (byte[] tail : tails) {
+            Path directory = folder.newFolder().toPath();
+            DurableGraph<String> graph = open(directory);
+            mutate(graph);
+            graph.close();
+            Path log = directory.resolve("log-0.wal");
+            long size = Files.size(log);
+            Files.write(log, tail, StandardOpenOption.APPEND);
+            graph = open(directory);
+            assertMutated(graph);
+            assertFalse(graph.vertices().contains("z"));
+            assertEquals(size, Files.size(log));
+            //截断之后追加的记录紧接在最后一条完整记录之后，再次打开时能被重放
+            graph.set("d", "a", 6);
+            graph.close();
+            assertEquals(Map.of("a", 6), open(directory).targets("d"));
+        }
+    }
+
+    @Test
+    public void testSyncCompactsLargeLog() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        DurableGraph<String> graph = open(directory);
+        Graph<String> expected = Graph.indexed();
+        //标签很长而顶点很少，日志很快超过最小压缩大小，快照却很小
+        String[] labels = new String[20];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = "v" + i + "x".repeat(1000);
+        }
+        for (int i = 0; i < 9000; i++) {
+            String source = labels[i % 20];
+            String target = labels[i / 20 % 20];
+            graph.set(source, target, 1 + i % 7);
+            expected.set(source, target, 1 + i % 7);
+        }
+        assertEquals(Set.of("log-0.wal"), files(directory));
+        graph.sync();
+        assertEquals(Set.of("snapshot-1.graph", "log-1.wal"), files(directory));
+        assertTrue(Files.size(directory.resolve("snapshot-1.graph")) < 16 << 20);
+        assertEquals(0, Files.size(directory.resolve("log-1.wal")));
+        graph.remove(labels[0]);
+        expected.remove(labels[0]);
+        graph.close();
+        Graph<String> reopened = open(directory);
+        assertEquals(expected.vertices(), reopened.vertices());
+        for (String vertex : expected.vertices()) {
+            assertEquals(expected.targets(vertex), reopened.targets(vertex));
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testOpenNonEmptyGraph() throws IOException {
+        Graph<String> graph = Graph.indexed();
+        graph.add("a");
+        DurableGraph.open(folder.newFolder().toPath(), LabelCodec.STRING, graph, 0);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testOpenNegativeInterval() throws IOException {
+        DurableGraph.open(folder.newFolder().toPath(), LabelCodec.STRING, Graph.indexed(), -1);
+    }
+}
@@ -0,0 +1,113 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for FrozenGraph.
+ */
+public class FrozenGraphTest {
+
+    // Testing strategy
+    //   copyOf(): 空图、有孤立顶点和自环的图；源图为FrozenGraph、IndexedGraph、其他实现
+    //   add()、set()、remove(): 抛出UnsupportedOperationException
+    //   CSR访问: 每行按另一端的编号升序；vertexCount()、edgeCount()、weight()
+    //   freeze(): 返回自身
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /**
+     * 创建一个有孤立顶点、自环和双向边的图
+     */
+    private static Graph<String> sample(Graph<String> graph) {
+        graph.set("a", "b", 1);
+        graph.set("b", "a", 2);
+        graph.set("a", "c", 3);
+        graph.set("c", "c", 4);
+        graph.add("d");
+        return graph;
+    }
+
+    @Test
+    public void testCopyOfEmpty() {
+        FrozenGraph<String> frozen = FrozenGraph.copyOf(Graph.empty());
+        assertTrue(frozen.vertices().isEmpty());
+        assertEquals(0, frozen.vertexCount());
+        assertEquals(0, frozen.edgeCount());
+    }
+
+    @Test
+    public void testCopyOfMatchesSource() {
+        for (Graph<String> graph : List.of(sample(Graph.empty()), sample(Graph.indexed()), sample(Graph.concurrent()))) {
+            FrozenGraph<String> frozen = FrozenGraph.copyOf(graph);
+            assertEquals(graph.vertices(), frozen.vertices());
+            for (String vertex : graph.vertices()) {
+                assertEquals(graph.targets(vertex), frozen.targets(vertex));
+                assertEquals(graph.sources(vertex), frozen.sources(vertex));
+            }
+            assertEquals(4, frozen.vertexCount());
+            assertEquals(4, frozen.edgeCount());
+        }
+    }
+
+    @Test
+    public void testIdAccess() {
+        FrozenGraph<String> frozen = sample(Graph.empty()).freeze();
+        int a = frozen.id("a");
+        int c = frozen.id("c");
+        assertEquals("a", frozen.label(a));
+        assertEquals(-1, frozen.id("z"));
+        assertEquals(3, frozen.weight(a, c));
+        assertEquals(0, frozen.weight(c, a));
+        assertEquals(2, frozen.targetsEnd(a) - frozen.targetsStart(a));
+        for (int i = frozen.targetsStart(a) + 1; i < frozen.targetsEnd(a); i++) {
+            assertTrue(frozen.targetAt(i - 1) < frozen.targetAt(i));
+        }
+        int d = frozen.id("d");
+        assertEquals(frozen.targetsStart(d), frozen.targetsEnd(d));
+        assertEquals(frozen.sourcesStart(d), frozen.sourcesEnd(d));
+    }
+
+    @Test
+    public void testFreezeReturnsSelf() {
+        FrozenGraph<String> frozen = sample(Graph.indexed()).freeze();
+        assertSame(frozen, frozen.freeze());
+        assertSame(frozen, FrozenGraph.copyOf(frozen));
+    }
+
+    @Test
+    public void testMutatorsThrow() {
+        FrozenGraph<String> frozen = sample(Graph.indexed()).freeze();
+        try {
+            frozen.add("e");
+            fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            //不可变
+        }
+        try {
+            frozen.set("a", "b", 5);
+            fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            //不可变
+        }
+        try {
+            frozen.remove("a");
+            fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            //不可变
+        }
+        assertEquals(Map.of("b", 1, "c", 3), frozen.targets("a"));
+        assertEquals(Set.of("a", "b", "c", "d"), frozen.vertices());
+    }
+}
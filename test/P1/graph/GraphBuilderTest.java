@@ -0,0 +1,114 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for GraphBuilder.
+ */
+public class GraphBuilderTest {
+
+    // Testing strategy
+    //   addEdge(): 权值为正、为0、为负；同一条边一个、多个三元组
+    //   MergePolicy: LAST_WINS、SUM、MAX；合并后权值为正、为0；溢出
+    //   build():     孤立顶点；合并后权值为0的边不存在
+    //   buildInto(): 目标图为IndexedGraph、其他实现；图中已有同一条边、其他边；
+    //                合并后权值为0时删除图中已有的边
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testBuildMergesByPolicy() {
+        String[][] edges = { { "a", "b" }, { "a", "b" }, { "a", "b" } };
+        int[] weights = { 2, 5, 3 };
+        Map<MergePolicy, Integer> expected = Map.of(MergePolicy.LAST_WINS, 3, MergePolicy.SUM, 10, MergePolicy.MAX, 5);
+        for (MergePolicy policy: MergePolicy.values()) {
+            GraphBuilder<String> builder = new GraphBuilder<>(policy);
+            for (int i = 0; i < edges.length; i++) {
+                builder.addEdge(edges[i][0], edges[i][1], weights[i]);
+            }
+            assertEquals(3, builder.tripleCount());
+            assertEquals(2, builder.vertexCount());
+            assertEquals(policy.toString(), Map.of("b", expected.get(policy)), builder.build().targets("a"));
+        }
+    }
+
+    @Test
+    public void testBuildDropsZeroWeightEdges() {
+        FrozenGraph<String> graph = new GraphBuilder<String>()
+                .addEdge("a", "b", 4)
+                .addEdge("a", "b", 0)
+                .addEdge("b", "c", 1)
+                .addVertex("d")
+                .build();
+        assertEquals(Set.of("a", "b", "c", "d"), graph.vertices());
+        assertTrue(graph.targets("a").isEmpty());
+        assertEquals(Map.of("c", 1), graph.targets("b"));
+    }
+
+    @Test
+    public void testBuildIntoKeepsOtherEdgesAndReplacesWeights() {
+        for (Graph<String> graph: List.of(Graph.<String>empty(), Graph.<String>indexed())) {
+            graph.set("a", "b", 7);
+            graph.set("x", "y", 1);
+            new GraphBuilder<String>(MergePolicy.SUM)
+                    .addEdge("a", "b", 1)
+                    .addEdge("a", "b", 2)
+                    .addEdge("b", "c", 5)
+                    .buildInto(graph);
+            assertEquals(Set.of("a", "b", "c", "x", "y"), graph.vertices());
+            assertEquals(Map.of("b", 3), graph.targets("a"));
+            assertEquals(Map.of("c", 5), graph.targets("b"));
+            assertEquals(Map.of("y", 1), graph.targets("x"));
+        }
+    }
+
+    @Test
+    public void testBuildIntoLastZeroRemovesExistingEdge() {
+        for (Graph<String> graph: List.of(Graph.<String>empty(), Graph.<String>indexed())) {
+            graph.set("a", "b", 7);
+            graph.set("b", "a", 2);
+            new GraphBuilder<String>()
+                    .addEdge("a", "b", 4)
+                    .addEdge("a", "b", 0)
+                    .addEdge("b", "c", 0)
+                    .buildInto(graph);
+            //与依次调用set(a, b, 4)、set(a, b, 0)、set(b, c, 0)的结果相同，但c作为三元组的端点被加入
+            assertTrue(graph.targets("a").isEmpty());
+            assertEquals(Map.of("a", 2), graph.targets("b"));
+            assertEquals(Set.of("a", "b", "c"), graph.vertices());
+            assertTrue(graph.sources("c").isEmpty());
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testAddNegativeWeight() {
+        new GraphBuilder<String>().addEdge("a", "b", -1);
+    }
+
+    @Test
+    public void testOverflowLeavesGraphUnchanged() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        GraphBuilder<String> builder = new GraphBuilder<String>(MergePolicy.SUM)
+                .addEdge("a", "b", Integer.MAX_VALUE)
+                .addEdge("a", "b", 1);
+        try {
+            builder.buildInto(graph);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals(Map.of("b", 1), graph.targets("a"));
+        }
+    }
+}
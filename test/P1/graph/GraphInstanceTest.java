@@ -0,0 +1,287 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for instance methods of Graph.
+ *
+ * <p>PS2 instructions: you MUST NOT add constructors, fields, or non-@Test
+ * methods to this class, or change the spec of {@link #emptyInstance()}.
+ * Your tests MUST only obtain Graph instances by calling emptyInstance().
+ * Your tests MUST NOT refer to specific concrete implementations.
+ */
+public abstract class GraphInstanceTest {
+
+    // Testing strategy
+    //   add():    顶点不存在、已存在
+    //   set():    权值为正、为0；边不存在、已存在；顶点不存在、已存在；自环
+    //   remove(): 顶点不存在、存在；顶点有出边、有入边、有自环
+    //   vertices()、sources()、targets():
+    //             图为空、非空；顶点不存在、没有边、有多条边；修改返回的集合不影响图
+    //   merge()、increment()、incrementAll():
+    //             边不存在、已存在；新权值为正、为0、为负；数组长度不同
+    //   forEachTarget()、forEachSource(): 与targets()、sources()一致
+    //   freeze():  快照与图相同，之后修改图不影响快照
+    //   writeTo(): 与toString()相同
+
+    /**
+     * Overridden by implementation-specific test classes.
+     *
+     * @return a new empty graph of the particular implementation being tested
+     */
+    public abstract Graph<String> emptyInstance();
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testInitialVerticesEmpty() {
+        assertEquals("expected new graph to have no vertices",
+                Collections.emptySet(), emptyInstance().vertices());
+    }
+
+    @Test
+    public void testAddNewAndExistingVertex() {
+        Graph<String> graph = emptyInstance();
+        assertTrue(graph.add("a"));
+        assertFalse(graph.add("a"));
+        assertEquals(Set.of("a"), graph.vertices());
+        assertTrue(graph.targets("a").isEmpty());
+        assertTrue(graph.sources("a").isEmpty());
+    }
+
+    @Test
+    public void testSetAddsEdgeAndVertices() {
+        Graph<String> graph = emptyInstance();
+        assertEquals(0, graph.set("a", "b", 3));
+        assertEquals(Set.of("a", "b"), graph.vertices());
+        assertEquals(Map.of("b", 3), graph.targets("a"));
+        assertEquals(Map.of("a", 3), graph.sources("b"));
+        assertTrue(graph.targets("b").isEmpty());
+        assertTrue(graph.sources("a").isEmpty());
+    }
+
+    @Test
+    public void testSetUpdatesWeight() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 3);
+        assertEquals(3, graph.set("a", "b", 5));
+        assertEquals(Map.of("b", 5), graph.targets("a"));
+        assertEquals(Map.of("a", 5), graph.sources("b"));
+    }
+
+    @Test
+    public void testSetZeroRemovesEdgeOnly() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 3);
+        assertEquals(3, graph.set("a", "b", 0));
+        assertEquals(Set.of("a", "b"), graph.vertices());
+        assertTrue(graph.targets("a").isEmpty());
+        assertTrue(graph.sources("b").isEmpty());
+    }
+
+    @Test
+    public void testSetZeroMissingEdgeDoesNotAddVertices() {
+        Graph<String> graph = emptyInstance();
+        graph.add("a");
+        assertEquals(0, graph.set("a", "b", 0));
+        assertEquals(0, graph.set("c", "d", 0));
+        assertEquals(Set.of("a"), graph.vertices());
+    }
+
+    @Test
+    public void testSetSelfLoop() {
+        Graph<String> graph = emptyInstance();
+        assertEquals(0, graph.set("a", "a", 2));
+        assertEquals(Set.of("a"), graph.vertices());
+        assertEquals(Map.of("a", 2), graph.targets("a"));
+        assertEquals(Map.of("a", 2), graph.sources("a"));
+    }
+
+    @Test
+    public void testSetEdgesAreDirected() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        graph.set("b", "a", 2);
+        graph.set("a", "c", 4);
+        assertEquals(Map.of("b", 1, "c", 4), graph.targets("a"));
+        assertEquals(Map.of("b", 2), graph.sources("a"));
+        assertEquals(Map.of("a", 1), graph.sources("b"));
+    }
+
+    @Test
+    public void testRemoveMissingVertex() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        assertFalse(graph.remove("c"));
+        assertEquals(Set.of("a", "b"), graph.vertices());
+        assertEquals(Map.of("b", 1), graph.targets("a"));
+    }
+
+    @Test
+    public void testRemoveVertexRemovesIncidentEdges() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        graph.set("c", "b", 3);
+        graph.set("b", "b", 4);
+        graph.set("a", "c", 5);
+        assertTrue(graph.remove("b"));
+        assertEquals(Set.of("a", "c"), graph.vertices());
+        assertEquals(Map.of("c", 5), graph.targets("a"));
+        assertTrue(graph.targets("c").isEmpty());
+        assertEquals(Map.of("a", 5), graph.sources("c"));
+        assertTrue(graph.sources("b").isEmpty());
+        assertTrue(graph.targets("b").isEmpty());
+    }
+
+    @Test
+    public void testRemovedVertexCanBeAddedAgain() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        graph.remove("a");
+        assertTrue(graph.add("a"));
+        assertTrue(graph.targets("a").isEmpty());
+        assertEquals(0, graph.set("a", "b", 2));
+        assertEquals(Map.of("a", 2), graph.sources("b"));
+    }
+
+    @Test
+    public void testMissingVertexHasNoEdges() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        assertTrue(graph.targets("z").isEmpty());
+        assertTrue(graph.sources("z").isEmpty());
+    }
+
+    @Test
+    public void testReturnedCollectionsDoNotChangeGraph() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        Set<String> vertices = graph.vertices();
+        Map<String, Integer> targets = graph.targets("a");
+        Map<String, Integer> sources = graph.sources("b");
+        try {
+            vertices.add("z");
+        } catch (UnsupportedOperationException e) {
+            //不可修改的集合也满足要求
+        }
+        try {
+            targets.put("z", 7);
+        } catch (UnsupportedOperationException e) {
+            //不可修改的集合也满足要求
+        }
+        try {
+            sources.clear();
+        } catch (UnsupportedOperationException e) {
+            //不可修改的集合也满足要求
+        }
+        assertEquals(Set.of("a", "b"), graph.vertices());
+        assertEquals(Map.of("b", 1), graph.targets("a"));
+        assertEquals(Map.of("a", 1), graph.sources("b"));
+    }
+
+    @Test
+    public void testIncrement() {
+        Graph<String> graph = emptyInstance();
+        assertEquals(2, graph.increment("a", "b", 2));
+        assertEquals(5, graph.increment("a", "b", 3));
+        assertEquals(Map.of("b", 5), graph.targets("a"));
+        assertEquals(0, graph.increment("a", "b", -5));
+        assertTrue(graph.targets("a").isEmpty());
+        assertEquals(Set.of("a", "b"), graph.vertices());
+    }
+
+    @Test
+    public void testIncrementNegativeLeavesGraphUnchanged() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 2);
+        try {
+            graph.increment("a", "b", -3);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals(Map.of("b", 2), graph.targets("a"));
+        }
+        try {
+            graph.increment("c", "d", -1);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals(Set.of("a", "b"), graph.vertices());
+        }
+    }
+
+    @Test
+    public void testMergeWithFunction() {
+        Graph<String> graph = emptyInstance();
+        assertEquals(4, graph.merge("a", "b", 4, Math::max));
+        assertEquals(4, graph.merge("a", "b", 1, Math::max));
+        assertEquals(9, graph.merge("a", "b", 9, Math::max));
+        assertEquals(0, graph.merge("a", "b", 0, (previous, delta) -> delta));
+        assertTrue(graph.targets("a").isEmpty());
+    }
+
+    @Test
+    public void testIncrementAll() {
+        Graph<String> graph = emptyInstance();
+        graph.incrementAll(new String[] { "a", "a", "b" }, new String[] { "b", "b", "a" }, new int[] { 1, 2, 5 });
+        assertEquals(Map.of("b", 3), graph.targets("a"));
+        assertEquals(Map.of("a", 5), graph.targets("b"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testIncrementAllLengthMismatch() {
+        emptyInstance().incrementAll(new String[] { "a" }, new String[] { "b", "c" }, new int[] { 1 });
+    }
+
+    @Test
+    public void testForEachMatchesMaps() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 2);
+        graph.set("c", "b", 3);
+        Map<String, Integer> targets = new HashMap<>();
+        graph.forEachTarget("a", targets::put);
+        assertEquals(graph.targets("a"), targets);
+        Map<String, Integer> sources = new HashMap<>();
+        graph.forEachSource("b", sources::put);
+        assertEquals(graph.sources("b"), sources);
+        graph.forEachTarget("z", (vertex, weight) -> fail("missing vertex has no edges"));
+    }
+
+    @Test
+    public void testFreezeIsSnapshot() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        graph.add("c");
+        FrozenGraph<String> frozen = graph.freeze();
+        graph.set("a", "b", 7);
+        graph.remove("c");
+        assertEquals(Set.of("a", "b", "c"), frozen.vertices());
+        assertEquals(Map.of("b", 1), frozen.targets("a"));
+        assertEquals(Map.of("a", 1), frozen.sources("b"));
+    }
+
+    @Test
+    public void testWriteToMatchesToString() throws IOException {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        StringBuilder out = new StringBuilder();
+        graph.writeTo(out);
+        assertEquals(graph.toString(), out.toString());
+        assertTrue(out.toString().contains("a"));
+    }
+}
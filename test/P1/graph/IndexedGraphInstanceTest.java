@@ -0,0 +1,112 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for the id-based methods of IndexedGraph, in addition to the
+ * GraphInstanceTest tests.
+ */
+public abstract class IndexedGraphInstanceTest extends GraphInstanceTest {
+
+    // Testing strategy
+    //   intern()、id()、label(): 顶点不存在、存在、已删除；编号被复用
+    //   setById(): 权值为正、为0、为负；编号有效、超出范围、空闲
+    //   weightById()、targetsById()、sourcesById()、forEach*ById():
+    //             边不存在、存在；顶点不存在
+
+    @Override public abstract IndexedGraph<String> emptyInstance();
+
+    @Test
+    public void testInternAndId() {
+        IndexedGraph<String> graph = emptyInstance();
+        assertEquals(-1, graph.id("a"));
+        int a = graph.intern("a");
+        assertEquals(a, graph.intern("a"));
+        assertEquals(a, graph.id("a"));
+        assertEquals("a", graph.label(a));
+        assertTrue(a < graph.idLimit());
+        assertTrue(graph.vertices().contains("a"));
+    }
+
+    @Test
+    public void testRemovedIdIsFreedAndReused() {
+        IndexedGraph<String> graph = emptyInstance();
+        graph.intern("a");
+        int b = graph.intern("b");
+        graph.set("a", "b", 1);
+        graph.remove("b");
+        assertEquals(-1, graph.id("b"));
+        assertNull(graph.label(b));
+        int c = graph.intern("c");
+        assertEquals(b, c);
+        assertEquals("c", graph.label(c));
+        assertTrue(graph.targets("a").isEmpty());
+        assertEquals(0, graph.sourcesById(c).length);
+    }
+
+    @Test
+    public void testSetById() {
+        IndexedGraph<String> graph = emptyInstance();
+        int a = graph.intern("a");
+        int b = graph.intern("b");
+        assertEquals(0, graph.setById(a, b, 2));
+        assertEquals(2, graph.setById(a, b, 3));
+        assertEquals(Map.of("b", 3), graph.targets("a"));
+        assertEquals(3, graph.weightById(a, b));
+        assertEquals(0, graph.weightById(b, a));
+        assertEquals(3, graph.setById(a, b, 0));
+        assertTrue(graph.targets("a").isEmpty());
+    }
+
+    @Test
+    public void testSetByIdRejectsBadArguments() {
+        IndexedGraph<String> graph = emptyInstance();
+        int a = graph.intern("a");
+        int b = graph.intern("b");
+        graph.remove("b");
+        for (int[] edge : new int[][] { { a, b, 1 }, { a, -1, 1 }, { a, graph.idLimit() + 5, 1 }, { a, a, -1 } }) {
+            try {
+                graph.setById(edge[0], edge[1], edge[2]);
+                fail("expected IllegalArgumentException for " + Arrays.toString(edge));
+            } catch (IllegalArgumentException e) {
+                assertTrue(graph.targets("a").isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void testNeighboursById() {
+        IndexedGraph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 2);
+        graph.set("c", "b", 3);
+        int a = graph.id("a");
+        int b = graph.id("b");
+        int c = graph.id("c");
+        int[] targets = graph.targetsById(a);
+        Arrays.sort(targets);
+        int[] expected = { b, c };
+        Arrays.sort(expected);
+        assertArrayEquals(expected, targets);
+        int[] sources = graph.sourcesById(b);
+        Arrays.sort(sources);
+        expected = new int[] { a, c };
+        Arrays.sort(expected);
+        assertArrayEquals(expected, sources);
+        Map<Integer, Integer> visited = new HashMap<>();
+        graph.forEachSourceById(b, visited::put);
+        assertEquals(Map.of(a, 1, c, 3), visited);
+        visited.clear();
+        graph.forEachTargetById(a, visited::put);
+        assertEquals(Map.of(b, 1, c, 2), visited);
+    }
+}
@@ -0,0 +1,83 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for InstrumentedGraph.
+ *
+ * <p>This class runs the GraphInstanceTest tests against an InstrumentedGraph
+ * wrapping an indexed graph, as well as tests of the recorded metrics.
+ */
+public class InstrumentedGraphTest extends GraphInstanceTest {
+
+    // Testing strategy for metrics
+    //   每个转发的操作计数一次；结果大小为返回的元素数或修改的数量；reset()清空统计
+    //   merge()、increment()、incrementAll(): 记入自己的统计，不计入targets()和set()
+    //   set(): 加入新边、权值不变、删除不存在的边、删除已有的边；只有改变了权值的调用计入结果大小
+
+    @Override public Graph<String> emptyInstance() {
+        return Graph.instrumented(Graph.indexed());
+    }
+
+    @Test
+    public void testOperationsAreCounted() {
+        InstrumentedGraph<String> graph = Graph.instrumented(Graph.indexed());
+        graph.add("a");
+        graph.add("a");
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 2);
+        graph.targets("a");
+        graph.vertices();
+        GraphMetrics metrics = graph.metrics();
+        assertEquals(2, metrics.get("add").count());
+        assertEquals(1, metrics.get("add").resultSize());
+        assertEquals(2, metrics.get("set").count());
+        assertEquals(1, metrics.get("targets").count());
+        assertEquals(2, metrics.get("targets").resultSize());
+        assertEquals(3, metrics.get("vertices").resultSize());
+        assertEquals(0, metrics.get("remove").count());
+    }
+
+    @Test
+    public void testMergeAndIncrementAllAreCountedSeparately() {
+        InstrumentedGraph<String> graph = Graph.instrumented(Graph.indexed());
+        graph.increment("a", "b", 2);
+        graph.merge("a", "b", 5, Math::max);
+        graph.incrementAll(new String[] { "a", "b" }, new String[] { "b", "a" }, new int[] { 1, 1 });
+        GraphMetrics metrics = graph.metrics();
+        assertEquals(2, metrics.get("merge").count());
+        assertEquals(2, metrics.get("merge").resultSize());
+        assertEquals(1, metrics.get("incrementAll").count());
+        assertEquals(2, metrics.get("incrementAll").resultSize());
+        assertEquals(0, metrics.get("targets").count());
+        assertEquals(0, metrics.get("set").count());
+        assertEquals(6, graph.targets("a").get("b").intValue());
+    }
+
+    @Test
+    public void testSetCountsChangedEdges() {
+        InstrumentedGraph<String> graph = Graph.instrumented(Graph.indexed());
+        graph.set("a", "b", 2);
+        graph.set("a", "b", 2);
+        graph.set("a", "c", 0);
+        assertEquals(3, graph.metrics().get("set").count());
+        assertEquals(1, graph.metrics().get("set").resultSize());
+        //删除已有的边也修改了一条边
+        graph.set("a", "b", 0);
+        assertEquals(2, graph.metrics().get("set").resultSize());
+    }
+
+    @Test
+    public void testReset() {
+        InstrumentedGraph<String> graph = Graph.instrumented(Graph.indexed());
+        graph.set("a", "b", 1);
+        graph.metrics().reset();
+        assertEquals(0, graph.metrics().get("set").count());
+        assertEquals(0, graph.metrics().get("set").latency().max());
+    }
+}
@@ -0,0 +1,100 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for MappedGraph.
+ */
+public class MappedGraphTest {
+
+    // Testing strategy
+    //   write()再open(): 空图、有孤立顶点和自环的图、非ASCII标签；与FrozenGraph相同
+    //   verify(): 文件完好、文件头之后被修改
+    //   open(): 不是这种格式的文件
+    //   add()、set()、remove(): 抛出UnsupportedOperationException
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /**
+     * 把图写入临时文件再映射
+     */
+    private MappedGraph<String> roundTrip(Graph<String> graph) throws IOException {
+        Path path = folder.newFile().toPath();
+        MappedGraph.write(graph, LabelCodec.STRING, path);
+        return MappedGraph.open(path, LabelCodec.STRING);
+    }
+
+    @Test
+    public void testRoundTripEmpty() throws IOException {
+        MappedGraph<String> mapped = roundTrip(Graph.empty());
+        assertTrue(mapped.vertices().isEmpty());
+        assertEquals(0, mapped.edgeCount());
+        assertTrue(mapped.verify());
+    }
+
+    @Test
+    public void testRoundTripMatchesGraph() throws IOException {
+        Graph<String> graph = Graph.indexed();
+        graph.set("a", "b", 1);
+        graph.set("b", "a", 2);
+        graph.set("é", "é", 3);
+        graph.set("a", "中文", 4);
+        graph.add("d");
+        MappedGraph<String> mapped = roundTrip(graph);
+        assertEquals(graph.vertices(), mapped.vertices());
+        for (String vertex : graph.vertices()) {
+            assertEquals(graph.targets(vertex), mapped.targets(vertex));
+            assertEquals(graph.sources(vertex), mapped.sources(vertex));
+        }
+        FrozenGraph<String> frozen = graph.freeze();
+        assertEquals(frozen.vertexCount(), mapped.vertexCount());
+        assertEquals(frozen.edgeCount(), mapped.edgeCount());
+        assertEquals("中文", mapped.label(mapped.id("中文")));
+        assertEquals(-1, mapped.id("z"));
+        assertTrue(mapped.verify());
+    }
+
+    @Test
+    public void testVerifyDetectsCorruption() throws IOException {
+        Graph<String> graph = Graph.indexed();
+        graph.set("a", "b", 1);
+        Path path = folder.newFile().toPath();
+        MappedGraph.write(graph, LabelCodec.STRING, path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0x55 }), channel.size() - 1);
+        }
+        assertFalse(MappedGraph.open(path, LabelCodec.STRING).verify());
+    }
+
+    @Test(expected=IOException.class)
+    public void testOpenRejectsOtherFiles() throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, new byte[256]);
+        MappedGraph.open(path, LabelCodec.STRING);
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testMutatorsThrow() throws IOException {
+        roundTrip(Graph.indexed()).set("a", "b", 1);
+    }
+}
@@ -0,0 +1,211 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for ShortestPaths.
+ */
+public class ShortestPathsTest {
+
+    // Testing strategy
+    //   图: 由FrozenGraph创建、由其他实现创建（之后修改图不影响查询）
+    //   shortestPath()、distance(): 起点与终点相同、相邻、多步、不可达、顶点不在图中；
+    //                              与Floyd–Warshall的结果相同；路径上的边都存在且权值之和为长度
+    //   估价函数: 为0、为到终点的准确距离；返回负数时抛出异常，之后的查询不受影响
+    //   同一个对象上重复查询，交替使用Dijkstra和A*
+
+    private static final long UNREACHABLE = Long.MAX_VALUE / 4;
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /**
+     * 检查路径从source开始、到target结束，经过的边都在图中，且权值之和为路径长度
+     */
+    private static void assertValidPath(Graph<Integer> graph, int source, int target, ShortestPaths.Path<Integer> path) {
+        List<Integer> vertices = path.vertices();
+        assertEquals(Integer.valueOf(source), vertices.get(0));
+        assertEquals(Integer.valueOf(target), vertices.get(vertices.size() - 1));
+        long length = 0;
+        for (int i = 1; i < vertices.size(); i++) {
+            Integer weight = graph.targets(vertices.get(i - 1)).get(vertices.get(i));
+            assertNotNull(path.toString(), weight);
+            length += weight;
+        }
+        assertEquals(path.toString(), length, path.length());
+    }
+
+    /**
+     * 用Floyd–Warshall算法计算所有顶点对之间的最短距离
+     * @return  距离矩阵，不可达时为UNREACHABLE
+     */
+    private static long[][] floydWarshall(Graph<Integer> graph, int n) {
+        long[][] distances = new long[n][n];
+        for (int u = 0; u < n; u++) {
+            for (int v = 0; v < n; v++) {
+                distances[u][v] = u == v ? 0 : UNREACHABLE;
+            }
+            for (Map.Entry<Integer, Integer> edge: graph.targets(u).entrySet()) {
+                if (edge.getKey() != u) {
+                    distances[u][edge.getKey()] = Math.min(distances[u][edge.getKey()], edge.getValue());
+                }
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            for (int u = 0; u < n; u++) {
+                for (int v = 0; v < n; v++) {
+                    distances[u][v] = Math.min(distances[u][v], distances[u][k] + distances[k][v]);
+                }
+            }
+        }
+        return distances;
+    }
+
+    @Test
+    public void testMatchesFloydWarshall() {
+        Random random = new Random(17);
+        for (int trial = 0; trial < 10; trial++) {
+            int n = 2 + random.nextInt(30);
+            Graph<Integer> graph = Graph.indexed();
+            for (int v = 0; v < n; v++) {
+                graph.add(v);
+            }
+            for (int i = random.nextInt(3 * n); i > 0; i--) {
+                graph.set(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(20));
+            }
+            long[][] expected = floydWarshall(graph, n);
+            ShortestPaths<Integer> paths = new ShortestPaths<>(graph);
+            for (int s = 0; s < n; s++) {
+                for (int t = 0; t < n; t++) {
+                    long distance = expected[s][t] == UNREACHABLE ? -1 : expected[s][t];
+                    assertEquals(s + "->" + t, distance, paths.distance(s, t));
+                    Optional<ShortestPaths.Path<Integer>> dijkstra = paths.shortestPath(s, t);
+                    //估价为到终点的准确距离，满足一致性；到不了终点的顶点估价为同一个足够大的值
+                    int target = t;
+                    Optional<ShortestPaths.Path<Integer>> aStar = paths.shortestPath(s, t,
+                            v -> expected[v][target]);
+                    assertEquals(distance >= 0, dijkstra.isPresent());
+                    assertEquals(distance >= 0, aStar.isPresent());
+                    if (distance >= 0) {
+                        assertValidPath(graph, s, t, dijkstra.get());
+                        assertValidPath(graph, s, t, aStar.get());
+                        assertEquals(distance, dijkstra.get().length());
+                        assertEquals(distance, aStar.get().length());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSourceEqualsTarget() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "a", 5);
+        graph.add("b");
+        ShortestPaths<String> paths = new ShortestPaths<>(graph);
+        for (String vertex: List.of("a", "b")) {
+            ShortestPaths.Path<String> path = paths.shortestPath(vertex, vertex).get();
+            assertEquals(0, path.length());
+            assertEquals(List.of(vertex), path.vertices());
+            assertEquals(vertex + "(0)", path.toString());
+        }
+    }
+
+    @Test
+    public void testUnreachableAndMissingVertices() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("c", "a", 1);
+        ShortestPaths<String> paths = new ShortestPaths<>(graph);
+        assertEquals(-1, paths.distance("b", "a"));
+        assertEquals(Optional.empty(), paths.shortestPath("a", "c"));
+        assertEquals(Optional.empty(), paths.shortestPath("a", "c", v -> 0));
+        assertEquals(-1, paths.distance("a", "x"));
+        assertEquals(-1, paths.distance("x", "a"));
+        assertEquals(-1, paths.distance("x", "x"));
+        assertEquals(2, paths.distance("c", "b"));
+    }
+
+    @Test
+    public void testLaterChangesToGraphAreIgnored() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 3);
+        ShortestPaths<String> paths = new ShortestPaths<>(graph);
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        assertEquals(3, paths.distance("a", "b"));
+        assertEquals(-1, paths.distance("a", "c"));
+    }
+
+    @Test
+    public void testPrefersLighterLongerPath() {
+        FrozenGraph<String> graph = new GraphBuilder<String>()
+                .addEdge("a", "d", 10)
+                .addEdge("a", "b", 2)
+                .addEdge("b", "c", 2)
+                .addEdge("c", "d", 2)
+                .build();
+        ShortestPaths<String> paths = new ShortestPaths<>(graph);
+        assertEquals("a->b->c->d(6)", paths.shortestPath("a", "d").get().toString());
+        assertEquals("a->b->c->d(6)", paths.shortestPath("a", "d", v -> 0).get().toString());
+    }
+
+    @Test
+    public void testNegativeEstimateLeavesQueriesUsable() {
+        Graph<String> graph = Graph.empty();
+        graph.set("x", "b", 1);
+        graph.set("x", "c", 1);
+        graph.set("b", "d", 1);
+        graph.set("a", "d", 10);
+        ShortestPaths<String> paths = new ShortestPaths<>(graph);
+        try {
+            paths.shortestPath("x", "d", v -> v.equals("c") ? -1 : 0);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            //c的估价为负，此时b已经入队
+        }
+        try {
+            paths.shortestPath("a", "d", v -> -1);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            //起点的估价为负
+        }
+        //上一次查询中入队的b不能出现在之后的查询中
+        assertEquals("a->d(10)", paths.shortestPath("a", "d").get().toString());
+        assertEquals("x->b->d(2)", paths.shortestPath("x", "d", v -> 0).get().toString());
+    }
+
+    @Test
+    public void testRepeatedQueriesReuseState() {
+        Graph<Integer> graph = Graph.indexed();
+        int n = 200;
+        for (int v = 0; v < n; v++) {
+            graph.set(v, (v + 1) % n, 1);
+        }
+        ShortestPaths<Integer> paths = new ShortestPaths<>(graph);
+        Random random = new Random(23);
+        //上一次查询留下的距离和前驱不能影响下一次查询
+        for (int i = 0; i < 2000; i++) {
+            int s = random.nextInt(n);
+            int t = random.nextInt(n);
+            long expected = (t - s + n) % n;
+            if (i % 2 == 0) {
+                assertEquals(expected, paths.distance(s, t));
+            } else {
+                assertEquals(expected, paths.shortestPath(s, t, v -> (t - v + n) % n).get().length());
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.graph;
+
+/**
+ * Tests for SynchronizedGraph.
+ *
+ * <p>This class runs the GraphInstanceTest tests against a SynchronizedGraph
+ * wrapping an indexed graph.
+ */
+public class SynchronizedGraphTest extends GraphInstanceTest {
+
+    @Override public Graph<String> emptyInstance() {
+        return Graph.synchronizedGraph(Graph.indexed());
+    }
+}
@@ -0,0 +1,207 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.poet;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import P1.graph.FrozenGraph;
+import P1.graph.GraphBuilder;
+import P1.graph.MergePolicy;
+
+/**
+ * Tests for BridgeIndex.
+ */
+public class BridgeIndexTest {
+
+    // Testing strategy
+    //   bridge(): 有唯一的桥接词、多个候选词、得分相同（编号小的优先）、没有桥接词、单词没有出边或入边
+    //   top():    k小于、大于候选词个数；w1的出边行较短、w2的入边行较短；与穷举的结果相同
+    //   缓存:     容量为0时不计数；容量为正时重复查找命中；超过容量时最久未用的单词对被淘汰
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /**
+     * 由语料中相邻的单词构造单词亲和图
+     */
+    private static FrozenGraph<String> corpus(String text) {
+        GraphBuilder<String> builder = new GraphBuilder<>(MergePolicy.SUM);
+        String[] words = text.toLowerCase().split(" ");
+        for (int i = 0; i < words.length; i++) {
+            builder.addVertex(words[i]);
+            if (i > 0) {
+                builder.addEdge(words[i - 1], words[i], 1);
+            }
+        }
+        return builder.build();
+    }
+
+    private static BridgeIndex index(FrozenGraph<String> graph, int capacity) {
+        return new BridgeIndex(graph, null, BridgeScoring.SUM, capacity);
+    }
+
+    @Test
+    public void testSpecExample() throws IOException {
+        String text = "This is a test of the Mugar Omni Theater sound system.";
+        FrozenGraph<String> graph = corpus(text);
+        BridgeIndex index = index(graph, 0);
+        assertEquals(graph.id("of"), index.bridge(graph.id("test"), graph.id("the")));
+        assertEquals(-1, index.bridge(graph.id("the"), graph.id("system.")));
+        GraphPoet poet = new GraphPoet(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        assertEquals("Test of the system.", poet.poem("Test the system."));
+    }
+
+    @Test
+    public void testHighestWeightWins() {
+        FrozenGraph<String> graph = corpus("a b c a b c a d c a d a e");
+        BridgeIndex index = index(graph, 0);
+        //a->b->c的得分为2+2，a->d->c为2+1
+        assertEquals(graph.id("b"), index.bridge(graph.id("a"), graph.id("c")));
+        int[] top = index.top(graph.id("a"), graph.id("c"), 5);
+        assertArrayEquals(new int[] { graph.id("b"), graph.id("d") }, top);
+        assertArrayEquals(new int[] { graph.id("b") }, index.top(graph.id("a"), graph.id("c"), 1));
+    }
+
+    @Test
+    public void testTieGoesToSmallerId() {
+        GraphBuilder<String> builder = new GraphBuilder<>();
+        for (String word: new String[] { "a", "z", "y", "x", "c" }) {
+            builder.addVertex(word);
+        }
+        for (String bridge: new String[] { "x", "y", "z" }) {
+            builder.addEdge("a", bridge, 1).addEdge(bridge, "c", 1);
+        }
+        FrozenGraph<String> graph = builder.build();
+        BridgeIndex index = index(graph, 0);
+        int[] top = index.top(graph.id("a"), graph.id("c"), 3);
+        assertArrayEquals(new int[] { graph.id("z"), graph.id("y"), graph.id("x") }, top);
+        assertEquals(graph.id("z"), index.bridge(graph.id("a"), graph.id("c")));
+    }
+
+    @Test
+    public void testNoBridge() {
+        FrozenGraph<String> graph = new GraphBuilder<String>()
+                .addEdge("a", "b", 1)
+                .addEdge("b", "b", 1)
+                .addEdge("c", "d", 1)
+                .addVertex("e")
+                .build();
+        BridgeIndex index = index(graph, 0);
+        //a的后继词b不是d的前驱词
+        assertEquals(-1, index.bridge(graph.id("a"), graph.id("d")));
+        assertEquals(-1, index.bridge(graph.id("e"), graph.id("b")));
+        assertEquals(-1, index.bridge(graph.id("a"), graph.id("e")));
+        assertEquals(0, index.top(graph.id("c"), graph.id("a"), 3).length);
+        //自环也是路径的一部分：a->b->b
+        assertEquals(graph.id("b"), index.bridge(graph.id("a"), graph.id("b")));
+    }
+
+    @Test
+    public void testTopMatchesBruteForce() {
+        Random random = new Random(3);
+        for (int trial = 0; trial < 20; trial++) {
+            int n = 5 + random.nextInt(40);
+            GraphBuilder<Integer> builder = new GraphBuilder<>();
+            for (int v = 0; v < n; v++) {
+                builder.addVertex(v);
+            }
+            int edges = random.nextInt(n * n / 2 + 1);
+            for (int i = 0; i < edges; i++) {
+                builder.addEdge(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(4));
+            }
+            FrozenGraph<String> graph = relabel(builder.build());
+            BridgeIndex index = index(graph, 0);
+            for (int s = 0; s < n; s++) {
+                for (int t = 0; t < n; t++) {
+                    int k = 1 + random.nextInt(6);
+                    int[] expected = bruteForce(graph, s, t, k);
+                    assertArrayEquals(s + "->" + t, expected, index.top(s, t, k));
+                    assertEquals(expected.length == 0 ? -1 : expected[0], index.bridge(s, t));
+                }
+            }
+        }
+    }
+
+    /**
+     * 把整数标签的图转换为字符串标签的图，编号保持不变
+     */
+    private static FrozenGraph<String> relabel(FrozenGraph<Integer> graph) {
+        GraphBuilder<String> builder = new GraphBuilder<>();
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            builder.addVertex(String.valueOf(graph.label(v)));
+        }
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            for (int i = graph.targetsStart(v); i < graph.targetsEnd(v); i++) {
+                builder.addEdge(String.valueOf(graph.label(v)), String.valueOf(graph.label(graph.targetAt(i))),
+                        graph.targetWeightAt(i));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 检查所有顶点，按得分从高到低、编号从小到大选出至多k个桥接词
+     */
+    private static int[] bruteForce(FrozenGraph<String> graph, int source, int target, int k) {
+        List<long[]> candidates = new ArrayList<>();
+        for (int b = 0; b < graph.vertexCount(); b++) {
+            int first = graph.weight(source, b);
+            int second = graph.weight(b, target);
+            if (first > 0 && second > 0) {
+                candidates.add(new long[] { b, first + second });
+            }
+        }
+        candidates.sort(Comparator.<long[]>comparingLong(c -> -c[1]).thenComparingLong(c -> c[0]));
+        return candidates.stream().limit(k).mapToInt(c -> (int) c[0]).toArray();
+    }
+
+    @Test
+    public void testNoCacheCountsNothing() {
+        FrozenGraph<String> graph = corpus("a b c a b c");
+        BridgeIndex index = index(graph, 0);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(graph.id("b"), index.bridge(graph.id("a"), graph.id("c")));
+        }
+        assertEquals(0, index.hits());
+        assertEquals(0, index.misses());
+    }
+
+    @Test
+    public void testCacheHitsAndEvictsLeastRecentlyUsed() {
+        FrozenGraph<String> graph = corpus("a b c d e f g");
+        BridgeIndex index = index(graph, 2);
+        int[] ids = new int[7];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = graph.id(String.valueOf((char) ('a' + i)));
+        }
+        assertEquals(ids[1], index.bridge(ids[0], ids[2]));
+        assertEquals(ids[1], index.bridge(ids[0], ids[2]));
+        assertEquals(1, index.hits());
+        assertEquals(1, index.misses());
+        //没有桥接词的结果也被缓存
+        assertEquals(-1, index.bridge(ids[2], ids[0]));
+        assertEquals(-1, index.bridge(ids[2], ids[0]));
+        assertEquals(2, index.hits());
+        assertEquals(2, index.misses());
+        //(a, c)最近被使用过，加入(c, e)时淘汰(c, a)
+        assertEquals(ids[1], index.bridge(ids[0], ids[2]));
+        assertEquals(ids[3], index.bridge(ids[2], ids[4]));
+        assertEquals(-1, index.bridge(ids[2], ids[0]));
+        assertEquals(ids[1], index.bridge(ids[0], ids[2]));
+        assertEquals(3, index.hits());
+        assertEquals(5, index.misses());
+    }
+}
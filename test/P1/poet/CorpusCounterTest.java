@@ -0,0 +1,179 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.poet;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import P1.graph.FrozenGraph;
+import P1.graph.Graph;
+
+/**
+ * Tests for CorpusCounter.
+ */
+public class CorpusCounterTest {
+
+    // Testing strategy
+    //   of(Path)、of(Path, ForkJoinPool)、of(InputStream)得到相同的图：
+    //       语料为空、只有分隔符、一个单词、多个块（大于2MB）；
+    //       单词跨越读缓冲区、跨越InputStream的两次读取；相邻块之间的bigram；
+    //       分隔符为空格、换行、回车、连续的分隔符；大小写不同的拼写；多字节UTF-8字符
+    //   of(Path, String): 文件按文件名顺序读取，文件之间不产生bigram
+    //   trigram: 只有同时统计trigram时才有结果
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @AfterClass
+    public static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /**
+     * 每次最多返回7个字节的输入流，使单词跨越多次读取
+     */
+    private static InputStream trickle(byte[] bytes) {
+        return new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+    }
+
+    /**
+     * 检查两个图的顶点和边都相同
+     */
+    private static void assertSameGraph(Graph<String> expected, Graph<String> actual) {
+        assertEquals(expected.vertices(), actual.vertices());
+        for (String vertex: expected.vertices()) {
+            assertEquals(vertex, expected.targets(vertex), actual.targets(vertex));
+        }
+    }
+
+    /**
+     * 把语料写入临时文件，检查三种读法得到相同的图
+     * @return  顺序读取得到的图
+     */
+    private Graph<String> assertAllAgree(byte[] corpus) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, corpus);
+        Graph<String> sequential = CorpusCounter.of(file).toGraph();
+        assertSameGraph(sequential, CorpusCounter.of(file, POOL).toGraph());
+        assertSameGraph(sequential, CorpusCounter.of(trickle(corpus)).toGraph());
+        return sequential;
+    }
+
+    @Test
+    public void testEmptyCorpus() throws IOException {
+        assertTrue(assertAllAgree(new byte[0]).vertices().isEmpty());
+        assertTrue(assertAllAgree(" \r\n  \n".getBytes(StandardCharsets.UTF_8)).vertices().isEmpty());
+    }
+
+    @Test
+    public void testSingleWord() throws IOException {
+        Graph<String> graph = assertAllAgree("Hello".getBytes(StandardCharsets.UTF_8));
+        assertEquals(Set.of("hello"), graph.vertices());
+        assertTrue(graph.targets("hello").isEmpty());
+    }
+
+    @Test
+    public void testSpecExample() throws IOException {
+        Graph<String> graph = assertAllAgree("Hello, HELLO, hello, goodbye!".getBytes(StandardCharsets.UTF_8));
+        assertEquals(Set.of("hello,", "goodbye!"), graph.vertices());
+        assertEquals(Map.of("hello,", 2, "goodbye!", 1), graph.targets("hello,"));
+    }
+
+    @Test
+    public void testDelimitersAndSpellings() throws IOException {
+        Graph<String> graph = assertAllAgree("a  B\r\nb\n\nA Ünïcödé üNÏCÖDÉ".getBytes(StandardCharsets.UTF_8));
+        assertEquals(Set.of("a", "b", "ünïcödé"), graph.vertices());
+        assertEquals(Map.of("b", 1, "ünïcödé", 1), graph.targets("a"));
+        assertEquals(Map.of("b", 1, "a", 1), graph.targets("b"));
+        assertEquals(Map.of("ünïcödé", 1), graph.targets("ünïcödé"));
+    }
+
+    @Test
+    public void testParallelMatchesSequentialOnManyChunks() throws IOException {
+        String[] vocabulary = new String[60];
+        Random random = new Random(11);
+        for (int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            //少数单词很长，会跨越读缓冲区
+            int length = i % 10 == 0 ? 300 + random.nextInt(500) : 1 + random.nextInt(9);
+            for (int k = 0; k < length; k++) {
+                word.append((char) ((random.nextBoolean() ? 'a' : 'A') + random.nextInt(26)));
+            }
+            vocabulary[i] = i % 7 == 0 ? word + "é" : word.toString();
+        }
+        String[] delimiters = { " ", " ", " ", "\n", "\r\n", "  " };
+        StringBuilder corpus = new StringBuilder();
+        while (corpus.length() < 3 << 20) {
+            corpus.append(vocabulary[random.nextInt(vocabulary.length)]);
+            corpus.append(delimiters[random.nextInt(delimiters.length)]);
+        }
+        byte[] bytes = corpus.toString().getBytes(StandardCharsets.UTF_8);
+        Graph<String> graph = assertAllAgree(bytes);
+        int edges = 0;
+        for (String vertex: graph.vertices()) {
+            for (int weight: graph.targets(vertex).values()) {
+                edges += weight;
+            }
+        }
+        //除第一个单词外，每个单词都与前一个单词构成一个bigram
+        assertEquals(corpus.toString().trim().split("[ \r\n]+").length - 1, edges);
+    }
+
+    @Test
+    public void testFilesAreSeparateTexts() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        Files.write(directory.resolve("2.txt"), "c d".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("1.txt"), "a b".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("3.md"), "b e".getBytes(StandardCharsets.UTF_8));
+        Graph<String> graph = CorpusCounter.of(directory, "*.txt").toGraph();
+        assertEquals(Set.of("a", "b", "c", "d"), graph.vertices());
+        assertEquals(Map.of("b", 1), graph.targets("a"));
+        assertTrue(graph.targets("b").isEmpty());
+        assertEquals(Map.of("d", 1), graph.targets("c"));
+    }
+
+    @Test
+    public void testTrigramsOnlyWhenCounted() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, "a b c a b c a x c".getBytes(StandardCharsets.UTF_8));
+        CorpusCounter counter = CorpusCounter.of(file, true);
+        FrozenGraph<String> graph = counter.toGraph().freeze();
+        int a = graph.id("a");
+        int b = graph.id("b");
+        int c = graph.id("c");
+        int x = graph.id("x");
+        LongIntHashMap trigrams = counter.trigrams(graph);
+        assertEquals(2, trigrams.get(CorpusCounter.pack(a, b, c)));
+        assertEquals(1, trigrams.get(CorpusCounter.pack(a, x, c)));
+        assertEquals(0, trigrams.get(CorpusCounter.pack(c, b, a)));
+        assertNull(CorpusCounter.of(file).trigrams(graph));
+    }
+}
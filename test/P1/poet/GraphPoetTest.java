@@ -0,0 +1,256 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package P1.poet;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for GraphPoet and PoemWriter.
+ */
+public class GraphPoetTest {
+
+    // Testing strategy
+    //   PoemWriter: 逐个字符、按任意长度的块写入；write(int)、write(char[])、write(String)；
+    //               单词在其后的分隔符写入时才输出，最后一个单词在finish()时输出；
+    //               finish()之后写入抛出异常，重复finish()没有效果，close()关闭输出
+    //   poem(Reader, Writer)、PoemWriter与poem(String)的结果相同：
+    //               输入为空、只有分隔符、连续的分隔符、不在语料中的单词、大小写不同的单词
+    //   poems(): 输入为空、一个、多个；结果按输入的顺序排列
+    //   BridgeScoring: SUM、PRODUCT；权值很大时不溢出
+    //   bridges(): 按SUM、PRODUCT排序的结果不同；有trigram计数时先按次数排序，次数相同时再按得分排序；
+    //              k小于、大于候选词个数，k不为正；单词大小写不同、不在语料中
+
+    private static final String CORPUS = "This is a test of the Mugar Omni Theater sound system.";
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    /*
+     * a与b之间的候选桥接词，括号中为(a->候选词的权值, 候选词->b的权值)、两个得分和"a 候选词 b"出现的次数：
+     *   p (1, 10)  SUM 11  PRODUCT 10  trigram 1
+     *   q (4, 4)   SUM 8   PRODUCT 16  trigram 2
+     *   r (2, 7)   SUM 9   PRODUCT 14  trigram 2
+     *   s (3, 3)   SUM 6   PRODUCT 9   trigram 3
+     * z只用来分隔各段，不是a与b之间的候选词
+     */
+    private static final String RANKING_CORPUS = "a p b z " + "p b z ".repeat(9)
+            + "a q b z ".repeat(2) + "a q z ".repeat(2) + "q b z ".repeat(2)
+            + "a r b z ".repeat(2) + "r b z ".repeat(5)
+            + "a s b z ".repeat(3);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @AfterClass
+    public static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /**
+     * 由语料文本创建诗歌生成器
+     */
+    private static GraphPoet poet(String corpus) throws IOException {
+        return new GraphPoet(new ByteArrayInputStream(corpus.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 由语料中的单词、不在语料中的单词和各种分隔符随机生成输入
+     */
+    private static String randomInput(Random random) {
+        String[] words = { "Test", "the", "SYSTEM.", "this", "a", "of", "Omni", "sound", "unknown", "Theater" };
+        String[] delimiters = { " ", "  ", "\n", "\r\n", " \n " };
+        StringBuilder input = new StringBuilder();
+        if (random.nextInt(4) == 0) {
+            input.append(delimiters[random.nextInt(delimiters.length)]);
+        }
+        for (int i = random.nextInt(12); i > 0; i--) {
+            input.append(words[random.nextInt(words.length)]);
+            if (i > 1 || random.nextBoolean()) {
+                input.append(delimiters[random.nextInt(delimiters.length)]);
+            }
+        }
+        return input.toString();
+    }
+
+    @Test
+    public void testSpecExample() throws IOException {
+        assertEquals("Test of the system.", poet(CORPUS).poem("Test the system."));
+    }
+
+    @Test
+    public void testPoemWriterEmitsWordsAsTheyEnd() throws IOException {
+        StringWriter output = new StringWriter();
+        PoemWriter poem = poet(CORPUS).poemWriter(output);
+        poem.write("Tes");
+        poem.write('t');
+        assertEquals("", output.toString());
+        poem.write(' ');
+        assertEquals("Test", output.toString());
+        poem.write("the".toCharArray(), 0, 3);
+        assertEquals("Test", output.toString());
+        poem.write("\n system.", 0, 2);
+        assertEquals("Test of the", output.toString());
+        poem.write("system.");
+        assertEquals("Test of the", output.toString());
+        poem.finish();
+        assertEquals("Test of the system.", output.toString());
+        poem.finish();
+        assertEquals("Test of the system.", output.toString());
+        try {
+            poem.write("more");
+            fail("expected IOException");
+        } catch (IOException e) {
+            //finish()之后不能再写入
+        }
+    }
+
+    @Test
+    public void testCloseFinishesAndClosesOutput() throws IOException {
+        List<String> events = new ArrayList<>();
+        StringWriter output = new StringWriter() {
+            @Override public void close() throws IOException {
+                events.add("close:" + toString());
+                super.close();
+            }
+        };
+        PoemWriter poem = poet(CORPUS).poemWriter(output);
+        poem.write("Test the");
+        poem.close();
+        assertEquals(List.of("close:Test of the"), events);
+    }
+
+    @Test
+    public void testIncrementalPoemsMatchPoem() throws IOException {
+        GraphPoet poet = poet(CORPUS);
+        Random random = new Random(13);
+        List<String> inputs = new ArrayList<>(List.of("", " ", "\r\n\n", "Test the system.", "TEST  THE\nSYSTEM."));
+        for (int i = 0; i < 200; i++) {
+            inputs.add(randomInput(random));
+        }
+        for (String input: inputs) {
+            String expected = poet.poem(input);
+            //按随机长度的块写入，块的边界可能落在单词和分隔符中间
+            StringWriter chunked = new StringWriter();
+            PoemWriter poem = poet.poemWriter(chunked);
+            for (int i = 0; i < input.length(); ) {
+                int length = Math.min(input.length() - i, random.nextInt(4));
+                switch (random.nextInt(3)) {
+                    case 0:
+                        poem.write(input, i, length);
+                        break;
+                    case 1:
+                        poem.write(input.toCharArray(), i, length);
+                        break;
+                    default:
+                        if (length > 0) {
+                            poem.write(input.charAt(i));
+                            length = 1;
+                        }
+                }
+                i += length;
+            }
+            poem.finish();
+            assertEquals(input, expected, chunked.toString());
+            StringWriter streamed = new StringWriter();
+            poet.poem(new StringReader(input), streamed);
+            assertEquals(input, expected, streamed.toString());
+        }
+    }
+
+    @Test
+    public void testPoemsKeepInputOrder() throws IOException {
+        GraphPoet poet = poet(CORPUS);
+        assertEquals(List.of(), poet.poems(List.of(), POOL));
+        assertEquals(List.of("Test of the system."), poet.poems(List.of("Test the system."), POOL));
+        Random random = new Random(29);
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            //每个输入都以自己的序号开头，顺序错乱时结果不同
+            inputs.add(i + " " + randomInput(random));
+        }
+        List<String> poems = poet.poems(inputs, POOL);
+        assertEquals(inputs.size(), poems.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            assertEquals(poet.poem(inputs.get(i)), poems.get(i));
+            assertTrue(poems.get(i), poems.get(i).startsWith(i + " ") || poems.get(i).equals(String.valueOf(i)));
+        }
+    }
+
+    /**
+     * 由语料文本创建统计trigram的诗歌生成器
+     */
+    private GraphPoet trigramPoet(String corpus) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), corpus.getBytes(StandardCharsets.UTF_8));
+        return new GraphPoet(file, true);
+    }
+
+    @Test
+    public void testBridgeScoring() {
+        assertEquals(7, BridgeScoring.SUM.score(3, 4));
+        assertEquals(12, BridgeScoring.PRODUCT.score(3, 4));
+        assertEquals(2L * Integer.MAX_VALUE, BridgeScoring.SUM.score(Integer.MAX_VALUE, Integer.MAX_VALUE));
+        assertEquals((long) Integer.MAX_VALUE * Integer.MAX_VALUE,
+                BridgeScoring.PRODUCT.score(Integer.MAX_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testBridgesRankedByScoring() throws IOException {
+        GraphPoet sum = poet(RANKING_CORPUS);
+        assertEquals(List.of("p", "r", "q", "s"), sum.bridges("a", "b", 4));
+        assertEquals(List.of("p", "r", "q", "s"), sum.bridges("A", "B", 10));
+        assertEquals(List.of("p", "r"), sum.bridges("a", "b", 2));
+        assertEquals("a p b", sum.poem("a b"));
+        GraphPoet product = sum.withScoring(BridgeScoring.PRODUCT);
+        assertEquals(List.of("q", "r", "p", "s"), product.bridges("a", "b", 4));
+        assertEquals(List.of("q"), product.bridges("a", "b", 1));
+        assertEquals("A q B", product.poem("A B"));
+        //改变得分方式不影响原来的生成器
+        assertEquals(List.of("p", "r", "q", "s"), sum.bridges("a", "b", 4));
+    }
+
+    @Test
+    public void testBridgesRankedByTrigramsFirst() throws IOException {
+        GraphPoet sum = trigramPoet(RANKING_CORPUS);
+        assertEquals(List.of("s", "r", "q", "p"), sum.bridges("a", "b", 4));
+        assertEquals("a s b", sum.poem("a b"));
+        GraphPoet product = sum.withScoring(BridgeScoring.PRODUCT);
+        assertEquals(List.of("s", "q", "r", "p"), product.bridges("a", "b", 4));
+        assertEquals(List.of("s", "q"), product.withBridgeCache(4).bridges("a", "b", 2));
+    }
+
+    @Test
+    public void testBridgesWithoutCandidates() throws IOException {
+        GraphPoet poet = poet(RANKING_CORPUS);
+        assertEquals(List.of(), poet.bridges("p", "s", 3));
+        assertEquals(List.of(), poet.bridges("a", "unknown", 3));
+        assertEquals(List.of(), poet.bridges("unknown", "b", 3));
+        try {
+            poet.bridges("a", "b", 0);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            //k必须为正
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package P2;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for FriendshipGraph.
+ */
+public class FriendshipGraphTest {
+
+    // Testing strategy
+    //   getDistance(): 同一个人、相邻、多步、不可达、有人不在图中
+    //   addEdge():     新关系、重复的关系、两端为同一人、有人不在图中
+    //   removeEdge()、removeVertex(): 删除后距离和连通分量随之改变
+    //   save()再load(): 人和关系都相同，删除过的人和关系不再出现
+    //   useLandmarks(): 第一次查询时地标不足，之后加入新的连通分量
+    //   getDistances(): 一个、多个起点；起点或终点不在图中；与getDistance()的最小值相同
+    //   getDistanceHistogram(): 图为空；有不可达的对；编号中有删除留下的空位；全部起点、抽样的起点
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @AfterClass
+    public static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    private final Person rachel = new Person("Rachel");
+    private final Person ross = new Person("Ross");
+    private final Person ben = new Person("Ben");
+    private final Person kramer = new Person("Kramer");
+
+    /**
+     * 创建main()中的社交网络
+     */
+    private FriendshipGraph sample() {
+        FriendshipGraph graph = new FriendshipGraph();
+        graph.addVertex(rachel);
+        graph.addVertex(ross);
+        graph.addVertex(ben);
+        graph.addVertex(kramer);
+        graph.addEdge(rachel, ross);
+        graph.addEdge(ross, rachel);
+        graph.addEdge(ross, ben);
+        graph.addEdge(ben, ross);
+        return graph;
+    }
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testGetDistance() {
+        FriendshipGraph graph = sample();
+        assertEquals(1, graph.getDistance(rachel, ross));
+        assertEquals(2, graph.getDistance(rachel, ben));
+        assertEquals(0, graph.getDistance(rachel, rachel));
+        assertEquals(-1, graph.getDistance(rachel, kramer));
+        assertEquals(-1, graph.getDistance(rachel, new Person("Nobody")));
+    }
+
+    @Test
+    public void testDuplicateAndInvalidEdgesAreIgnored() {
+        FriendshipGraph graph = sample();
+        graph.addEdge(rachel, ross);
+        graph.addEdge(kramer, kramer);
+        graph.addEdge(kramer, new Person("Nobody"));
+        graph.removeEdge(rachel, ross);
+        //重复加入的关系只保存了一份，删除一次后就不存在了
+        assertEquals(-1, graph.getDistance(rachel, ross));
+        assertEquals(1, graph.getDistance(ross, rachel));
+        assertEquals(-1, graph.getDistance(kramer, rachel));
+    }
+
+    @Test
+    public void testRemoveVertex() {
+        FriendshipGraph graph = sample();
+        graph.removeVertex(ross);
+        assertEquals(-1, graph.getDistance(rachel, ben));
+        assertFalse(graph.isConnected(rachel, ben));
+        assertEquals(3, graph.getComponentCount());
+        graph.addVertex(ross);
+        assertEquals(-1, graph.getDistance(rachel, ross));
+    }
+
+    @Test
+    public void testLandmarksCoverComponentsAddedAfterFirstQuery() {
+        FriendshipGraph graph = new FriendshipGraph();
+        graph.useLandmarks(4);
+        Person a = new Person("a");
+        Person b = new Person("b");
+        graph.addVertex(a);
+        graph.addVertex(b);
+        graph.addEdge(a, b);
+        //第一次查询时只有两个人有关系，只能选出两个地标
+        assertEquals(1, graph.getDistance(a, b));
+        Person c = new Person("c");
+        Person d = new Person("d");
+        Person e = new Person("e");
+        graph.addVertex(c);
+        graph.addVertex(d);
+        graph.addVertex(e);
+        graph.addEdge(c, d);
+        graph.addEdge(d, e);
+        //新的连通分量中也有地标，因此只用上下界就能得到距离
+        assertEquals(2, graph.getDistance(c, e));
+        assertEquals(1.0, graph.getLandmarkExactRate(), 0);
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        FriendshipGraph graph = sample();
+        graph.addVertex(new Person("Gunther"));
+        graph.removeVertex(new Person("Gunther"));
+        graph.addEdge(kramer, ben);
+        graph.removeEdge(ben, ross);
+        Path file = folder.newFile().toPath();
+        graph.save(file);
+        FriendshipGraph loaded = FriendshipGraph.load(file);
+        List<Person> everyone = List.of(rachel, ross, ben, kramer);
+        for (Person person : everyone) {
+            assertArrayEquals(graph.getDistances(person, everyone), loaded.getDistances(person, everyone));
+        }
+        assertEquals(graph.getComponentCount(), loaded.getComponentCount());
+        assertEquals(-1, loaded.getDistance(rachel, new Person("Gunther")));
+    }
+
+    @Test
+    public void testMultiSourceDistancesMatchPairwise() {
+        FriendshipGraph graph = new FriendshipGraph();
+        List<Person> people = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Person person = new Person("p" + i);
+            people.add(person);
+            graph.addVertex(person);
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < 45; i++) {
+            graph.addEdge(people.get(random.nextInt(30)), people.get(random.nextInt(30)));
+        }
+        graph.removeVertex(people.get(29));
+        List<Person> targets = new ArrayList<>(people);
+        targets.add(new Person("Nobody"));
+        for (int round = 0; round < 20; round++) {
+            List<Person> sources = new ArrayList<>();
+            for (int i = 1 + random.nextInt(4); i > 0; i--) {
+                sources.add(people.get(random.nextInt(30)));
+            }
+            int[] distances = graph.getDistances(sources, targets);
+            assertEquals(targets.size(), distances.length);
+            for (int t = 0; t < targets.size(); t++) {
+                int expected = -1;
+                for (Person source : sources) {
+                    int distance = graph.getDistance(source, targets.get(t));
+                    if (distance >= 0 && (expected < 0 || distance < expected)) {
+                        expected = distance;
+                    }
+                }
+                assertEquals(sources + "->" + targets.get(t), expected, distances[t]);
+            }
+        }
+    }
+
+    @Test
+    public void testDistanceHistogram() {
+        assertArrayEquals(new long[0], new FriendshipGraph().getDistanceHistogram(POOL));
+        assertArrayEquals(new long[0], new FriendshipGraph().getDistanceHistogram(5, 1, POOL));
+        FriendshipGraph graph = sample();
+        graph.addVertex(new Person("Gunther"));
+        graph.removeVertex(new Person("Gunther"));
+        //Rachel、Ross、Ben各自可达的三个人，Kramer只到达自己
+        assertArrayEquals(new long[] { 4, 4, 2 }, graph.getDistanceHistogram(POOL));
+    }
+
+    @Test
+    public void testSampledDistanceHistogram() {
+        //有向环上每个人到其他人的距离都是0、1、2、3，因此抽样的结果与抽到哪些人无关
+        FriendshipGraph graph = new FriendshipGraph();
+        Person[] ring = { rachel, ross, ben, kramer };
+        for (Person person : ring) {
+            graph.addVertex(person);
+        }
+        graph.addVertex(new Person("Gunther"));
+        graph.removeVertex(new Person("Gunther"));
+        for (int i = 0; i < ring.length; i++) {
+            graph.addEdge(ring[i], ring[(i + 1) % ring.length]);
+        }
+        assertArrayEquals(new long[] { 4, 4, 4, 4 }, graph.getDistanceHistogram(POOL));
+        assertArrayEquals(new long[] { 100, 100, 100, 100 }, graph.getDistanceHistogram(100, 3, POOL));
+    }
+}
@@ -0,0 +1,108 @@
+package P2;
+
+import static org.junit.Assert.*;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for PersonRegistry and Person.
+ */
+public class PersonRegistryTest {
+
+    // Testing strategy
+    //   intern(String): 名字未注册、已注册；已注册的是与参数同名的另一个实例
+    //   intern(Person): 新的人、同名的人；编号从0开始连续
+    //   id(String)、id(Person): 已注册、未注册
+    //   remove(): 已注册、未注册；删除后id()为-1、label()为null；
+    //             之后注册的人复用空闲编号，limit()不增加
+    //   Person: 同名的两个实例相等且哈希值相同；不同名不相等；与非Person对象不相等
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testInternReturnsFirstInstance() {
+        PersonRegistry registry = new PersonRegistry();
+        Person rachel = registry.intern("Rachel");
+        assertEquals("Rachel", rachel.getName());
+        assertSame(rachel, registry.intern("Rachel"));
+        assertSame(rachel, registry.label(registry.intern(new Person("Rachel"))));
+        Person ross = new Person("Ross");
+        assertSame(ross, registry.label(registry.intern(ross)));
+        assertSame(ross, registry.intern("Ross"));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void testRegisterAssignsDenseIds() {
+        PersonRegistry registry = new PersonRegistry();
+        Person[] people = { new Person("a"), new Person("b"), new Person("c") };
+        for (int i = 0; i < people.length; i++) {
+            assertEquals(i, registry.intern(people[i]));
+        }
+        assertEquals(1, registry.intern(new Person("b")));
+        assertSame(people[1], registry.label(1));
+        assertEquals(2, registry.id("c"));
+        assertEquals(2, registry.id(new Person("c")));
+        assertEquals(-1, registry.id("d"));
+        assertEquals(0, registry.id(new Person("a")));
+        assertEquals(-1, registry.id(new Person("d")));
+        assertEquals(3, registry.size());
+        assertEquals(3, registry.limit());
+    }
+
+    @Test
+    public void testRemove() {
+        PersonRegistry registry = new PersonRegistry();
+        registry.intern(new Person("a"));
+        registry.intern(new Person("b"));
+        assertEquals(1, registry.remove(new Person("b")));
+        assertEquals(-1, registry.remove(new Person("b")));
+        assertEquals(-1, registry.remove(new Person("x")));
+        assertEquals(-1, registry.id("b"));
+        assertEquals(-1, registry.id(new Person("b")));
+        assertNull(registry.label(1));
+        assertEquals(1, registry.size());
+        assertEquals(2, registry.limit());
+    }
+
+    @Test
+    public void testIdsAreReused() {
+        PersonRegistry registry = new PersonRegistry();
+        for (String name: new String[] { "a", "b", "c", "d" }) {
+            registry.intern(new Person(name));
+        }
+        registry.remove(new Person("b"));
+        registry.remove(new Person("d"));
+        int e = registry.intern(new Person("e"));
+        registry.intern("f");
+        int f = registry.id("f");
+        assertEquals(Set.of(1, 3), Set.of(e, f));
+        assertEquals(4, registry.limit());
+        assertEquals(4, registry.size());
+        //没有空闲编号时才使用新的编号
+        assertEquals(4, registry.intern(new Person("g")));
+        assertEquals(5, registry.limit());
+        //重新注册被注销的人得到新的编号，而不是原来的编号
+        registry.remove(new Person("a"));
+        assertEquals(0, registry.intern(new Person("b")));
+        assertEquals(new Person("b"), registry.label(0));
+    }
+
+    @Test
+    public void testPersonEqualsAndHashCode() {
+        Person first = new Person("Rachel");
+        Person second = new Person("Rachel");
+        assertEquals(first, second);
+        assertEquals(second, first);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(first, new Person("rachel"));
+        assertNotEquals(first, "Rachel");
+        assertNotEquals(first, null);
+        assertEquals("Person(Rachel)", first.toString());
+    }
+}